@@ -0,0 +1,342 @@
+import entity.Cart;
+import entity.Customer;
+import entity.product.Product;
+import entity.product.ShippableProduct;
+import entity.product.StockChangeReason;
+import exception.EmptyCartException;
+import exception.InsufficientBalanceException;
+import exception.InsufficientQuantityException;
+import exception.ProductNotFoundException;
+import monitoring.trace.TraceBuffer;
+import monitoring.trace.Tracer;
+import service.CheckoutService;
+import service.recommendation.CoOccurrenceIndex;
+import service.shipping.FlatRateTable;
+import service.shipping.ParcelPacker;
+import service.shipping.ShippingRates;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A long-running soak test that drives realistic shopping traffic and watches the heap for slow leaks.
+ * Worker threads keep browsing, filling carts and checking out against a fixed catalog and customer base,
+ * with shipping rates, parcel packing, recommendations and sampled tracing configured, so every bounded
+ * cache and index in the checkout path is exercised for the whole run.
+ * After every interval the heap is collected and the retained heap, the bytes the workers allocated per
+ * operation and the collector's activity are sampled and printed.
+ * Once the warm-up intervals are over, their last sample is the baseline: the test fails if the retained heap
+ * grows more than {@value #MAX_RETAINED_GROWTH_MB} MB above it, or if the workers' allocation per operation
+ * grows more than {@value #MAX_ALLOCATION_GROWTH}x, by the end of the run.
+ * The console output of the operations under test is silenced while the test runs.
+ * The process exits with status 1 if a threshold was exceeded or an operation failed unexpectedly.
+ */
+public class SoakTest {
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final int PRODUCTS = 200;
+    private static final int CUSTOMERS_PER_THREAD = 50;
+    private static final int RESTOCK_LEVEL = 100;
+    private static final int RESTOCK_AMOUNT = 10_000;
+    private static final double MINIMUM_BALANCE = 1_000.0;
+    private static final int WARMUP_INTERVALS = 2;
+    private static final long MAX_RETAINED_GROWTH_MB = 32;
+    private static final double MAX_ALLOCATION_GROWTH = 1.5;
+    private static final PrintStream CONSOLE = System.out;
+
+    private static final AtomicLong operations = new AtomicLong();
+    private static final AtomicReference<Throwable> unexpected = new AtomicReference<>();
+    private static volatile boolean running = true;
+
+    /**
+     * Main method to run the soak test.
+     *
+     * @param args optionally, the duration of the run in minutes (defaults to 60)
+     *             and the sampling interval in seconds (defaults to 60)
+     */
+    public static void main(String[] args) {
+        long durationMinutes = args.length > 0 ? Long.parseLong(args[0]) : 60;
+        long intervalSeconds = args.length > 1 ? Long.parseLong(args[1]) : 60;
+        long intervals = Math.max(WARMUP_INTERVALS + 1, durationMinutes * 60 / intervalSeconds);
+        CONSOLE.println("Soaking for " + intervals + " intervals of " + intervalSeconds + " s with " + THREADS + " threads");
+        printLongLine();
+        CONSOLE.println("interval      ops/s   bytes/op  retained MB  GCs  GC ms");
+
+        Product[] products = createProducts();
+        CheckoutService.setShippingRates(new ShippingRates(new FlatRateTable(2.5), 0.5, 1024));
+        CheckoutService.setParcelPacker(new ParcelPacker(20.0));
+        CheckoutService.setRecommendationIndex(new CoOccurrenceIndex(10, 0.9, 10_000));
+        Tracer.setBuffer(new TraceBuffer(4096));
+
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        List<Sample> samples = new ArrayList<>();
+        Thread[] workers = new Thread[THREADS];
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                workers[i] = new Thread(() -> work(products), "soak-" + i);
+                workers[i].setDaemon(true);
+                workers[i].start();
+            }
+            Sample previous = Sample.take(workers);
+            for (int interval = 1; interval <= intervals && unexpected.get() == null; interval++) {
+                try {
+                    Thread.sleep(intervalSeconds * 1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                Sample sample = Sample.take(workers);
+                samples.add(sample);
+                print(interval, previous, sample);
+                previous = sample;
+            }
+        } finally {
+            running = false;
+            for (Thread worker : workers) {
+                joinQuietly(worker);
+            }
+            System.setOut(CONSOLE);
+        }
+
+        printLongLine();
+        List<String> failures = check(samples);
+        if (unexpected.get() != null) {
+            failures.add("Unexpected " + unexpected.get());
+        }
+        if (!failures.isEmpty()) {
+            for (String failure : failures) {
+                System.out.println("[FAIL] " + failure);
+            }
+            System.exit(1);
+        }
+        System.out.println("No heap or allocation growth detected");
+    }
+
+    /**
+     * Creates the catalog the workers shop from: shippable products with a range of prices and weights.
+     *
+     * @return the products
+     */
+    private static Product[] createProducts() {
+        Product[] products = new Product[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            products[i] = new ShippableProduct("Product " + i, 1.0 + i % 50, RESTOCK_AMOUNT, 0.1 + (i % 20) * 0.25);
+        }
+        return products;
+    }
+
+    /**
+     * The work of one soak thread: a session loop over the thread's own customers, mixing cart changes and
+     * checkouts the way shoppers do, until the test ends. Stock and balances are topped up so the traffic
+     * never stalls on sold-out products or broke customers.
+     *
+     * @param products the catalog to shop from
+     */
+    private static void work(Product[] products) {
+        Customer[] customers = new Customer[CUSTOMERS_PER_THREAD];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = new Customer("Soak customer " + i, "soak" + i + "@example.com", "01000000000", 100 * MINIMUM_BALANCE);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            while (running) {
+                Customer customer = customers[random.nextInt(customers.length)];
+                Cart cart = customer.getCart();
+                // Popular products are picked far more often than the long tail
+                Product product = products[(int) (PRODUCTS * Math.pow(random.nextDouble(), 3))];
+                if (product.getQuantity() < RESTOCK_LEVEL) {
+                    product.adjustQuantity(RESTOCK_AMOUNT, StockChangeReason.ADJUSTMENT);
+                }
+                if (customer.getBalance() < MINIMUM_BALANCE) {
+                    customer.setBalance(customer.getBalance() + 100 * MINIMUM_BALANCE);
+                }
+                try {
+                    int action = random.nextInt(100);
+                    if (action < 55) {
+                        cart.add(product, 1 + random.nextInt(3));
+                    } else if (action < 70) {
+                        cart.updateProductQuantity(product, 1 + random.nextInt(5));
+                    } else if (action < 80) {
+                        cart.remove(product);
+                    } else {
+                        CheckoutService.checkout(customer);
+                    }
+                } catch (ProductNotFoundException | EmptyCartException e) {
+                    // The product was not in the cart, or the cart was empty
+                } catch (InsufficientQuantityException | InsufficientBalanceException e) {
+                    cart.clear();
+                }
+                operations.incrementAndGet();
+            }
+        } catch (Throwable t) {
+            unexpected.compareAndSet(null, t);
+        }
+    }
+
+    /**
+     * Compares the samples taken after the warm-up with the baseline.
+     *
+     * @param samples the samples, one per completed interval
+     * @return a description of every exceeded threshold
+     */
+    private static List<String> check(List<Sample> samples) {
+        List<String> failures = new ArrayList<>();
+        if (samples.size() <= WARMUP_INTERVALS) {
+            failures.add("Too few intervals completed to compare against the warm-up: " + samples.size());
+            return failures;
+        }
+        Sample baseline = samples.get(WARMUP_INTERVALS - 1);
+        Sample baselinePrevious = WARMUP_INTERVALS > 1 ? samples.get(WARMUP_INTERVALS - 2) : null;
+        Sample last = samples.get(samples.size() - 1);
+        Sample lastPrevious = samples.get(samples.size() - 2);
+
+        long retainedGrowth = last.retainedBytes - baseline.retainedBytes;
+        if (retainedGrowth > MAX_RETAINED_GROWTH_MB * 1024 * 1024) {
+            failures.add(String.format(Locale.ROOT, "Retained heap grew by %.1f MB after warm-up (limit %d MB)",
+                    retainedGrowth / 1024.0 / 1024.0, MAX_RETAINED_GROWTH_MB));
+        }
+        if (baselinePrevious != null && baseline.allocatedBytes >= 0) {
+            double baselinePerOperation = Sample.bytesPerOperation(baselinePrevious, baseline);
+            double lastPerOperation = Sample.bytesPerOperation(lastPrevious, last);
+            if (baselinePerOperation > 0 && lastPerOperation > baselinePerOperation * MAX_ALLOCATION_GROWTH) {
+                failures.add(String.format(Locale.ROOT, "Allocation grew from %.0f to %.0f bytes per operation (limit %.1fx)",
+                        baselinePerOperation, lastPerOperation, MAX_ALLOCATION_GROWTH));
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Prints the sample of one interval.
+     *
+     * @param interval the number of the interval
+     * @param previous the sample taken at the start of the interval
+     * @param sample   the sample taken at its end
+     */
+    private static void print(int interval, Sample previous, Sample sample) {
+        double seconds = (sample.nanoTime - previous.nanoTime) / 1e9;
+        long operationCount = sample.operations - previous.operations;
+        String bytesPerOperation = sample.allocatedBytes < 0
+                ? "n/a"
+                : String.format(Locale.ROOT, "%.0f", Sample.bytesPerOperation(previous, sample));
+        CONSOLE.println(String.format(Locale.ROOT, "%8d %10.0f %10s %12.1f %4d %6d%s",
+                interval, operationCount / seconds, bytesPerOperation, sample.retainedBytes / 1024.0 / 1024.0,
+                sample.gcCount - previous.gcCount, sample.gcMillis - previous.gcMillis,
+                interval == WARMUP_INTERVALS ? "  (baseline)" : ""));
+    }
+
+    /**
+     * Waits for a thread to finish, restoring the interrupt flag if interrupted.
+     *
+     * @param thread the thread to wait for
+     */
+    private static void joinQuietly(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Prints a long line for better readability in the console output.
+     */
+    private static void printLongLine() {
+        System.out.println("-------------------------------------------------------------------------------");
+    }
+
+    /**
+     * The counters sampled at the end of an interval. The collector counters are read before the heap is
+     * collected for the retained heap, so each interval's collections exclude the sampling collection.
+     *
+     * @param nanoTime       the time of the sample
+     * @param operations     the number of operations the workers completed so far
+     * @param allocatedBytes the bytes the workers allocated so far, or -1 if the JVM cannot measure it
+     * @param gcCount        the number of collections so far, excluding sampling collections
+     * @param gcMillis       the time spent collecting so far, excluding sampling collections
+     * @param retainedBytes  the heap in use after a full collection
+     */
+    private record Sample(long nanoTime, long operations, long allocatedBytes, long gcCount, long gcMillis, long retainedBytes) {
+        private static final AtomicLong samplingCollections = new AtomicLong();
+        private static final AtomicLong samplingMillis = new AtomicLong();
+
+        /**
+         * Takes a sample, collecting the heap to measure what is retained.
+         *
+         * @param workers the soak threads whose allocations are measured
+         * @return the sample
+         */
+        private static Sample take(Thread[] workers) {
+            long nanoTime = System.nanoTime();
+            long operationCount = SoakTest.operations.get();
+            long allocated = allocatedBytes(workers);
+            long[] gc = collectorTotals();
+            long count = gc[0] - samplingCollections.get();
+            long millis = gc[1] - samplingMillis.get();
+
+            System.gc();
+            long[] after = collectorTotals();
+            samplingCollections.addAndGet(after[0] - gc[0]);
+            samplingMillis.addAndGet(after[1] - gc[1]);
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            return new Sample(nanoTime, operationCount, allocated, count, millis, memory.getHeapMemoryUsage().getUsed());
+        }
+
+        /**
+         * Gets the bytes allocated per operation between two samples.
+         *
+         * @param previous the earlier sample
+         * @param sample   the later sample
+         * @return the bytes allocated per operation, or 0 if no operation completed
+         */
+        private static double bytesPerOperation(Sample previous, Sample sample) {
+            long operationCount = sample.operations - previous.operations;
+            return operationCount == 0 ? 0.0 : (double) (sample.allocatedBytes - previous.allocatedBytes) / operationCount;
+        }
+
+        /**
+         * Sums the bytes allocated by the given threads over their lifetime.
+         *
+         * @param workers the threads
+         * @return the allocated bytes, or -1 if the JVM does not support per-thread allocation accounting
+         */
+        private static long allocatedBytes(Thread[] workers) {
+            if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                    || !threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+                return -1;
+            }
+            long[] ids = new long[workers.length];
+            for (int i = 0; i < workers.length; i++) {
+                ids[i] = workers[i].getId();
+            }
+            long total = 0;
+            for (long bytes : threads.getThreadAllocatedBytes(ids)) {
+                total += Math.max(0, bytes);
+            }
+            return total;
+        }
+
+        /**
+         * Sums the collection counts and times of all garbage collectors.
+         *
+         * @return the total number of collections and the total collection time in milliseconds
+         */
+        private static long[] collectorTotals() {
+            long count = 0;
+            long millis = 0;
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, collector.getCollectionCount());
+                millis += Math.max(0, collector.getCollectionTime());
+            }
+            return new long[]{count, millis};
+        }
+    }
+}
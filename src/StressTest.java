@@ -0,0 +1,362 @@
+import entity.Cart;
+import entity.Customer;
+import entity.product.Product;
+import entity.product.StockChangeListener;
+import entity.product.StockEvents;
+import exception.EmptyCartException;
+import exception.InsufficientBalanceException;
+import exception.InsufficientQuantityException;
+import exception.ProductNotFoundException;
+import service.CheckoutEngine;
+import service.CheckoutResult;
+import service.CheckoutService;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Concurrency stress tests for the cart, product stock and customer balance invariants.
+ * In the style of jcstress, each scenario runs for many short trials: a set of threads is released
+ * at once against shared objects, and the invariants are checked once they finish.
+ * The console output of the operations under test is silenced while the trials run.
+ * The process exits with status 1 if any invariant was violated.
+ */
+public class StressTest {
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final int OPERATIONS_PER_THREAD = 200;
+    private static final PrintStream CONSOLE = System.out;
+
+    /**
+     * Main method to run the stress tests.
+     *
+     * @param args optionally, the number of trials per scenario (defaults to 200)
+     */
+    public static void main(String[] args) {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        CONSOLE.println("Running " + trials + " trials per scenario with " + THREADS + " threads");
+        printLongLine();
+
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        int failedScenarios = 0;
+        try {
+            failedScenarios += runScenario("Cart total equals the sum of its lines", trials, StressTest::cartMutationTrial);
+            failedScenarios += runScenario("Shared product is never oversold", trials, () -> sharedProductCheckoutTrial(false));
+            failedScenarios += runScenario("Flash-sale product is never oversold", trials, () -> sharedProductCheckoutTrial(true));
+            failedScenarios += runScenario("Shared customer balance matches its debits", trials, StressTest::balanceDebitTrial);
+            failedScenarios += runScenario("Checkout engine never oversells or overdraws", trials, StressTest::checkoutEngineTrial);
+        } finally {
+            System.setOut(CONSOLE);
+        }
+
+        printLongLine();
+        if (failedScenarios > 0) {
+            System.out.println(failedScenarios + " scenario(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All scenarios passed");
+    }
+
+    /**
+     * Hammers one shared cart with concurrent adds, updates and removals, then checks that the cart's
+     * running total equals the sum of its lines and that no line has a non-positive quantity.
+     *
+     * @return a description of the violated invariant, or null if the trial passed
+     */
+    private static String cartMutationTrial() {
+        Product[] products = {
+                new Product("Pen", 0.5, 1_000_000),
+                new Product("Notebook", 1.25, 1_000_000),
+                new Product("Stapler", 2.0, 1_000_000),
+                new Product("Lamp", 3.75, 1_000_000)
+        };
+        Cart cart = new Cart();
+
+        String failure = runConcurrently(thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                Product product = products[random.nextInt(products.length)];
+                try {
+                    switch (random.nextInt(3)) {
+                        case 0 -> cart.add(product, 1 + random.nextInt(3));
+                        case 1 -> cart.updateProductQuantity(product, 1 + random.nextInt(5));
+                        default -> cart.remove(product);
+                    }
+                } catch (ProductNotFoundException e) {
+                    // Another thread removed the product first
+                }
+            }
+        });
+        if (failure != null) {
+            return failure;
+        }
+
+        synchronized (cart) {
+            double sum = 0.0;
+            for (Map.Entry<Product, Integer> entry : cart.getProducts().entrySet()) {
+                if (entry.getValue() <= 0) {
+                    return "Non-positive quantity " + entry.getValue() + " for " + entry.getKey().getName();
+                }
+                sum += entry.getKey().getPrice() * entry.getValue();
+            }
+            if (Math.abs(sum - cart.getItemsTotalCost()) > 1e-9) {
+                return "Cart total " + cart.getItemsTotalCost() + " but lines sum to " + sum;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lets several customers check out a product with limited stock at the same time, then checks that
+     * the stock never went negative and that the units sold plus the units left equal the initial stock.
+     *
+     * @param flashSale whether the product is in flash-sale mode
+     * @return a description of the violated invariant, or null if the trial passed
+     */
+    private static String sharedProductCheckoutTrial(boolean flashSale) {
+        int initialStock = THREADS * 2;
+        Product product = new Product("Console", 1.0, initialStock);
+        if (flashSale) {
+            product.enableFlashSale(THREADS);
+        }
+        Customer[] customers = new Customer[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            customers[i] = new Customer("Customer " + i, "customer" + i + "@example.com", "01000000000", 1_000_000);
+        }
+        AtomicInteger sold = new AtomicInteger();
+        AtomicBoolean wentNegative = new AtomicBoolean();
+        StockChangeListener listener = event -> {
+            if (event.product() == product && event.newQuantity() < 0) {
+                wentNegative.set(true);
+            }
+        };
+
+        StockEvents.addListener(listener);
+        String failure;
+        try {
+            failure = runConcurrently(thread -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                Customer customer = customers[thread];
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    try {
+                        customer.getCart().add(product, 1 + random.nextInt(3));
+                        CheckoutResult result = CheckoutService.checkout(customer);
+                        sold.addAndGet((int) result.itemsCost());
+                    } catch (InsufficientQuantityException e) {
+                        customer.getCart().clear();
+                    }
+                }
+            });
+        } finally {
+            StockEvents.removeListener(listener);
+        }
+        if (failure != null) {
+            return failure;
+        }
+
+        int remaining = product.getQuantity();
+        if (wentNegative.get() || remaining < 0) {
+            return "Stock went negative";
+        }
+        if (sold.get() + remaining != initialStock) {
+            return "Sold " + sold.get() + " and " + remaining + " left of an initial " + initialStock;
+        }
+        return null;
+    }
+
+    /**
+     * Lets several threads check out the same customer's shared cart at the same time, then checks that
+     * the balance never went negative and that the amount debited equals the total of the successful checkouts.
+     *
+     * @return a description of the violated invariant, or null if the trial passed
+     */
+    private static String balanceDebitTrial() {
+        double initialBalance = 100.0;
+        int initialStock = 1_000_000;
+        Product product = new Product("Gift Card", 3.0, initialStock);
+        Customer customer = new Customer("Shared", "shared@example.com", "01000000000", initialBalance);
+        DoubleAdder debited = new DoubleAdder();
+        DoubleAdder itemsBought = new DoubleAdder();
+
+        String failure = runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                try {
+                    customer.getCart().add(product, 1);
+                    CheckoutResult result = CheckoutService.checkout(customer);
+                    debited.add(result.totalCost());
+                    itemsBought.add(result.itemsCost());
+                } catch (InsufficientBalanceException | EmptyCartException e) {
+                    // Expected once the balance runs low, or when another thread checked the cart out first
+                }
+            }
+        });
+        if (failure != null) {
+            return failure;
+        }
+
+        double balance = customer.getBalance();
+        if (balance < 0) {
+            return "Balance went negative: " + balance;
+        }
+        if (Math.abs(initialBalance - balance - debited.sum()) > 1e-9) {
+            return "Balance dropped by " + (initialBalance - balance) + " but checkouts totalled " + debited.sum();
+        }
+        int unitsSold = (int) Math.round(itemsBought.sum() / product.getPrice());
+        if (initialStock - product.getQuantity() != unitsSold) {
+            return "Stock dropped by " + (initialStock - product.getQuantity()) + " but checkouts bought " + unitsSold;
+        }
+        return null;
+    }
+
+    /**
+     * Lets several customers submit checkouts of a product with limited stock to one checkout engine at
+     * the same time, then checks that the stock and every balance add up to the successful checkouts.
+     *
+     * @return a description of the violated invariant, or null if the trial passed
+     */
+    private static String checkoutEngineTrial() {
+        int initialStock = THREADS * 2;
+        double initialBalance = 20.0;
+        Product product = new Product("Headphones", 1.0, initialStock);
+        Customer[] customers = new Customer[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            customers[i] = new Customer("Customer " + i, "customer" + i + "@example.com", "01000000000", initialBalance);
+        }
+        AtomicInteger sold = new AtomicInteger();
+
+        String failure;
+        try (CheckoutEngine engine = new CheckoutEngine(8)) {
+            failure = runConcurrently(thread -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                Customer customer = customers[thread];
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    try {
+                        customer.getCart().add(product, 1 + random.nextInt(3));
+                        CheckoutResult result = engine.submit(customer).join();
+                        sold.addAndGet((int) result.itemsCost());
+                    } catch (InsufficientQuantityException e) {
+                        customer.getCart().clear();
+                    } catch (CompletionException e) {
+                        if (!(e.getCause() instanceof InsufficientQuantityException || e.getCause() instanceof InsufficientBalanceException)) {
+                            throw e;
+                        }
+                        customer.getCart().clear();
+                    }
+                }
+            });
+        }
+        if (failure != null) {
+            return failure;
+        }
+
+        int remaining = product.getQuantity();
+        if (remaining < 0 || sold.get() + remaining != initialStock) {
+            return "Sold " + sold.get() + " and " + remaining + " left of an initial " + initialStock;
+        }
+        double spent = 0.0;
+        for (Customer customer : customers) {
+            if (customer.getBalance() < 0) {
+                return "Balance went negative: " + customer.getBalance();
+            }
+            spent += initialBalance - customer.getBalance();
+        }
+        if (Math.abs(spent - sold.get() * product.getPrice()) > 1e-9) {
+            return "Customers spent " + spent + " on " + sold.get() + " units";
+        }
+        return null;
+    }
+
+    /**
+     * Runs the trials of one scenario and prints its outcome.
+     *
+     * @param name   the name of the scenario
+     * @param trials the number of trials to run
+     * @param trial  the trial, returning a description of the violated invariant or null if it passed
+     * @return 1 if any trial failed, 0 otherwise
+     */
+    private static int runScenario(String name, int trials, Trial trial) {
+        int failed = 0;
+        String firstFailure = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < trials; i++) {
+            String failure = trial.run();
+            if (failure != null) {
+                failed++;
+                if (firstFailure == null) {
+                    firstFailure = failure;
+                }
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        if (failed == 0) {
+            CONSOLE.println("[OK]   " + name + " (" + trials + " trials, " + elapsedMillis + " ms)");
+            return 0;
+        }
+        CONSOLE.println("[FAIL] " + name + " (" + failed + " of " + trials + " trials failed, e.g. " + firstFailure + ")");
+        return 1;
+    }
+
+    /**
+     * Runs a body on all stress threads, releasing them at the same time, and waits for them to finish.
+     *
+     * @param body the work of each thread, given the thread's index
+     * @return a description of an unexpected exception thrown by a thread, or null if none was thrown
+     */
+    private static String runConcurrently(IntConsumer body) {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> unexpected = new AtomicReference<>();
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    body.accept(index);
+                } catch (Throwable t) {
+                    unexpected.compareAndSet(null, t);
+                }
+            }, "stress-" + i);
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "Interrupted while waiting for stress threads";
+            }
+        }
+        Throwable t = unexpected.get();
+        return t == null ? null : "Unexpected " + t;
+    }
+
+    /**
+     * Prints a long line for better readability in the console output.
+     */
+    private static void printLongLine() {
+        System.out.println("-------------------------------------------------------------------------------");
+    }
+
+    /**
+     * One trial of a stress scenario.
+     */
+    @FunctionalInterface
+    private interface Trial {
+        /**
+         * Runs the trial.
+         *
+         * @return a description of the violated invariant, or null if the trial passed
+         */
+        String run();
+    }
+}
@@ -3,15 +3,24 @@ package entity;
 import entity.product.Product;
 import exception.InsufficientQuantityException;
 import exception.ProductNotFoundException;
+import monitoring.CartMutationEvent;
+import monitoring.trace.Tracer;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.LongFunction;
 
 /**
  * Represents a shopping cart that holds products and their quantities.
  * Provides methods to add, remove, update products, clear the cart, and check if it's empty.
+ * All operations synchronize on the cart, so a cart may be shared between threads; the map returned by
+ * {@link #getProducts()} must only be read while holding the cart's monitor.
+ * With a {@link #setProductResolver(LongFunction) product resolver} set, every product passed in is looked
+ * up by its SKU and the cart holds the resolved instance instead.
  */
 public class Cart {
+    private static volatile LongFunction<Product> productResolver;
+
     private final Map<Product, Integer> products;
     private double itemsTotalCost;
 
@@ -23,6 +32,16 @@ public class Cart {
         this.itemsTotalCost = 0;
     }
 
+    /**
+     * Sets how carts look products up by SKU, e.g. through a product repository, so that every cart holds
+     * the one live instance of each product.
+     *
+     * @param resolver The lookup, throwing ProductNotFoundException for an unknown SKU, or null to hold the products as passed in.
+     */
+    public static void setProductResolver(LongFunction<Product> resolver) {
+        productResolver = resolver;
+    }
+
     /**
      * Adds a product to the cart with the specified quantity.
      * Throws an exception if the product is null, quantity is less than or equal to zero,
@@ -31,24 +50,31 @@ public class Cart {
      * @param product  The product to add.
      * @param quantity The quantity of the product to add.
      * @throws IllegalArgumentException if product is null or quantity is less than or equal to zero.
+     * @throws ProductNotFoundException if the product resolver does not know the product.
      * @throws InsufficientQuantityException if the requested quantity exceeds available stock.
      */
-    public void add(Product product, int quantity) {
-        if (product == null) {
-            throw new IllegalArgumentException("Product cannot be null.");
-        }
-        if (quantity <= 0) {
-            throw new IllegalArgumentException("Quantity must be greater than zero.");
-        }
+    public synchronized void add(Product product, int quantity) {
+        Tracer.run("cart.add", () -> {
+            CartMutationEvent event = new CartMutationEvent();
+            event.begin();
+            if (product == null) {
+                throw new IllegalArgumentException("Product cannot be null.");
+            }
+            Product resolved = resolve(product);
+            if (quantity <= 0) {
+                throw new IllegalArgumentException("Quantity must be greater than zero.");
+            }
 
-        int totalQuantity = products.getOrDefault(product, 0) + quantity;
-        if (totalQuantity > product.getQuantity()) {
-            throw new InsufficientQuantityException("Insufficient quantity available for product: " + product.getName());
-        }
-        products.put(product, totalQuantity);
-        itemsTotalCost += product.getPrice() * quantity;
+            int totalQuantity = products.getOrDefault(resolved, 0) + quantity;
+            if (totalQuantity > resolved.getQuantity()) {
+                throw new InsufficientQuantityException("Insufficient quantity available for product: " + resolved.getName());
+            }
+            products.put(resolved, totalQuantity);
+            itemsTotalCost += resolved.getPrice() * quantity;
+            recordMutation(event, "add", resolved, quantity);
 
-        System.out.println("Added " + quantity + " of " + product.getName() + " to the cart. Current total price: " + itemsTotalCost);
+            System.out.println("Added " + quantity + " of " + resolved.getName() + " to the cart. Current total price: " + itemsTotalCost);
+        });
     }
 
     /**
@@ -59,19 +85,25 @@ public class Cart {
      * @throws IllegalArgumentException if product is null.
      * @throws ProductNotFoundException if the product is not found in the cart.
      */
-    public void remove(Product product) {
-        if (product == null) {
-            throw new IllegalArgumentException("Product cannot be null.");
-        }
-        if (!products.containsKey(product)) {
-            throw new ProductNotFoundException("Product not found in cart: " + product.getName());
-        }
+    public synchronized void remove(Product product) {
+        Tracer.run("cart.remove", () -> {
+            CartMutationEvent event = new CartMutationEvent();
+            event.begin();
+            if (product == null) {
+                throw new IllegalArgumentException("Product cannot be null.");
+            }
+            Product resolved = resolve(product);
+            if (!products.containsKey(resolved)) {
+                throw new ProductNotFoundException("Product not found in cart: " + resolved.getName());
+            }
 
-        int quantity = products.get(product);
-        itemsTotalCost -= product.getPrice() * quantity;
-        products.remove(product);
+            int quantity = products.get(resolved);
+            itemsTotalCost -= resolved.getPrice() * quantity;
+            products.remove(resolved);
+            recordMutation(event, "remove", resolved, quantity);
 
-        System.out.println("Removed " + product.getName() + " from the cart. Current total price: " + itemsTotalCost);
+            System.out.println("Removed " + resolved.getName() + " from the cart. Current total price: " + itemsTotalCost);
+        });
     }
 
     /**
@@ -85,36 +117,75 @@ public class Cart {
      * @throws ProductNotFoundException if the product is not found in the cart.
      * @throws InsufficientQuantityException if the requested quantity exceeds available stock.
      */
-    public void updateProductQuantity(Product product, int quantity) {
-        if (product == null) {
-            throw new IllegalArgumentException("Product cannot be null.");
-        }
-        if (quantity <= 0) {
-            throw new IllegalArgumentException("Quantity must be greater than zero.");
-        }
-        if (!products.containsKey(product)) {
-            throw new ProductNotFoundException("Product not found in cart: " + product.getName());
-        }
-        if (quantity > product.getQuantity()) {
-            throw new InsufficientQuantityException("Insufficient quantity available for product: " + product.getName());
-        }
+    public synchronized void updateProductQuantity(Product product, int quantity) {
+        Tracer.run("cart.update", () -> {
+            CartMutationEvent event = new CartMutationEvent();
+            event.begin();
+            if (product == null) {
+                throw new IllegalArgumentException("Product cannot be null.");
+            }
+            if (quantity <= 0) {
+                throw new IllegalArgumentException("Quantity must be greater than zero.");
+            }
+            Product resolved = resolve(product);
+            if (!products.containsKey(resolved)) {
+                throw new ProductNotFoundException("Product not found in cart: " + resolved.getName());
+            }
+            if (quantity > resolved.getQuantity()) {
+                throw new InsufficientQuantityException("Insufficient quantity available for product: " + resolved.getName());
+            }
 
-        int currentQuantity = products.get(product);
-        itemsTotalCost -= product.getPrice() * currentQuantity;
-        products.put(product, quantity);
-        itemsTotalCost += product.getPrice() * quantity;
+            int currentQuantity = products.get(resolved);
+            itemsTotalCost -= resolved.getPrice() * currentQuantity;
+            products.put(resolved, quantity);
+            itemsTotalCost += resolved.getPrice() * quantity;
+            recordMutation(event, "update", resolved, quantity);
 
-        System.out.println("Updated " + product.getName() + " quantity to " + quantity + ". Current total price: " + itemsTotalCost);
+            System.out.println("Updated " + resolved.getName() + " quantity to " + quantity + ". Current total price: " + itemsTotalCost);
+        });
+    }
+
+    /**
+     * Restores a saved line into the cart, e.g. when reloading a saved cart.
+     * Unlike {@link #add(Product, int)} the stock is not checked, since the saved quantity may legitimately
+     * exceed the current stock; checkout validates the stock anyway. Nothing is printed.
+     *
+     * @param product  The product to restore.
+     * @param quantity The saved quantity of the product.
+     * @throws IllegalArgumentException if product is null or quantity is less than or equal to zero.
+     * @throws ProductNotFoundException if the product resolver does not know the product.
+     */
+    public synchronized void restore(Product product, int quantity) {
+        Tracer.run("cart.restore", () -> {
+            CartMutationEvent event = new CartMutationEvent();
+            event.begin();
+            if (product == null) {
+                throw new IllegalArgumentException("Product cannot be null.");
+            }
+            if (quantity <= 0) {
+                throw new IllegalArgumentException("Quantity must be greater than zero.");
+            }
+
+            Product resolved = resolve(product);
+            Integer previous = products.put(resolved, quantity);
+            itemsTotalCost += resolved.getPrice() * (quantity - (previous == null ? 0 : previous));
+            recordMutation(event, "restore", resolved, quantity);
+        });
     }
 
     /**
      * Clears the cart, removing all products and resetting the total cost.
      */
-    public void clear() {
-        products.clear();
-        itemsTotalCost = 0;
+    public synchronized void clear() {
+        Tracer.run("cart.clear", () -> {
+            CartMutationEvent event = new CartMutationEvent();
+            event.begin();
+            products.clear();
+            itemsTotalCost = 0;
+            recordMutation(event, "clear", null, 0);
 
-        System.out.println("Cart cleared. Current total price: " + itemsTotalCost);
+            System.out.println("Cart cleared. Current total price: " + itemsTotalCost);
+        });
     }
 
     /**
@@ -122,7 +193,7 @@ public class Cart {
      *
      * @return true if the cart is empty, false otherwise.
      */
-    public boolean isEmpty() {
+    public synchronized boolean isEmpty() {
         return products.isEmpty();
     }
 
@@ -140,17 +211,52 @@ public class Cart {
      *
      * @return The total cost of items in the cart.
      */
-    public double getItemsTotalCost() {
+    public synchronized double getItemsTotalCost() {
         return itemsTotalCost;
     }
 
+    /**
+     * Looks a product up through the product resolver, if one is set.
+     *
+     * @param product The product passed in.
+     * @return The instance the cart should hold.
+     * @throws ProductNotFoundException if the product resolver does not know the product.
+     */
+    private static Product resolve(Product product) {
+        LongFunction<Product> resolver = productResolver;
+        return resolver == null ? product : resolver.apply(product.getSku());
+    }
+
+    /**
+     * Publishes a cart mutation to the registered {@link CartChangeListener}s and commits it as a JFR
+     * event if JFR is recording it.
+     *
+     * @param event     The event begun at the start of the mutation.
+     * @param operation The name of the mutation.
+     * @param product   The product affected, or null if the mutation affects the whole cart.
+     * @param quantity  The quantity added, removed or set.
+     */
+    private void recordMutation(CartMutationEvent event, String operation, Product product, int quantity) {
+        CartEvents.fire(this, operation, product, quantity, itemsTotalCost);
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            if (product != null) {
+                event.sku = product.getSku();
+                event.product = product.getName();
+            }
+            event.quantity = quantity;
+            event.cartTotal = itemsTotalCost;
+            event.commit();
+        }
+    }
+
     /**
      * Returns a string representation of the cart, including products, their quantities, and total price.
      *
      * @return A string representation of the cart.
      */
     @Override
-    public String toString() {
+    public synchronized String toString() {
         StringBuilder sb = new StringBuilder("Cart:\n");
         for (Map.Entry<Product, Integer> entry : products.entrySet()) {
             sb.append(entry.getKey().getName())
@@ -0,0 +1,15 @@
+package entity;
+
+import entity.product.Product;
+
+/**
+ * Describes a single change to a shopping cart.
+ *
+ * @param cart      the cart that changed
+ * @param operation the name of the change: add, remove, update, restore or clear
+ * @param product   the product affected, or null if the change affects the whole cart
+ * @param quantity  the quantity added, removed or set
+ * @param cartTotal the total cost of the items in the cart after the change
+ */
+public record CartChangeEvent(Cart cart, String operation, Product product, int quantity, double cartTotal) {
+}
@@ -0,0 +1,16 @@
+package entity;
+
+/**
+ * Listener notified whenever a shopping cart changes.
+ */
+@FunctionalInterface
+public interface CartChangeListener {
+    /**
+     * Called after a cart has changed.
+     * The call is made while the cart's monitor is held, so implementations should be quick
+     * and must not block.
+     *
+     * @param event the cart change
+     */
+    void onCartChanged(CartChangeEvent event);
+}
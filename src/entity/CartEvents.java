@@ -0,0 +1,64 @@
+package entity;
+
+import entity.product.Product;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Global registry of {@link CartChangeListener}s.
+ * Carts publish every change here; when no listener is registered, publishing costs a single volatile read.
+ */
+public final class CartEvents {
+    private static final List<CartChangeListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private CartEvents() {
+    }
+
+    /**
+     * Registers a listener for cart changes.
+     *
+     * @param listener the listener to add
+     * @throws IllegalArgumentException if the listener is null
+     */
+    public static void addListener(CartChangeListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null.");
+        }
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Unregisters a previously registered listener.
+     *
+     * @param listener the listener to remove
+     */
+    public static void removeListener(CartChangeListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Notifies all registered listeners of a cart change.
+     * The cart has already changed when listeners are notified, so a listener that throws is reported
+     * and skipped rather than failing the change or the listeners after it.
+     *
+     * @param cart      the cart that changed
+     * @param operation the name of the change
+     * @param product   the product affected, or null if the change affects the whole cart
+     * @param quantity  the quantity added, removed or set
+     * @param cartTotal the total cost of the items in the cart after the change
+     */
+    static void fire(Cart cart, String operation, Product product, int quantity, double cartTotal) {
+        if (LISTENERS.isEmpty()) {
+            return;
+        }
+        CartChangeEvent event = new CartChangeEvent(cart, operation, product, quantity, cartTotal);
+        for (CartChangeListener listener : LISTENERS) {
+            try {
+                listener.onCartChanged(event);
+            } catch (RuntimeException e) {
+                System.err.println("Cart listener failed for operation " + operation + ": " + e);
+            }
+        }
+    }
+}
@@ -2,13 +2,14 @@ package entity;
 
 /**
  * Represents a customer in the e-commerce system.
- * Contains customer details such as name, email, phone number, balance, and a shopping cart.
+ * Contains customer details such as name, email, phone number, balance, shipping zone, and a shopping cart.
  */
 public class Customer {
     private String name;
     private String email;
     private String phoneNumber;
     private double balance;
+    private String shippingZone;
     private Cart cart;
 
     /**
@@ -66,7 +67,7 @@ public class Customer {
      * @throws IllegalArgumentException if the email is null, empty, or does not contain '@'
      */
     public void setEmail(String email) {
-        if (email == null || email.isBlank() || !email.contains("@")) {
+        if (!CustomerValidation.isValidEmail(email)) {
             throw new IllegalArgumentException("Invalid email address.");
         }
         this.email = email;
@@ -88,7 +89,7 @@ public class Customer {
      * @throws IllegalArgumentException if the phone number is null, empty, or not a 10-digit number
      */
     public void setPhoneNumber(String phoneNumber) {
-        if (phoneNumber == null || phoneNumber.isBlank() || !phoneNumber.matches("\\d{11}")) {
+        if (!CustomerValidation.isValidPhoneNumber(phoneNumber)) {
             throw new IllegalArgumentException("Phone number must be a 10-digit number.");
         }
         this.phoneNumber = phoneNumber;
@@ -116,6 +117,28 @@ public class Customer {
         this.balance = balance;
     }
 
+    /**
+     * Gets the zone the customer's orders are shipped to.
+     *
+     * @return the shipping zone, or null if the customer has none and orders are quoted for the default zone
+     */
+    public String getShippingZone() {
+        return shippingZone;
+    }
+
+    /**
+     * Sets the zone the customer's orders are shipped to.
+     *
+     * @param shippingZone the shipping zone to set, or null to quote orders for the default zone
+     * @throws IllegalArgumentException if the shipping zone is empty
+     */
+    public void setShippingZone(String shippingZone) {
+        if (shippingZone != null && shippingZone.isBlank()) {
+            throw new IllegalArgumentException("Shipping zone cannot be empty.");
+        }
+        this.shippingZone = shippingZone;
+    }
+
     /**
      * Gets the shopping cart of the customer.
      *
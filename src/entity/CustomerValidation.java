@@ -0,0 +1,56 @@
+package entity;
+
+/**
+ * Validation rules for customer contact details.
+ * The checks scan the input once without regular expressions or allocation, so they stay cheap
+ * when millions of customers are created or onboarded.
+ */
+public final class CustomerValidation {
+    private static final int PHONE_NUMBER_LENGTH = 11;
+
+    private CustomerValidation() {
+    }
+
+    /**
+     * Checks whether an email address is valid: not null, not blank, and containing '@'.
+     *
+     * @param email the email address to check
+     * @return true if the email address is valid, false otherwise
+     */
+    public static boolean isValidEmail(String email) {
+        if (email == null) {
+            return false;
+        }
+        boolean hasAt = false;
+        boolean hasNonWhitespace = false;
+        for (int i = 0; i < email.length(); i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                hasAt = true;
+            }
+            if (!Character.isWhitespace(c)) {
+                hasNonWhitespace = true;
+            }
+        }
+        return hasAt && hasNonWhitespace;
+    }
+
+    /**
+     * Checks whether a phone number is valid: exactly 11 ASCII digits.
+     *
+     * @param phoneNumber the phone number to check
+     * @return true if the phone number is valid, false otherwise
+     */
+    public static boolean isValidPhoneNumber(String phoneNumber) {
+        if (phoneNumber == null || phoneNumber.length() != PHONE_NUMBER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < PHONE_NUMBER_LENGTH; i++) {
+            char c = phoneNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
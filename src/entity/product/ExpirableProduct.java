@@ -21,6 +21,22 @@ public class ExpirableProduct extends Product implements Expirable{
         this.expirationDate = expirationDate;
     }
 
+    /**
+     * Constructs an ExpirableProduct with a known SKU, e.g. when restoring it from a snapshot.
+     *
+     * @param sku            the SKU of the product
+     * @param name           the name of the product
+     * @param price          the price of the product
+     * @param quantity       the quantity of the product
+     * @param expirationDate the expiration date of the product
+     * @throws IllegalArgumentException if the SKU is not positive
+     * @see Product#Product(long, String, double, int)
+     */
+    public ExpirableProduct(long sku, String name, double price, int quantity, LocalDate expirationDate) {
+        super(sku, name, price, quantity);
+        this.expirationDate = expirationDate;
+    }
+
     /**
      * Returns the expiration date of the product.
      *
@@ -26,6 +26,24 @@ public class ExpirableShippableProduct extends Product implements Expirable, Shi
         setWeight(weight);
     }
 
+    /**
+     * Constructs an ExpirableShippableProduct with a known SKU, e.g. when restoring it from a snapshot.
+     *
+     * @param sku            the SKU of the product
+     * @param name           the name of the product
+     * @param price          the price of the product
+     * @param quantity       the quantity of the product
+     * @param expirationDate the expiration date of the product
+     * @param weight         the weight of the product
+     * @throws IllegalArgumentException if the SKU is not positive or weight is less than or equal to zero
+     * @see Product#Product(long, String, double, int)
+     */
+    public ExpirableShippableProduct(long sku, String name, double price, int quantity, LocalDate expirationDate, double weight) {
+        super(sku, name, price, quantity);
+        this.expirationDate = expirationDate;
+        setWeight(weight);
+    }
+
     /**
      * Returns the expiration date of the product.
      *
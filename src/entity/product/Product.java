@@ -1,13 +1,25 @@
 package entity.product;
 
+import exception.InsufficientQuantityException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Represents a product with a name, price, and quantity.
  * Provides methods to get and set these attributes with validation.
+ * Every product is assigned a unique SKU, and all stock changes are made under the product's
+ * monitor and published through {@link StockEvents}.
+ * In flash-sale mode the stock is held in a {@link StripedStockCounter} instead, so that sales of a hot
+ * product are taken without locking.
  */
 public class Product {
+    private static final AtomicLong SKU_SEQUENCE = new AtomicLong();
+
+    private final long sku;
     private String name;
     private double price;
-    private int quantity;
+    private volatile int quantity;
+    private volatile StripedStockCounter flashStock;
 
     /**
      * Constructs a Product with the specified name, price, and quantity.
@@ -18,9 +30,82 @@ public class Product {
      * @throws IllegalArgumentException if name is null or empty, price is negative, or quantity is negative
      */
     public Product(String name, double price, int quantity) {
+        this(0, name, price, quantity, false);
+    }
+
+    /**
+     * Constructs a Product with a known SKU, e.g. when restoring it from a snapshot.
+     * SKUs assigned to new products afterwards are greater than this one; the caller is responsible for
+     * not restoring the same SKU twice.
+     *
+     * @param sku      the SKU of the product
+     * @param name     the name of the product
+     * @param price    the price of the product
+     * @param quantity the quantity of the product
+     * @throws IllegalArgumentException if the SKU is not positive, name is null or empty, price is negative,
+     *                                  or quantity is negative
+     */
+    public Product(long sku, String name, double price, int quantity) {
+        this(checkSku(sku), name, price, quantity, true);
+    }
+
+    /**
+     * Validates every attribute before taking a SKU, so a product that fails validation neither uses up a
+     * new SKU nor reserves a restored one.
+     *
+     * @param sku      the SKU of a restored product, ignored for a new product
+     * @param name     the name of the product
+     * @param price    the price of the product
+     * @param quantity the quantity of the product
+     * @param restored whether the product keeps the given SKU rather than being assigned a new one
+     * @throws IllegalArgumentException if name is null or empty, price is negative, or quantity is negative
+     */
+    private Product(long sku, String name, double price, int quantity, boolean restored) {
         setName(name);
         setPrice(price);
-        setQuantity(quantity);
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative.");
+        }
+        this.quantity = quantity;
+        if (restored) {
+            reserveSku(sku);
+            this.sku = sku;
+        } else {
+            this.sku = SKU_SEQUENCE.incrementAndGet();
+        }
+    }
+
+    /**
+     * Checks that a restored SKU is positive.
+     *
+     * @param sku the SKU to check
+     * @return the SKU
+     * @throws IllegalArgumentException if the SKU is not positive
+     */
+    private static long checkSku(long sku) {
+        if (sku <= 0) {
+            throw new IllegalArgumentException("SKU must be greater than zero.");
+        }
+        return sku;
+    }
+
+    /**
+     * Ensures that SKUs assigned to new products from now on are greater than the given SKU, so products
+     * restored later with that SKU cannot collide with them.
+     *
+     * @param sku the highest SKU in use
+     */
+    public static void reserveSku(long sku) {
+        SKU_SEQUENCE.accumulateAndGet(sku, Math::max);
+    }
+
+    /**
+     * Gets the SKU (stock keeping unit) identifier of the product.
+     *
+     * @return the SKU of the product
+     */
+    public long getSku() {
+        return sku;
     }
 
     /**
@@ -72,7 +157,8 @@ public class Product {
      * @return the quantity of the product
      */
     public int getQuantity() {
-        return quantity;
+        StripedStockCounter stripes = flashStock;
+        return stripes == null ? quantity : stripes.sum();
     }
 
     /**
@@ -81,10 +167,144 @@ public class Product {
      * @param quantity the quantity to set
      * @throws IllegalArgumentException if quantity is negative
      */
-    public void setQuantity(int quantity) {
+    public synchronized void setQuantity(int quantity) {
         if (quantity < 0) {
             throw new IllegalArgumentException("Quantity cannot be negative.");
         }
+        StripedStockCounter stripes = flashStock;
+        if (stripes != null) {
+            int previousQuantity = stripes.sum();
+            // Swap in a new counter: a lock-free take may still hand units back to the old one
+            stripes.discard();
+            flashStock = new StripedStockCounter(stripes.getStripes(), quantity);
+            StockEvents.fire(this, previousQuantity, quantity, StockChangeReason.MANUAL);
+            return;
+        }
+        int previousQuantity = this.quantity;
         this.quantity = quantity;
+        StockEvents.fire(this, previousQuantity, quantity, StockChangeReason.MANUAL);
+    }
+
+    /**
+     * Atomically adds the given delta to the quantity of the product.
+     * A negative delta removes stock; the quantity is never allowed to drop below zero.
+     * In flash-sale mode, removals are taken from the striped counter without locking the product;
+     * the quantities reported to stock listeners for such removals may then include concurrent changes.
+     *
+     * @param delta  the amount to add to the current quantity
+     * @param reason the reason for the change, reported to stock listeners
+     * @return the quantity after the adjustment
+     * @throws InsufficientQuantityException if the adjustment would make the quantity negative
+     */
+    public int adjustQuantity(int delta, StockChangeReason reason) {
+        StripedStockCounter stripes = flashStock;
+        if (stripes != null && delta < 0) {
+            boolean taken = stripes.tryTake(-delta);
+            if (stripes != flashStock) {
+                // Flash-sale mode ended while taking; recover units handed back to the retired counter
+                salvage(stripes);
+            }
+            if (taken) {
+                int newQuantity = getQuantity();
+                StockEvents.fire(this, newQuantity - delta, newQuantity, reason);
+                return newQuantity;
+            }
+            if (stripes == flashStock) {
+                throw new InsufficientQuantityException("Insufficient quantity available for product: " + name);
+            }
+        }
+        synchronized (this) {
+            stripes = flashStock;
+            if (stripes != null) {
+                if (delta < 0 && !stripes.tryTake(-delta)) {
+                    throw new InsufficientQuantityException("Insufficient quantity available for product: " + name);
+                }
+                if (delta > 0) {
+                    stripes.add(delta);
+                }
+                int newQuantity = stripes.sum();
+                StockEvents.fire(this, newQuantity - delta, newQuantity, reason);
+                return newQuantity;
+            }
+            return adjustLockedQuantity(delta, reason);
+        }
+    }
+
+    /**
+     * Enables flash-sale mode, moving the current stock into a striped counter so that concurrent
+     * sales of this product scale with the number of cores. Does nothing if flash-sale mode is already enabled.
+     *
+     * @param stripes the number of stripes, typically the number of available processors
+     * @throws IllegalArgumentException if stripes is not positive
+     */
+    public synchronized void enableFlashSale(int stripes) {
+        if (flashStock != null) {
+            return;
+        }
+        flashStock = new StripedStockCounter(stripes, quantity);
+        quantity = 0;
+    }
+
+    /**
+     * Disables flash-sale mode, folding the striped stock back into a single quantity.
+     * Does nothing if flash-sale mode is not enabled.
+     */
+    public synchronized void disableFlashSale() {
+        StripedStockCounter stripes = flashStock;
+        if (stripes == null) {
+            return;
+        }
+        flashStock = null;
+        quantity = stripes.drain();
+    }
+
+    /**
+     * Checks whether the product is in flash-sale mode.
+     *
+     * @return true if the stock is held in a striped counter, false otherwise
+     */
+    public boolean isFlashSale() {
+        return flashStock != null;
+    }
+
+    /**
+     * Moves units left in a retired striped counter back into the product's current stock.
+     * A take racing with {@link #disableFlashSale()} may hand units back to the counter after it was drained.
+     * Units left in a counter discarded by {@link #setQuantity(int)} are dropped, as the set quantity replaced them.
+     *
+     * @param retired the striped counter that is no longer in use
+     */
+    private synchronized void salvage(StripedStockCounter retired) {
+        int stranded = retired.drain();
+        if (stranded == 0 || retired.isDiscarded()) {
+            return;
+        }
+        if (flashStock != null) {
+            flashStock.add(stranded);
+        } else {
+            quantity += stranded;
+        }
+    }
+
+    /**
+     * Adjusts the single stock quantity. Must be called with the product's monitor held.
+     *
+     * @param delta  the amount to add to the current quantity
+     * @param reason the reason for the change
+     * @return the quantity after the adjustment
+     * @throws InsufficientQuantityException if the adjustment would make the quantity negative
+     */
+    private int adjustLockedQuantity(int delta, StockChangeReason reason) {
+        int previousQuantity = this.quantity;
+        long newQuantity = (long) previousQuantity + delta;
+        if (newQuantity < 0) {
+            throw new InsufficientQuantityException("Insufficient quantity available for product: " + name);
+        }
+        if (newQuantity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Quantity overflow for product: " + name);
+        }
+        this.quantity = (int) newQuantity;
+        StockEvents.fire(this, previousQuantity, this.quantity, reason);
+        return this.quantity;
     }
 }
@@ -2,24 +2,9 @@ package entity.product;
 
 /**
  * Interface representing a shippable product.
- * It provides methods to get the name and weight of the product,
- * as well as to set the weight.
+ * In addition to the name and weight of a {@link ShippableItem}, it provides a method to set the weight.
  */
-public interface Shippable {
-    /**
-     * Gets the name of the product.
-     *
-     * @return the name of the product
-     */
-    String getName();
-
-    /**
-     * Gets the weight of the product.
-     *
-     * @return the weight of the product
-     */
-    double getWeight();
-
+public interface Shippable extends ShippableItem {
     /**
      * Sets the weight of the product.
      *
@@ -0,0 +1,21 @@
+package entity.product;
+
+/**
+ * Read-only view of an item that can be shipped, e.g. a line of a shipping notice or parcel.
+ * It provides methods to get the name and weight of the item.
+ */
+public interface ShippableItem {
+    /**
+     * Gets the name of the item.
+     *
+     * @return the name of the item
+     */
+    String getName();
+
+    /**
+     * Gets the weight of the item.
+     *
+     * @return the weight of the item
+     */
+    double getWeight();
+}
@@ -21,6 +21,22 @@ public class ShippableProduct extends Product implements Shippable{
         setWeight(weight);
     }
 
+    /**
+     * Constructs a ShippableProduct with a known SKU, e.g. when restoring it from a snapshot.
+     *
+     * @param sku      the SKU of the product
+     * @param name     the name of the product
+     * @param price    the price of the product
+     * @param quantity the quantity of the product
+     * @param weight   the weight of the product
+     * @throws IllegalArgumentException if the SKU is not positive or weight is less than or equal to zero
+     * @see Product#Product(long, String, double, int)
+     */
+    public ShippableProduct(long sku, String name, double price, int quantity, double weight) {
+        super(sku, name, price, quantity);
+        setWeight(weight);
+    }
+
     /**
      * Returns the weight of the product.
      *
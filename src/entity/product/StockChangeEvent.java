@@ -0,0 +1,20 @@
+package entity.product;
+
+/**
+ * Describes a single change to a product's stock quantity.
+ *
+ * @param product          the product whose stock changed
+ * @param previousQuantity the quantity before the change
+ * @param newQuantity      the quantity after the change
+ * @param reason           the reason for the change
+ */
+public record StockChangeEvent(Product product, int previousQuantity, int newQuantity, StockChangeReason reason) {
+    /**
+     * Returns the signed difference between the new and previous quantity.
+     *
+     * @return the quantity delta
+     */
+    public int delta() {
+        return newQuantity - previousQuantity;
+    }
+}
@@ -0,0 +1,16 @@
+package entity.product;
+
+/**
+ * Listener notified whenever a product's stock quantity changes.
+ */
+@FunctionalInterface
+public interface StockChangeListener {
+    /**
+     * Called after a product's stock quantity has changed.
+     * The call is made while the product's monitor is held, so implementations should be quick
+     * and must not block.
+     *
+     * @param event the stock change
+     */
+    void onStockChanged(StockChangeEvent event);
+}
@@ -0,0 +1,21 @@
+package entity.product;
+
+/**
+ * The reason a product's stock quantity changed.
+ */
+public enum StockChangeReason {
+    /**
+     * The quantity was set directly through {@link Product#setQuantity(int)}.
+     */
+    MANUAL,
+
+    /**
+     * Stock was sold through a checkout.
+     */
+    SALE,
+
+    /**
+     * Stock was changed by an inventory adjustment (receipt, write-off or return).
+     */
+    ADJUSTMENT
+}
@@ -0,0 +1,63 @@
+package entity.product;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Global registry of {@link StockChangeListener}s.
+ * Products publish every quantity change here; when no listener is registered, publishing costs
+ * a single volatile read.
+ */
+public final class StockEvents {
+    private static final List<StockChangeListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private StockEvents() {
+    }
+
+    /**
+     * Registers a listener for stock changes.
+     *
+     * @param listener the listener to add
+     * @throws IllegalArgumentException if the listener is null
+     */
+    public static void addListener(StockChangeListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null.");
+        }
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Unregisters a previously registered listener.
+     *
+     * @param listener the listener to remove
+     */
+    public static void removeListener(StockChangeListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Notifies all registered listeners of a stock change.
+     * Changes that leave the quantity unchanged are not published.
+     * The change has already been made when listeners are notified, so a listener that throws is reported
+     * and skipped rather than failing the change or the listeners after it.
+     *
+     * @param product          the product whose stock changed
+     * @param previousQuantity the quantity before the change
+     * @param newQuantity      the quantity after the change
+     * @param reason           the reason for the change
+     */
+    static void fire(Product product, int previousQuantity, int newQuantity, StockChangeReason reason) {
+        if (LISTENERS.isEmpty() || previousQuantity == newQuantity) {
+            return;
+        }
+        StockChangeEvent event = new StockChangeEvent(product, previousQuantity, newQuantity, reason);
+        for (StockChangeListener listener : LISTENERS) {
+            try {
+                listener.onStockChanged(event);
+            } catch (RuntimeException e) {
+                System.err.println("Stock listener failed for product " + product.getName() + ": " + e);
+            }
+        }
+    }
+}
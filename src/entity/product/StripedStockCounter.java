@@ -0,0 +1,196 @@
+package entity.product;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A stock counter split across several padded stripes, used for products in flash-sale mode.
+ * Each thread decrements its own home stripe, so concurrent buyers of the same product rarely contend
+ * on the same memory. When a home stripe runs dry, units are pulled from the other stripes, taking half
+ * of each stripe visited so the home stripe is refilled for the following takes.
+ * The sum of all stripes is always the remaining stock and a take only succeeds after it has removed
+ * all requested units, so the product is never oversold. A take close to zero stock may fail while
+ * another thread is briefly holding units it is about to give back.
+ */
+public final class StripedStockCounter {
+    // 16 ints = 64 bytes, so each stripe sits on its own cache line
+    private static final int PADDING = 16;
+    private static final int MAX_STRIPES = 1 << 12;
+
+    private final AtomicIntegerArray cells;
+    private final int mask;
+    private volatile boolean discarded;
+
+    /**
+     * Constructs a StripedStockCounter holding the given stock.
+     *
+     * @param stripes  the requested number of stripes; rounded up to a power of two and capped at 4096
+     * @param quantity the initial stock, spread evenly across the stripes
+     * @throws IllegalArgumentException if stripes is not positive or quantity is negative
+     */
+    public StripedStockCounter(int stripes, int quantity) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripes must be greater than zero.");
+        }
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative.");
+        }
+        int capped = Math.min(stripes, MAX_STRIPES);
+        int size = capped == 1 ? 1 : Integer.highestOneBit(capped - 1) << 1;
+        this.cells = new AtomicIntegerArray(size * PADDING);
+        this.mask = size - 1;
+        distribute(quantity);
+    }
+
+    /**
+     * Gets the number of stripes.
+     *
+     * @return the number of stripes
+     */
+    public int getStripes() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the total stock across all stripes.
+     * The value is exact when no take or add is in progress.
+     *
+     * @return the remaining stock
+     */
+    public int sum() {
+        int total = 0;
+        for (int i = 0; i <= mask; i++) {
+            total += cells.get(i * PADDING);
+        }
+        return total;
+    }
+
+    /**
+     * Adds stock to the calling thread's home stripe.
+     *
+     * @param quantity the number of units to add
+     * @throws IllegalArgumentException if quantity is negative
+     */
+    public void add(int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative.");
+        }
+        cells.getAndAdd(home() * PADDING, quantity);
+    }
+
+    /**
+     * Removes stock, taking it from the calling thread's home stripe first.
+     *
+     * @param quantity the number of units to remove
+     * @return true if all units were removed, false if not enough stock was available (nothing is removed)
+     * @throws IllegalArgumentException if quantity is negative
+     */
+    public boolean tryTake(int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative.");
+        }
+        if (quantity == 0) {
+            return true;
+        }
+        int home = home();
+        int index = home * PADDING;
+        int current = cells.get(index);
+        while (current >= quantity) {
+            if (cells.compareAndSet(index, current, current - quantity)) {
+                return true;
+            }
+            current = cells.get(index);
+        }
+        return takeAcrossStripes(home, quantity);
+    }
+
+    /**
+     * Removes all stock and returns the amount removed.
+     *
+     * @return the stock that was held
+     */
+    public int drain() {
+        int total = 0;
+        for (int i = 0; i <= mask; i++) {
+            total += cells.getAndSet(i * PADDING, 0);
+        }
+        return total;
+    }
+
+    /**
+     * Marks the counter as replaced by a new one holding a fresh stock level. Units a take in progress
+     * hands back to it afterwards are no longer stock and must not be recovered.
+     */
+    public void discard() {
+        discarded = true;
+    }
+
+    /**
+     * Checks whether the counter was replaced by a new stock level.
+     *
+     * @return true if {@link #discard()} was called, false otherwise
+     */
+    public boolean isDiscarded() {
+        return discarded;
+    }
+
+    /**
+     * Slow path of {@link #tryTake(int)}: collects units from every stripe, starting at the home stripe.
+     * From stripes other than home, up to half of the stripe is taken even if fewer units are needed,
+     * and the surplus is parked on the home stripe for later takes.
+     *
+     * @param home     the calling thread's home stripe
+     * @param quantity the number of units to remove
+     * @return true if all units were removed, false if they were not (collected units are returned)
+     */
+    private boolean takeAcrossStripes(int home, int quantity) {
+        int collected = 0;
+        for (int i = 0; i <= mask && collected < quantity; i++) {
+            int index = ((home + i) & mask) * PADDING;
+            int current = cells.get(index);
+            while (current > 0) {
+                int needed = quantity - collected;
+                int take = i == 0 ? Math.min(current, needed) : Math.min(current, Math.max(needed, current / 2));
+                if (cells.compareAndSet(index, current, current - take)) {
+                    collected += take;
+                    break;
+                }
+                current = cells.get(index);
+            }
+        }
+        if (collected > quantity) {
+            cells.getAndAdd(home * PADDING, collected - quantity);
+            return true;
+        }
+        if (collected == quantity) {
+            return true;
+        }
+        if (collected > 0) {
+            cells.getAndAdd(home * PADDING, collected);
+        }
+        return false;
+    }
+
+    /**
+     * Spreads a quantity evenly across the stripes, giving the remainder to the first stripes.
+     *
+     * @param quantity the quantity to spread
+     */
+    private void distribute(int quantity) {
+        int stripes = mask + 1;
+        int share = quantity / stripes;
+        int remainder = quantity % stripes;
+        for (int i = 0; i < stripes; i++) {
+            cells.getAndAdd(i * PADDING, share + (i < remainder ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns the calling thread's home stripe.
+     *
+     * @return the index of the home stripe
+     */
+    private int home() {
+        int hash = System.identityHashCode(Thread.currentThread()) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
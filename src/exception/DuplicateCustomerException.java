@@ -0,0 +1,7 @@
+package exception;
+
+public class DuplicateCustomerException extends RuntimeException {
+    public DuplicateCustomerException(String message) {
+        super(message);
+    }
+}
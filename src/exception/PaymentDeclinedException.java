@@ -0,0 +1,7 @@
+package exception;
+
+public class PaymentDeclinedException extends RuntimeException {
+    public PaymentDeclinedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,36 @@
+package monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event recorded for every cart mutation (add, remove, update, clear).
+ * Disabled events cost a single check; enable and tune it in a JFR settings file with
+ * {@code ecommerce.CartMutation#enabled=true} and {@code ecommerce.CartMutation#threshold=...}.
+ */
+@Name("ecommerce.CartMutation")
+@Label("Cart Mutation")
+@Description("A product was added to, removed from or updated in a cart, or a cart was cleared")
+@Category({"E-commerce", "Cart"})
+@StackTrace(false)
+@Threshold("0 ms")
+public class CartMutationEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("SKU")
+    public long sku;
+
+    @Label("Product")
+    public String product;
+
+    @Label("Quantity")
+    public int quantity;
+
+    @Label("Cart Total")
+    public double cartTotal;
+}
@@ -0,0 +1,48 @@
+package monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event recorded when a checkout is rejected by validation
+ * (out of stock, expired product, insufficient balance, missing product).
+ */
+@Name("ecommerce.CheckoutFailure")
+@Label("Checkout Failure")
+@Description("A checkout was rejected, with the exception type and the product involved")
+@Category({"E-commerce", "Checkout"})
+@StackTrace(false)
+public class CheckoutFailureEvent extends jdk.jfr.Event {
+    @Label("Exception Type")
+    public String exceptionType;
+
+    @Label("Message")
+    public String message;
+
+    @Label("SKU")
+    public long sku;
+
+    @Label("Product")
+    public String product;
+
+    /**
+     * Records a checkout failure if the event is enabled.
+     *
+     * @param exception the exception rejecting the checkout
+     * @param sku       the SKU of the product involved, or 0 if no single product is involved
+     * @param product   the name of the product involved, or null
+     */
+    public static void emit(RuntimeException exception, long sku, String product) {
+        CheckoutFailureEvent event = new CheckoutFailureEvent();
+        if (event.shouldCommit()) {
+            event.exceptionType = exception.getClass().getName();
+            event.message = exception.getMessage();
+            event.sku = sku;
+            event.product = product;
+            event.commit();
+        }
+    }
+}
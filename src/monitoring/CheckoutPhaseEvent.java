@@ -0,0 +1,33 @@
+package monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event recorded for each phase of a checkout (validate, price, pay, commit inventory, ship, notify).
+ * The default threshold keeps only phases slower than one millisecond; lower it with
+ * {@code ecommerce.CheckoutPhase#threshold=0 ms} to see every phase.
+ */
+@Name("ecommerce.CheckoutPhase")
+@Label("Checkout Phase")
+@Description("One phase of a checkout, with its outcome")
+@Category({"E-commerce", "Checkout"})
+@StackTrace(false)
+@Threshold("1 ms")
+public class CheckoutPhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    public String phase;
+
+    @Label("Customer")
+    public String customer;
+
+    @Label("Lines")
+    public int lines;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
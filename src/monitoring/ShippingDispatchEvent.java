@@ -0,0 +1,31 @@
+package monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event recorded when a shipment is dispatched.
+ */
+@Name("ecommerce.ShippingDispatch")
+@Label("Shipping Dispatch")
+@Description("Shippable items of an order were dispatched")
+@Category({"E-commerce", "Shipping"})
+@StackTrace(false)
+@Threshold("0 ms")
+public class ShippingDispatchEvent extends jdk.jfr.Event {
+    @Label("Items")
+    public int items;
+
+    @Label("Units")
+    public int units;
+
+    @Label("Total Weight (kg)")
+    public double totalWeight;
+
+    @Label("Shipping Cost")
+    public double shippingCost;
+}
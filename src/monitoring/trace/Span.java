@@ -0,0 +1,100 @@
+package monitoring.trace;
+
+/**
+ * A timed operation within a trace, started by {@link Tracer} and made the current span of its thread
+ * until it is closed. Spans of unsampled traces record nothing; they only keep the trace's context current
+ * so that nested operations are not sampled on their own.
+ * A span must be closed on the thread that started it, typically with try-with-resources.
+ */
+public final class Span implements AutoCloseable {
+    /**
+     * A span that records nothing and leaves the current context unchanged.
+     */
+    static final Span NOOP = new Span(null, 0, null, null, 0);
+
+    /**
+     * The context shared by every unsampled trace.
+     */
+    static final TraceContext UNSAMPLED = new TraceContext(0, 0, false);
+
+    /**
+     * The root span of an unsampled trace started on a thread with no current context; closing it clears the context.
+     */
+    static final Span UNSAMPLED_ROOT = new Span(UNSAMPLED, 0, null, null, 0);
+
+    private final TraceContext context;
+    private final long parentSpanId;
+    private final String name;
+    private final TraceContext previous;
+    private final long startNanos;
+    private boolean closed;
+
+    /**
+     * Constructs a Span.
+     *
+     * @param context      the context of the span
+     * @param parentSpanId the id of the parent span, or 0 for a root span
+     * @param name         the name of the operation
+     * @param previous     the context current before the span started, restored when it is closed
+     * @param startNanos   the start time as given by {@link System#nanoTime()}
+     */
+    Span(TraceContext context, long parentSpanId, String name, TraceContext previous, long startNanos) {
+        this.context = context;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.previous = previous;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Gets the context of the span, e.g. to parent work handed to another thread.
+     *
+     * @return the context, or null if tracing is off or the span is nested in an unsampled trace
+     */
+    public TraceContext getContext() {
+        return context;
+    }
+
+    /**
+     * Ends the span, records it if its trace is sampled and restores the context that was current before it started.
+     * Closing a span more than once has no effect.
+     */
+    @Override
+    public void close() {
+        if (this == NOOP || closed) {
+            return;
+        }
+        if (context.sampled()) {
+            closed = true;
+            Tracer.record(this, System.nanoTime() - startNanos);
+        }
+        Tracer.restore(previous);
+    }
+
+    /**
+     * Gets the id of the parent span.
+     *
+     * @return the parent span id, or 0 for a root span
+     */
+    long getParentSpanId() {
+        return parentSpanId;
+    }
+
+    /**
+     * Gets the name of the operation.
+     *
+     * @return the name
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the start time of the span.
+     *
+     * @return the start time as given by {@link System#nanoTime()}
+     */
+    long getStartNanos() {
+        return startNanos;
+    }
+}
@@ -0,0 +1,17 @@
+package monitoring.trace;
+
+/**
+ * A finished span as recorded in a {@link TraceBuffer}.
+ *
+ * @param traceId       the id of the trace the span belongs to
+ * @param spanId        the id of the span
+ * @param parentSpanId  the id of the parent span, or 0 for the root span of a trace
+ * @param name          the name of the operation
+ * @param threadId      the id of the thread the span ran on
+ * @param threadName    the name of the thread the span ran on
+ * @param startMicros   the start time in microseconds since the epoch
+ * @param durationNanos the duration in nanoseconds
+ */
+public record SpanRecord(long traceId, long spanId, long parentSpanId, String name, long threadId, String threadName,
+                         long startMicros, long durationNanos) {
+}
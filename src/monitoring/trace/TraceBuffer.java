@@ -0,0 +1,180 @@
+package monitoring.trace;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed-size ring buffer of finished spans. Recording a span is one atomic increment and one array
+ * store, never blocks and never allocates beyond the record itself; once the buffer is full, the oldest
+ * spans are overwritten. The buffer can be written out in the Chrome trace event format, which
+ * chrome://tracing and Perfetto open directly.
+ */
+public class TraceBuffer {
+    private final AtomicReferenceArray<SpanRecord> slots;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Constructs a TraceBuffer.
+     *
+     * @param capacity the number of spans kept, rounded up to a power of two
+     * @throws IllegalArgumentException if the capacity is not positive or exceeds 2^30
+     */
+    public TraceBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30.");
+        }
+        int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Records a finished span, overwriting the oldest span if the buffer is full.
+     *
+     * @param span the finished span
+     */
+    void record(SpanRecord span) {
+        slots.set((int) (sequence.getAndIncrement() & mask), span);
+    }
+
+    /**
+     * Gets the number of spans the buffer holds at most.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    /**
+     * Gets the number of spans recorded since the buffer was created.
+     *
+     * @return the number of recorded spans
+     */
+    public long getRecordedCount() {
+        return sequence.get();
+    }
+
+    /**
+     * Gets the number of spans overwritten because the buffer was full.
+     *
+     * @return the number of overwritten spans
+     */
+    public long getOverwrittenCount() {
+        return Math.max(0, sequence.get() - slots.length());
+    }
+
+    /**
+     * Copies the spans currently held, in start order.
+     * Spans recorded while copying may or may not be included.
+     *
+     * @return the spans
+     */
+    public List<SpanRecord> snapshot() {
+        List<SpanRecord> spans = new ArrayList<>();
+        for (int i = 0; i < slots.length(); i++) {
+            SpanRecord span = slots.get(i);
+            if (span != null) {
+                spans.add(span);
+            }
+        }
+        spans.sort(Comparator.comparingLong(SpanRecord::startMicros));
+        return spans;
+    }
+
+    /**
+     * Writes the spans currently held to a file in the Chrome trace event format, replacing the file atomically.
+     * Each span becomes a complete ("X") event on its thread, with its trace, span and parent ids as arguments.
+     *
+     * @param file the file to write
+     * @throws IllegalArgumentException if the file is null
+     * @throws IOException if the file cannot be written
+     */
+    public void writeChromeTrace(Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null.");
+        }
+        List<SpanRecord> spans = snapshot();
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+                Map<Long, String> threads = new HashMap<>();
+                boolean first = true;
+                for (SpanRecord span : spans) {
+                    threads.putIfAbsent(span.threadId(), span.threadName());
+                    if (!first) {
+                        out.write(',');
+                    }
+                    first = false;
+                    writeEvent(out, span);
+                }
+                for (Map.Entry<Long, String> thread : threads.entrySet()) {
+                    out.write(first ? "\n" : ",\n");
+                    first = false;
+                    out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.getKey()
+                            + ",\"args\":{\"name\":" + quote(thread.getValue()) + "}}");
+                }
+                out.write("\n]}\n");
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Writes one span as a complete event. The part of the name before the first dot becomes its category.
+     *
+     * @param out  the writer
+     * @param span the span
+     * @throws IOException if writing fails
+     */
+    private static void writeEvent(Writer out, SpanRecord span) throws IOException {
+        int dot = span.name().indexOf('.');
+        String category = dot > 0 ? span.name().substring(0, dot) : span.name();
+        out.write("\n{\"name\":" + quote(span.name())
+                + ",\"cat\":" + quote(category)
+                + ",\"ph\":\"X\",\"pid\":1,\"tid\":" + span.threadId()
+                + ",\"ts\":" + span.startMicros()
+                + ",\"dur\":" + String.format(Locale.ROOT, "%.3f", span.durationNanos() / 1000.0)
+                + ",\"args\":{\"traceId\":\"" + Long.toHexString(span.traceId())
+                + "\",\"spanId\":\"" + Long.toHexString(span.spanId())
+                + "\",\"parentId\":\"" + Long.toHexString(span.parentSpanId()) + "\"}}");
+    }
+
+    /**
+     * Quotes a string as a JSON string literal.
+     *
+     * @param value the string
+     * @return the JSON string literal
+     */
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,13 @@
+package monitoring.trace;
+
+/**
+ * The identity of the current span within its trace, carried across threads to parent the spans of
+ * asynchronous work. Contexts of unsampled traces are propagated too, so their child spans are not
+ * recorded either and do not start traces of their own.
+ *
+ * @param traceId the id of the trace
+ * @param spanId  the id of the span
+ * @param sampled whether the trace is recorded
+ */
+public record TraceContext(long traceId, long spanId, boolean sampled) {
+}
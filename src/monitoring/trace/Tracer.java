@@ -0,0 +1,232 @@
+package monitoring.trace;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The Tracer starts spans and keeps track of the current span of each thread.
+ * Tracing is off until a {@link TraceBuffer} is set; then a configurable fraction of traces is sampled when
+ * their root span starts, and every span of a sampled trace is recorded into the buffer. Unsampled traces
+ * cost a thread-local lookup and a random draw per span, so a low sampling rate keeps the overhead well
+ * below one percent of a checkout.
+ * The current context is kept in a thread-local. Work handed to another thread carries its context along,
+ * either by starting its spans with {@link #startSpan(String, TraceContext)} or through {@link #wrap(Runnable)}.
+ * Code that does not need the span itself runs in one through {@link #run(String, Runnable)} or
+ * {@link #call(String, Supplier)}.
+ */
+public final class Tracer {
+    private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+    private static final long EPOCH_MICROS = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    private static final long EPOCH_NANOS = System.nanoTime();
+
+    private static volatile TraceBuffer buffer;
+    private static volatile double samplingRate = 0.01;
+
+    private Tracer() {
+    }
+
+    /**
+     * Sets the buffer spans are recorded into.
+     *
+     * @param traceBuffer the buffer, or null to turn tracing off
+     */
+    public static void setBuffer(TraceBuffer traceBuffer) {
+        buffer = traceBuffer;
+    }
+
+    /**
+     * Gets the buffer spans are recorded into.
+     *
+     * @return the buffer, or null if tracing is off
+     */
+    public static TraceBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Sets the fraction of traces that are recorded. Defaults to 1%.
+     *
+     * @param rate the sampling rate, from 0 (none) to 1 (every trace)
+     * @throws IllegalArgumentException if the rate is not between 0 and 1
+     */
+    public static void setSamplingRate(double rate) {
+        if (!(rate >= 0.0 && rate <= 1.0)) {
+            throw new IllegalArgumentException("Sampling rate must be between 0 and 1.");
+        }
+        samplingRate = rate;
+    }
+
+    /**
+     * Gets the context of the current thread's span.
+     *
+     * @return the current context, or null if no span is open on this thread
+     */
+    public static TraceContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Starts a span as a child of the current thread's span, or as the root of a new trace if there is none.
+     *
+     * @param name the name of the operation, e.g. "cart.add"; the part before the first dot is its category
+     * @return the span, to be closed when the operation ends
+     */
+    public static Span startSpan(String name) {
+        return buffer == null ? Span.NOOP : start(name, CURRENT.get());
+    }
+
+    /**
+     * Starts a span as a child of the given context, e.g. one captured before the work was handed to this thread.
+     *
+     * @param name   the name of the operation
+     * @param parent the context of the parent span, or null to start a new trace
+     * @return the span, to be closed when the operation ends
+     */
+    public static Span startSpan(String name, TraceContext parent) {
+        return buffer == null ? Span.NOOP : start(name, parent);
+    }
+
+    /**
+     * Runs a task in a span that is a child of the current thread's span.
+     *
+     * @param name the name of the operation
+     * @param task the task
+     */
+    public static void run(String name, Runnable task) {
+        Span span = startSpan(name);
+        try {
+            task.run();
+        } finally {
+            span.close();
+        }
+    }
+
+    /**
+     * Runs a task in a span that is a child of the given context.
+     *
+     * @param name   the name of the operation
+     * @param parent the context of the parent span, or null to start a new trace
+     * @param task   the task
+     */
+    public static void run(String name, TraceContext parent, Runnable task) {
+        Span span = startSpan(name, parent);
+        try {
+            task.run();
+        } finally {
+            span.close();
+        }
+    }
+
+    /**
+     * Runs a task that returns a value in a span that is a child of the current thread's span.
+     *
+     * @param name the name of the operation
+     * @param task the task
+     * @param <T>  the type of the value
+     * @return the value returned by the task
+     */
+    public static <T> T call(String name, Supplier<T> task) {
+        Span span = startSpan(name);
+        try {
+            return task.get();
+        } finally {
+            span.close();
+        }
+    }
+
+    /**
+     * Runs a task that returns a value in a span that is a child of the given context.
+     *
+     * @param name   the name of the operation
+     * @param parent the context of the parent span, or null to start a new trace
+     * @param task   the task
+     * @param <T>    the type of the value
+     * @return the value returned by the task
+     */
+    public static <T> T call(String name, TraceContext parent, Supplier<T> task) {
+        Span span = startSpan(name, parent);
+        try {
+            return task.get();
+        } finally {
+            span.close();
+        }
+    }
+
+    /**
+     * Wraps a task so that it runs with the current thread's context, wherever it is executed.
+     *
+     * @param task the task
+     * @return the wrapped task, or the task itself if there is no context to carry
+     */
+    public static Runnable wrap(Runnable task) {
+        TraceContext context = CURRENT.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            TraceContext previous = CURRENT.get();
+            CURRENT.set(context);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Starts a span under a parent context, deciding whether to sample it if it is the root of a trace.
+     *
+     * @param name   the name of the operation
+     * @param parent the parent context, or null for a root span
+     * @return the span
+     */
+    private static Span start(String name, TraceContext parent) {
+        TraceContext previous = CURRENT.get();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean sampled = parent == null ? random.nextDouble() < samplingRate : parent.sampled();
+        if (!sampled) {
+            if (previous != null && !previous.sampled()) {
+                // Nested in an unsampled trace that is already current; nothing to record or restore
+                return Span.NOOP;
+            }
+            CURRENT.set(Span.UNSAMPLED);
+            return previous == null ? Span.UNSAMPLED_ROOT : new Span(Span.UNSAMPLED, 0, name, previous, 0);
+        }
+        TraceContext context = new TraceContext(parent == null ? random.nextLong() : parent.traceId(), random.nextLong(), true);
+        CURRENT.set(context);
+        return new Span(context, parent == null ? 0 : parent.spanId(), name, previous, System.nanoTime());
+    }
+
+    /**
+     * Records a finished span into the buffer, if tracing is still on.
+     *
+     * @param span          the finished span
+     * @param durationNanos the duration of the span
+     */
+    static void record(Span span, long durationNanos) {
+        TraceBuffer traceBuffer = buffer;
+        if (traceBuffer == null) {
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        long startMicros = EPOCH_MICROS + (span.getStartNanos() - EPOCH_NANOS) / 1000;
+        TraceContext context = span.getContext();
+        traceBuffer.record(new SpanRecord(context.traceId(), context.spanId(), span.getParentSpanId(), span.getName(),
+                thread.getId(), thread.getName(), startMicros, durationNanos));
+    }
+
+    /**
+     * Makes a context current again.
+     *
+     * @param previous the context to restore, or null to clear the current context
+     */
+    static void restore(TraceContext previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package service;
+
+import entity.Customer;
+import monitoring.trace.Tracer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The CheckoutEngine runs checkouts with a single writer thread applying every balance and stock change,
+ * in the style of the LMAX Disruptor.
+ * Submitting threads validate and price their own orders, since that only reads shared state, then claim
+ * the next slot of a preallocated ring buffer with a sequence counter and publish the priced order into it.
+ * The writer consumes published commands in sequence, in batches, and takes the payment and the stock of
+ * each order. Printing the shipment is handed to a notifier thread, which then publishes the order back
+ * into the ring to be settled, or compensated if shipping failed; the writer captures the payment, clears
+ * the cart and saves the stock, and the notifier finally announces the result. Every change an order makes
+ * is thus made by the writer, while the notifier only prints and publishes events.
+ * While all checkouts go through the engine, product stock and customer balances are only ever changed
+ * by the writer, so their locks are never contended and latency stays flat at high order rates.
+ * With a payment gateway configured, the writer waits for each authorization, so the engine is meant
+ * for checkouts that debit the customer's balance directly.
+ */
+public class CheckoutEngine implements AutoCloseable {
+    private static final int SPINS_BEFORE_PARKING = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong(-1);
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicInteger shipping = new AtomicInteger();
+    private final Thread writer;
+    private final ExecutorService notifier;
+    private volatile boolean writerParked;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a CheckoutEngine and starts its writer thread.
+     *
+     * @param bufferSize the number of slots in the ring buffer, a power of two
+     * @throws IllegalArgumentException if the buffer size is not a positive power of two
+     */
+    public CheckoutEngine(int bufferSize) {
+        if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Buffer size must be a positive power of two.");
+        }
+        this.slots = new Slot[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = bufferSize - 1;
+        this.notifier = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkout-engine-notifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer = new Thread(this::write, "checkout-engine-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Submits a checkout. The order is validated and priced on the calling thread, then queued for the writer;
+     * if the ring buffer is full, the call waits for the writer to free a slot.
+     *
+     * @param customer the customer who is checking out
+     * @return a future completed with the result of the checkout, or with the exception that failed it
+     * @throws IllegalArgumentException if the customer is null
+     * @throws IllegalStateException if the engine is closed
+     */
+    public CompletableFuture<CheckoutResult> submit(Customer customer) {
+        if (customer == null) {
+            throw new IllegalArgumentException("Customer cannot be null.");
+        }
+        if (!running) {
+            throw new IllegalStateException("Checkout engine is closed.");
+        }
+        CompletableFuture<CheckoutResult> future = new CompletableFuture<>();
+        CheckoutOrder order;
+        try {
+            order = Tracer.call("checkout.submit", () -> {
+                CheckoutOrder opened = CheckoutService.open(customer);
+                try {
+                    CheckoutService.runPhase(CheckoutStage.VALIDATE, opened, CheckoutService::validate);
+                    CheckoutService.runPhase(CheckoutStage.PRICE, opened, CheckoutService::price);
+                } catch (RuntimeException e) {
+                    // Nothing has been taken yet, so there is nothing to compensate
+                    opened.close();
+                    CheckoutService.publishFailure(customer, e);
+                    future.completeExceptionally(e);
+                    return null;
+                }
+                return opened;
+            });
+        } catch (RuntimeException e) {
+            // The cart was empty
+            CheckoutService.publishFailure(customer, e);
+            future.completeExceptionally(e);
+            return future;
+        }
+        if (order != null) {
+            publish(Command.APPLY, order, future, null);
+        }
+        return future;
+    }
+
+    /**
+     * Gets the number of commands the writer has consumed: one per submitted order, plus one to settle or
+     * compensate each order that was handed over for shipping.
+     *
+     * @return the number of consumed commands
+     */
+    public long getProcessedCount() {
+        return consumed.get() + 1;
+    }
+
+    /**
+     * Gets the average number of commands the writer consumed per batch.
+     *
+     * @return the average batch size, or 0 if nothing was consumed
+     */
+    public double getAverageBatchSize() {
+        long batches = batchCount.get();
+        return batches == 0 ? 0.0 : (double) getProcessedCount() / batches;
+    }
+
+    /**
+     * Gets the number of commands published but not yet consumed by the writer.
+     *
+     * @return the number of pending commands
+     */
+    public int getPendingCount() {
+        return (int) (claimed.get() - 1 - consumed.get());
+    }
+
+    /**
+     * Stops accepting checkouts and waits until the writer and notifier have finished every order already submitted.
+     * Checkouts must not be submitted concurrently with closing the engine.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+            notifier.shutdown();
+            notifier.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Claims the next slot, waiting while the ring buffer is full, and publishes a command into it.
+     *
+     * @param command what the writer is to do with the order
+     * @param order   the order
+     * @param future  the future to complete with the order's result
+     * @param cause   the exception that failed the order, for {@link Command#FAIL}
+     */
+    private void publish(Command command, CheckoutOrder order, CompletableFuture<CheckoutResult> future, RuntimeException cause) {
+        long sequence = claimed.getAndIncrement();
+        int spins = 0;
+        // The slot is free once the writer has consumed the order one lap behind it
+        while (sequence - slots.length > consumed.get()) {
+            spins = idle(spins);
+        }
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.command = command;
+        slot.order = order;
+        slot.future = future;
+        slot.cause = cause;
+        slot.sequence = sequence;
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * The writer loop: consumes every command published after the last consumed one, in sequence, then
+     * marks the batch consumed at once. Runs until the engine is closed, no order is still being shipped
+     * and every claimed slot is consumed.
+     */
+    private void write() {
+        long next = 0;
+        int spins = 0;
+        // An order being shipped publishes its next command before it stops counting, so once none are
+        // counted every command they will publish has been claimed
+        while (running || shipping.get() > 0 || next < claimed.get()) {
+            long available = next - 1;
+            while (slots[(int) ((available + 1) & mask)].sequence == available + 1) {
+                available++;
+            }
+            if (available < next) {
+                if (spins < SPINS_BEFORE_PARKING) {
+                    spins = idle(spins);
+                } else {
+                    park(next);
+                }
+                continue;
+            }
+            spins = 0;
+            for (long sequence = next; sequence <= available; sequence++) {
+                Slot slot = slots[(int) (sequence & mask)];
+                Command command = slot.command;
+                CheckoutOrder order = slot.order;
+                CompletableFuture<CheckoutResult> future = slot.future;
+                RuntimeException cause = slot.cause;
+                slot.command = null;
+                slot.order = null;
+                slot.future = null;
+                slot.cause = null;
+                switch (command) {
+                    case APPLY -> apply(order, future);
+                    case SETTLE -> settle(order, future);
+                    case FAIL -> fail(order, future, cause);
+                }
+            }
+            consumed.set(available);
+            batchCount.incrementAndGet();
+            next = available + 1;
+        }
+    }
+
+    /**
+     * Takes the payment and stock of an order on the writer thread, then hands it over for shipping.
+     *
+     * @param order  the priced order
+     * @param future the future to complete with the order's result
+     */
+    private void apply(CheckoutOrder order, CompletableFuture<CheckoutResult> future) {
+        try {
+            CheckoutService.runPhase(CheckoutStage.PAY, order, CheckoutService::pay);
+            CheckoutService.runPhase(CheckoutStage.COMMIT_INVENTORY, order, CheckoutService::commitInventory);
+        } catch (RuntimeException e) {
+            fail(order, future, e);
+            return;
+        }
+        shipping.incrementAndGet();
+        try {
+            notifier.execute(() -> ship(order, future));
+        } catch (RejectedExecutionException e) {
+            shipping.decrementAndGet();
+            fail(order, future, e);
+        }
+    }
+
+    /**
+     * Prints the shipment of an order on the notifier thread, then publishes it back to the writer to be
+     * settled, or to be compensated if shipping failed.
+     *
+     * @param order  the paid order
+     * @param future the future to complete with the order's result
+     */
+    private void ship(CheckoutOrder order, CompletableFuture<CheckoutResult> future) {
+        try {
+            CheckoutService.runPhase(CheckoutStage.SHIP, order, CheckoutService::ship);
+            publish(Command.SETTLE, order, future, null);
+        } catch (RuntimeException e) {
+            publish(Command.FAIL, order, future, e);
+        } finally {
+            shipping.decrementAndGet();
+        }
+    }
+
+    /**
+     * Settles a shipped order on the writer thread, then hands it back to the notifier to announce the result.
+     *
+     * @param order  the shipped order
+     * @param future the future to complete with the order's result
+     */
+    private void settle(CheckoutOrder order, CompletableFuture<CheckoutResult> future) {
+        try {
+            CheckoutService.runPhase(CheckoutStage.NOTIFY, order, CheckoutService::settle);
+        } catch (RuntimeException e) {
+            fail(order, future, e);
+            return;
+        }
+        order.close();
+        Runnable announcement = () -> {
+            try {
+                CheckoutService.announce(order);
+            } finally {
+                future.complete(order.result);
+            }
+        };
+        try {
+            notifier.execute(announcement);
+        } catch (RejectedExecutionException e) {
+            // Only while closing; the order is settled, so it is still announced
+            announcement.run();
+        }
+    }
+
+    /**
+     * Parks the writer until a producer publishes the next order or the engine is closed.
+     * The flag is raised before the final check, so a producer publishing concurrently either is seen by
+     * the check or sees the flag and unparks the writer.
+     *
+     * @param next the sequence the writer is waiting for
+     */
+    private void park(long next) {
+        writerParked = true;
+        if (slots[(int) (next & mask)].sequence != next && running) {
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+        writerParked = false;
+    }
+
+    /**
+     * Waits briefly, spinning at first and then yielding the processor.
+     *
+     * @param spins the number of times the caller has waited so far
+     * @return the updated number of waits
+     */
+    private static int idle(int spins) {
+        if (spins < 10) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+        return spins + 1;
+    }
+
+    /**
+     * Fails an order on the writer thread: puts back its stock and refunds its payment if they were taken,
+     * releases its catalog pin, publishes the failure and completes its future.
+     *
+     * @param order  the failed order
+     * @param future the order's future
+     * @param cause  the exception that failed it
+     */
+    private static void fail(CheckoutOrder order, CompletableFuture<CheckoutResult> future, RuntimeException cause) {
+        CheckoutService.compensate(order);
+        order.close();
+        CheckoutService.publishFailure(order.customer, cause);
+        future.completeExceptionally(cause);
+    }
+
+    /**
+     * What the writer is to do with the order in a slot.
+     */
+    private enum Command {
+        /**
+         * Take the payment and stock of a priced order.
+         */
+        APPLY,
+
+        /**
+         * Capture the payment, clear the cart and save the stock of a shipped order.
+         */
+        SETTLE,
+
+        /**
+         * Compensate an order that failed while it was being shipped.
+         */
+        FAIL
+    }
+
+    /**
+     * One slot of the ring buffer. A slot is reused every lap; its sequence is written last, so once the
+     * writer reads the sequence it is waiting for, the command written before it is visible.
+     */
+    private static final class Slot {
+        private Command command;
+        private CheckoutOrder order;
+        private CompletableFuture<CheckoutResult> future;
+        private RuntimeException cause;
+        private volatile long sequence = -1;
+    }
+}
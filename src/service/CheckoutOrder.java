@@ -0,0 +1,80 @@
+package service;
+
+import entity.Cart;
+import entity.Customer;
+import entity.product.Product;
+import entity.product.ShippableItem;
+import monitoring.trace.TraceContext;
+import monitoring.trace.Tracer;
+import service.catalog.CatalogView;
+import service.catalog.ProductSnapshot;
+import service.payment.Authorization;
+import service.payment.PaymentGateway;
+import service.validation.CartLines;
+import service.warehouse.Allocation;
+import service.warehouse.WarehouseNetwork;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The state of one checkout as it moves through the checkout steps.
+ * Each step of {@link CheckoutService} fills in the fields the following steps need. An order is only
+ * ever worked on by one thread at a time; when it is handed between pipeline stages, the stage queues
+ * provide the necessary memory visibility.
+ */
+class CheckoutOrder implements AutoCloseable {
+    final Customer customer;
+    final Cart cart;
+    final Map<Product, Integer> lines;
+    final CatalogView view;
+    final PaymentGateway gateway;
+    final WarehouseNetwork network;
+    final TraceContext trace;
+
+    Map<Product, ProductSnapshot> snapshots;
+    CartLines cartLines;
+    Map<ShippableItem, Integer> shippableItems;
+    Allocation allocation;
+    ShippingService shippingService;
+    double itemsCost;
+    double discount;
+    double shippingFees;
+    double totalCost;
+    boolean paid;
+    Authorization authorization;
+    boolean captured;
+    boolean inventoryCommitted;
+    CheckoutResult result;
+
+    /**
+     * Constructs a CheckoutOrder for a customer's cart, freezing the cart lines being bought.
+     * The order's steps are traced under the span current on the calling thread.
+     *
+     * @param customer The customer who is checking out.
+     * @param view     The pinned catalog view, or null to capture the live products.
+     * @param gateway  The payment gateway, or null to debit the customer's balance directly.
+     * @param network  The warehouse network fulfilling the order, or null to ship it as a single parcel.
+     */
+    CheckoutOrder(Customer customer, CatalogView view, PaymentGateway gateway, WarehouseNetwork network) {
+        this.customer = customer;
+        this.cart = customer.getCart();
+        synchronized (cart) {
+            this.lines = new LinkedHashMap<>(cart.getProducts());
+        }
+        this.view = view;
+        this.gateway = gateway;
+        this.network = network;
+        this.trace = Tracer.current();
+    }
+
+    /**
+     * Releases the pinned catalog version, if any.
+     */
+    @Override
+    public void close() {
+        if (view != null) {
+            view.close();
+        }
+    }
+}
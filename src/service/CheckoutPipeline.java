@@ -0,0 +1,207 @@
+package service;
+
+import entity.Customer;
+import exception.OverloadedException;
+import monitoring.trace.Span;
+import monitoring.trace.TraceContext;
+import monitoring.trace.Tracer;
+import service.pipeline.Stage;
+import service.pipeline.StageConfig;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * The CheckoutPipeline runs checkouts as a staged pipeline instead of on the caller's thread.
+ * Each {@link CheckoutStage} has its own bounded queue and worker pool, so every stage can be sized for its
+ * own cost and queue depths show where the bottleneck is. Workers take orders off their queue in batches,
+ * which saves a hand-off per order, but run the stage's step on each order of a batch in turn.
+ * The stages run the same steps as {@link CheckoutService#checkout(Customer)}; a failure at any stage
+ * puts back the stock and refunds the payment the order had taken so far, and fails the order's future
+ * with the original exception.
+ * A customer should have at most one checkout in the pipeline at a time.
+ */
+public class CheckoutPipeline implements AutoCloseable {
+    private static final StageConfig DEFAULT_CONFIG = new StageConfig(1, 1024, 32);
+
+    private final Map<CheckoutStage, Stage<PipelineOrder>> stages = new EnumMap<>(CheckoutStage.class);
+
+    /**
+     * Constructs and starts a CheckoutPipeline with the default sizing for every stage.
+     */
+    public CheckoutPipeline() {
+        this(Map.of());
+    }
+
+    /**
+     * Constructs and starts a CheckoutPipeline.
+     *
+     * @param configs the sizing of each stage; stages without an entry use one thread, a queue of 1024 and batches of 32
+     * @throws IllegalArgumentException if configs is null
+     */
+    public CheckoutPipeline(Map<CheckoutStage, StageConfig> configs) {
+        if (configs == null) {
+            throw new IllegalArgumentException("Stage configs cannot be null.");
+        }
+        // Stages are created last to first, so each one can hand its orders to the next
+        createStage(configs, CheckoutStage.NOTIFY, order -> {
+            CheckoutService.runPhase(CheckoutStage.NOTIFY, order.order, CheckoutService::complete);
+            order.future.complete(order.order.result);
+        });
+        createStage(configs, CheckoutStage.SHIP, order -> CheckoutService.runPhase(CheckoutStage.SHIP, order.order, CheckoutService::ship));
+        createStage(configs, CheckoutStage.COMMIT_INVENTORY, order -> CheckoutService.runPhase(CheckoutStage.COMMIT_INVENTORY, order.order, CheckoutService::commitInventory));
+        createStage(configs, CheckoutStage.PAY, order -> CheckoutService.runPhase(CheckoutStage.PAY, order.order, CheckoutService::pay));
+        createStage(configs, CheckoutStage.PRICE, order -> CheckoutService.runPhase(CheckoutStage.PRICE, order.order, CheckoutService::price));
+        createStage(configs, CheckoutStage.VALIDATE, order -> {
+            // Opened under the submitter's trace, so every later stage traces the order as part of it
+            order.order = Tracer.call("checkout.open", order.trace, () -> CheckoutService.open(order.customer));
+            CheckoutService.runPhase(CheckoutStage.VALIDATE, order.order, CheckoutService::validate);
+        });
+    }
+
+    /**
+     * Submits a checkout to the pipeline.
+     *
+     * @param customer the customer who is checking out
+     * @return a future completed with the result of the checkout, or with the exception that failed it
+     * @throws OverloadedException if the pipeline's first stage is full
+     */
+    public CompletableFuture<CheckoutResult> submit(Customer customer) {
+        try (Span span = Tracer.startSpan("checkout.submit")) {
+            // A span that records nothing has no context; the order then carries the thread's, e.g. an unsampled trace
+            TraceContext context = span.getContext();
+            PipelineOrder order = new PipelineOrder(customer, context != null ? context : Tracer.current());
+            if (!stages.get(CheckoutStage.VALIDATE).offer(order)) {
+                throw new OverloadedException("Checkout pipeline is full.");
+            }
+            return order.future;
+        }
+    }
+
+    /**
+     * Gets the number of orders waiting in a stage's queue.
+     *
+     * @param stage the stage
+     * @return the current queue depth
+     */
+    public int getQueueDepth(CheckoutStage stage) {
+        return stages.get(stage).getQueueDepth();
+    }
+
+    /**
+     * Gets the highest queue depth a stage has seen.
+     *
+     * @param stage the stage
+     * @return the peak queue depth
+     */
+    public int getPeakQueueDepth(CheckoutStage stage) {
+        return stages.get(stage).getPeakQueueDepth();
+    }
+
+    /**
+     * Gets the number of orders a stage has processed, successfully or not.
+     *
+     * @param stage the stage
+     * @return the number of processed orders
+     */
+    public long getProcessedCount(CheckoutStage stage) {
+        return stages.get(stage).getProcessedCount();
+    }
+
+    /**
+     * Gets the current queue depth of every stage.
+     *
+     * @return the queue depths, in stage order
+     */
+    public Map<CheckoutStage, Integer> getQueueDepths() {
+        Map<CheckoutStage, Integer> depths = new EnumMap<>(CheckoutStage.class);
+        for (var entry : stages.entrySet()) {
+            depths.put(entry.getKey(), entry.getValue().getQueueDepth());
+        }
+        return depths;
+    }
+
+    /**
+     * Stops accepting checkouts and shuts the stages down in order once in-flight orders have drained.
+     */
+    @Override
+    public void close() {
+        for (CheckoutStage stage : CheckoutStage.values()) {
+            stages.get(stage).close();
+        }
+    }
+
+    /**
+     * Creates a stage that runs a step on each order of a batch and forwards successful orders to the next stage.
+     *
+     * @param configs the configured stage sizes
+     * @param stage   the stage to create
+     * @param step    the checkout step run by the stage
+     */
+    private void createStage(Map<CheckoutStage, StageConfig> configs, CheckoutStage stage, Consumer<PipelineOrder> step) {
+        CheckoutStage[] all = CheckoutStage.values();
+        Stage<PipelineOrder> next = stage.ordinal() + 1 < all.length ? stages.get(all[stage.ordinal() + 1]) : null;
+        Consumer<List<PipelineOrder>> handler = batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                PipelineOrder order = batch.get(i);
+                try {
+                    step.accept(order);
+                } catch (RuntimeException e) {
+                    fail(order, e);
+                    continue;
+                }
+                if (next == null) {
+                    order.order.close();
+                    continue;
+                }
+                try {
+                    next.put(order);
+                } catch (IllegalStateException e) {
+                    // The next stage is closed, so no order of the batch can move on
+                    for (int j = i; j < batch.size(); j++) {
+                        fail(batch.get(j), e);
+                    }
+                    return;
+                }
+            }
+        };
+        String name = "checkout-" + stage.name().toLowerCase(Locale.ROOT).replace('_', '-');
+        Consumer<PipelineOrder> rejected = order -> fail(order, new IllegalStateException("Stage " + name + " closed before processing the order."));
+        stages.put(stage, new Stage<>(name, configs.getOrDefault(stage, DEFAULT_CONFIG), handler, rejected));
+    }
+
+    /**
+     * Fails an order: puts back its stock and refunds its payment if they were taken, releases its catalog
+     * pin, publishes the failure and completes its future.
+     *
+     * @param order the failed order
+     * @param cause the exception that failed it
+     */
+    private static void fail(PipelineOrder order, RuntimeException cause) {
+        if (order.order != null) {
+            CheckoutService.compensate(order.order);
+            order.order.close();
+        }
+        CheckoutService.publishFailure(order.customer, cause);
+        order.future.completeExceptionally(cause);
+    }
+
+    /**
+     * An order travelling through the pipeline, together with the future its submitter waits on.
+     */
+    private static final class PipelineOrder {
+        private final Customer customer;
+        private final TraceContext trace;
+        private final CompletableFuture<CheckoutResult> future = new CompletableFuture<>();
+        private CheckoutOrder order;
+
+        private PipelineOrder(Customer customer, TraceContext trace) {
+            this.customer = customer;
+            this.trace = trace;
+        }
+    }
+}
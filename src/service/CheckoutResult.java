@@ -0,0 +1,13 @@
+package service;
+
+/**
+ * The outcome of a successful checkout.
+ *
+ * @param itemsCost        the total cost of the items in the cart, before discounts
+ * @param discount         the total discount from promotions
+ * @param shippingFees     the shipping fees for the shippable items
+ * @param totalCost        the total amount charged to the customer
+ * @param remainingBalance the customer's balance after the payment
+ */
+public record CheckoutResult(double itemsCost, double discount, double shippingFees, double totalCost, double remainingBalance) {
+}
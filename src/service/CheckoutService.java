@@ -2,34 +2,309 @@ package service;
 
 import entity.Cart;
 import entity.Customer;
-import entity.product.Expirable;
 import entity.product.Product;
-import entity.product.Shippable;
+import entity.product.ShippableItem;
+import entity.product.StockChangeReason;
 import exception.EmptyCartException;
 import exception.ExpiredProductException;
 import exception.InsufficientBalanceException;
 import exception.InsufficientQuantityException;
+import exception.OverloadedException;
+import exception.PaymentDeclinedException;
+import exception.ProductNotFoundException;
+import monitoring.CheckoutFailureEvent;
+import monitoring.CheckoutPhaseEvent;
+import monitoring.trace.Tracer;
+import service.admission.AdmissionController;
+import service.catalog.Catalog;
+import service.catalog.CatalogView;
+import service.catalog.ProductSnapshot;
+import service.events.CheckoutCompletedEvent;
+import service.events.CheckoutFailedEvent;
+import service.events.OrderEventPublisher;
+import service.idempotency.IdempotencyCache;
+import service.payment.PaymentGateway;
+import service.promotion.PricingResult;
+import service.promotion.PromotionEngine;
+import service.recommendation.CoOccurrenceIndex;
+import service.replay.WorkloadRecorder;
+import service.repository.ProductRepository;
+import service.shipping.ParcelPacker;
+import service.shipping.ShippingRates;
+import service.validation.CartLines;
+import service.warehouse.Shipment;
+import service.warehouse.WarehouseNetwork;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * The CheckoutService class handles the checkout process for a customer.
  * It validates the customer's cart, calculates shipping costs, and processes the payment.
  */
 public class CheckoutService {
+    /**
+     * Carts with at least this many lines are validated and totaled through the struct-of-arrays {@link CartLines} path.
+     */
+    static final int BULK_VALIDATION_THRESHOLD = 64;
+
+    private static volatile PromotionEngine promotionEngine;
+    private static volatile Catalog catalog;
+    private static volatile PaymentGateway paymentGateway;
+    private static volatile ShippingRates shippingRates;
+    private static volatile WarehouseNetwork warehouseNetwork;
+    private static volatile OrderEventPublisher eventPublisher;
+    private static volatile ProductRepository productRepository;
+    private static volatile CoOccurrenceIndex recommendationIndex;
+    private static volatile ParcelPacker parcelPacker;
+    private static volatile WorkloadRecorder workloadRecorder;
+
+    /**
+     * Sets the promotion engine used to price carts at checkout.
+     *
+     * @param engine The promotion engine, or null to check out without promotions.
+     */
+    public static void setPromotionEngine(PromotionEngine engine) {
+        promotionEngine = engine;
+    }
+
+    /**
+     * Sets the catalog checkout reads product attributes from.
+     * With a catalog, each checkout pins one catalog version and prices, weighs and validates every line
+     * against it, so concurrent product updates cannot make a receipt disagree with itself.
+     *
+     * @param productCatalog The catalog, or null to read attributes from the live products.
+     */
+    public static void setCatalog(Catalog productCatalog) {
+        catalog = productCatalog;
+    }
+
+    /**
+     * Sets the payment gateway checkout pays through.
+     * With a gateway, checkout completes once the payment is authorized and the capture is handed to the
+     * gateway for asynchronous settlement; a checkout that fails after authorization voids it.
+     *
+     * @param gateway The payment gateway, or null to debit the customer's balance directly.
+     */
+    public static void setPaymentGateway(PaymentGateway gateway) {
+        paymentGateway = gateway;
+    }
+
+    /**
+     * Sets the rate engine checkout quotes shipping fees through.
+     * Checkouts are quoted for the customer's shipping zone, or the default zone if the customer has none, and
+     * quotes for carts of similar weight are served from the engine's cache.
+     *
+     * @param rates The shipping rate engine, or null to charge the flat rate of $5 per kg.
+     */
+    public static void setShippingRates(ShippingRates rates) {
+        shippingRates = rates;
+    }
+
+    /**
+     * Sets the warehouse network checkout fulfills orders from.
+     * With a network, each order is split across the warehouses holding its stock, and every resulting
+     * parcel is costed separately; the warehouse stock is taken together with the product stock.
+     * The network is attached so that stock changes made outside checkout reach its warehouses, and a
+     * network it replaces is detached.
+     *
+     * @param network The warehouse network, or null to ship every order as a single parcel.
+     */
+    public static synchronized void setWarehouseNetwork(WarehouseNetwork network) {
+        WarehouseNetwork previous = warehouseNetwork;
+        if (previous == network) {
+            return;
+        }
+        if (previous != null) {
+            previous.detach();
+        }
+        if (network != null) {
+            network.attach();
+        }
+        warehouseNetwork = network;
+    }
+
+    /**
+     * Sets the publisher checkout streams completed and failed checkouts to.
+     *
+     * @param publisher The order event publisher, or null to publish no checkout events.
+     */
+    public static void setEventPublisher(OrderEventPublisher publisher) {
+        eventPublisher = publisher;
+    }
+
+    /**
+     * Sets the repository checkout resolves products through.
+     * With a repository, carts and checkout look every product up by its SKU, so they work on the instance
+     * the repository holds; every product in the cart must still be in it, and the stock of the products
+     * sold is saved back to it once the order completes.
+     *
+     * @param repository The product repository, or null to check out the products in the cart as they are.
+     */
+    public static void setProductRepository(ProductRepository repository) {
+        productRepository = repository;
+        Cart.setProductResolver(repository == null ? null : repository::getBySku);
+    }
+
+    /**
+     * Checks that checkouts only change the customers and products they are given, so that throwaway
+     * customers and products can be checked out without affecting anything else, e.g. when replaying a
+     * workload. Promotions, shipping rates and parcel packing only price orders and may be configured.
+     *
+     * @throws IllegalStateException if a catalog, product repository, payment gateway, warehouse network,
+     *                               event publisher, recommendation index or workload recorder is configured.
+     */
+    public static void requireIsolated() {
+        if (catalog != null || productRepository != null || paymentGateway != null || warehouseNetwork != null
+                || eventPublisher != null || recommendationIndex != null || workloadRecorder != null) {
+            throw new IllegalStateException("Checkout is configured with a catalog, product repository, payment gateway, "
+                    + "warehouse network, event publisher, recommendation index or workload recorder.");
+        }
+    }
+
+    /**
+     * Sets the "frequently bought together" index every completed checkout is recorded in.
+     *
+     * @param index The co-occurrence index, or null to record no orders.
+     */
+    public static void setRecommendationIndex(CoOccurrenceIndex index) {
+        recommendationIndex = index;
+    }
+
+    /**
+     * Sets the packer checkout splits shipments into carrier parcels with.
+     * With a packer, every parcel is kept under the packer's weight limit and costed separately; with a
+     * warehouse network, the shipment from each warehouse is packed on its own.
+     *
+     * @param packer The parcel packer, or null to ship each shipment as a single parcel.
+     */
+    public static void setParcelPacker(ParcelPacker packer) {
+        parcelPacker = packer;
+    }
+
+    /**
+     * Sets the recorder every checkout is captured by, usually through {@link WorkloadRecorder#attach()}.
+     *
+     * @param recorder The workload recorder, or null to capture no checkouts.
+     */
+    public static void setWorkloadRecorder(WorkloadRecorder recorder) {
+        workloadRecorder = recorder;
+    }
+
     /**
      * Processes the checkout for a given customer.
      * Validates the customer's cart, calculates shipping fees, and processes the payment.
+     * Product attributes are captured once per checkout; stock levels are always checked and
+     * taken from the live products.
      *
      * @param customer The customer who is checking out.
+     * @return The result of the checkout.
      * @throws IllegalArgumentException if the customer is null.
      * @throws EmptyCartException if the customer's cart is empty.
      * @throws InsufficientBalanceException if the customer does not have enough balance to cover the total cost.
      * @throws InsufficientQuantityException if any product in the cart is out of stock or insufficient quantity is available.
      * @throws ExpiredProductException if any product in the cart is expired.
+     * @throws ProductNotFoundException if a catalog or product repository is configured and a product in the cart is not in it.
      */
-    public static void checkout(Customer customer) {
+    public static CheckoutResult checkout(Customer customer) {
+        WorkloadRecorder recorder = workloadRecorder;
+        try {
+            if (recorder != null) {
+                recorder.beginCheckout(customer);
+            }
+            return Tracer.call("checkout", () -> {
+                try (CheckoutOrder order = open(customer)) {
+                    // Validate cart products and get shippable items
+                    runPhase(CheckoutStage.VALIDATE, order, CheckoutService::validate);
+
+                    // Calculate discounts, shipping fees and hence the total cost
+                    runPhase(CheckoutStage.PRICE, order, CheckoutService::price);
+
+                    // Check that the customer can cover the total cost and take the payment
+                    runPhase(CheckoutStage.PAY, order, CheckoutService::pay);
+
+                    // Take the purchased quantities out of stock, all or nothing
+                    runPhase(CheckoutStage.COMMIT_INVENTORY, order, CheckoutService::commitInventory);
+
+                    // Print the shipping notice, receipt and summary, then ship the items
+                    runPhase(CheckoutStage.SHIP, order, CheckoutService::ship);
+
+                    // Clear the cart after a successful checkout
+                    runPhase(CheckoutStage.NOTIFY, order, CheckoutService::complete);
+                    return order.result;
+                }
+            });
+        } catch (RuntimeException e) {
+            publishFailure(customer, e);
+            throw e;
+        } finally {
+            if (recorder != null) {
+                recorder.endCheckout();
+            }
+        }
+    }
+
+    /**
+     * Processes the checkout for a given customer through an admission controller.
+     * The checkout only runs once the controller admits it, so excess load is shed instead of
+     * slowing down every in-flight checkout.
+     *
+     * @param customer  The customer who is checking out.
+     * @param admission The admission controller guarding the checkout.
+     * @return The result of the checkout.
+     * @throws IllegalArgumentException if the customer or admission controller is null.
+     * @throws OverloadedException if the checkout was rejected by the admission controller.
+     * @see #checkout(Customer)
+     */
+    public static CheckoutResult checkout(Customer customer, AdmissionController admission) {
+        if (admission == null) {
+            throw new IllegalArgumentException("Admission controller cannot be null.");
+        }
+        return admission.call(() -> checkout(customer));
+    }
+
+    /**
+     * Processes the checkout for a given customer at most once per idempotency key.
+     * A retry with the same key returns the original result without validating, charging or shipping again.
+     * Keys are scoped to the customer's email, so different customers may reuse the same key.
+     *
+     * @param customer       The customer who is checking out.
+     * @param idempotencyKey The client-supplied key identifying this checkout attempt.
+     * @param results        The cache of recent checkout results.
+     * @return The result of the checkout, or the recorded result of an earlier checkout with the same key.
+     * @throws IllegalArgumentException if the customer, key or cache is null, or the key is blank.
+     * @see #checkout(Customer)
+     */
+    public static CheckoutResult checkout(Customer customer, String idempotencyKey, IdempotencyCache<CheckoutResult> results) {
+        if (customer == null) {
+            throw new IllegalArgumentException("Customer cannot be null.");
+        }
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            throw new IllegalArgumentException("Idempotency key cannot be null or empty.");
+        }
+        if (results == null) {
+            throw new IllegalArgumentException("Idempotency cache cannot be null.");
+        }
+        return results.execute(customer.getEmail() + ":" + idempotencyKey, () -> checkout(customer));
+    }
+
+    /**
+     * Validates the customer and their cart and opens a checkout order for it,
+     * pinning the configured catalog's latest version if there is one.
+     *
+     * @param customer The customer who is checking out.
+     * @return The new checkout order; must be closed once the checkout ends.
+     * @throws IllegalArgumentException if the customer is null.
+     * @throws EmptyCartException if the customer's cart is empty.
+     */
+    static CheckoutOrder open(Customer customer) {
         // Validate the customer
         if (customer == null) {
             throw new IllegalArgumentException("Customer cannot be null.");
@@ -38,55 +313,395 @@ public class CheckoutService {
         // Validate the customer's cart
         Cart cart = customer.getCart();
         if (cart.isEmpty()) {
-            throw new EmptyCartException("Cart is empty. Please add items to the cart before checkout.");
+            EmptyCartException exception = new EmptyCartException("Cart is empty. Please add items to the cart before checkout.");
+            CheckoutFailureEvent.emit(exception, 0, null);
+            throw exception;
         }
 
-        // Create a map to hold shippable items and their quantities and to ship them later
-        Map<Shippable, Integer> shippableItems = validateProductsAndGetShippableItems(cart);
+        Catalog productCatalog = catalog;
+        return new CheckoutOrder(customer, productCatalog == null ? null : productCatalog.pin(), paymentGateway, warehouseNetwork);
+    }
 
-        // Validate cart products and get shippable items
-        ShippingService shippingService = new ShippingService(shippableItems);
+    /**
+     * Runs one checkout step, recording it as a JFR checkout phase event and as a span of the order's trace.
+     *
+     * @param phase The phase the step belongs to.
+     * @param order The checkout order.
+     * @param step  The step to run.
+     */
+    static void runPhase(CheckoutStage phase, CheckoutOrder order, Consumer<CheckoutOrder> step) {
+        CheckoutPhaseEvent event = new CheckoutPhaseEvent();
+        event.begin();
+        boolean succeeded = false;
+        try {
+            Tracer.run(phase.getSpanName(), order.trace, () -> step.accept(order));
+            succeeded = true;
+        } finally {
+            if (event.shouldCommit()) {
+                event.phase = phase.name();
+                event.customer = order.customer.getEmail();
+                event.lines = order.lines.size();
+                event.succeeded = succeeded;
+                event.commit();
+            }
+        }
+    }
 
-        // Calculate shipping fees based on the shippable items and hence the total cost
-        double shippingFees = shippingService.calculateShippingCost(); // Total shipping fees for the shippable items
-        double itemsCost = cart.getItemsTotalCost(); // Total cost of items in the cart
-        double totalCost = itemsCost + shippingFees; // Total cost including shipping fees
+    /**
+     * Captures every product's attributes once, so all later steps agree with each other,
+     * validates the products and collects the shippable items.
+     * Very large carts are laid out as parallel arrays and validated in one pass over them.
+     * With a warehouse network, the order is also allocated across its warehouses.
+     *
+     * @param order The checkout order.
+     * @throws InsufficientQuantityException if any product is out of stock or insufficient quantity is available,
+     *                                       in total or across the warehouses.
+     * @throws ExpiredProductException if any product is expired.
+     * @throws ProductNotFoundException if a product is not in the pinned catalog version or the product repository.
+     */
+    static void validate(CheckoutOrder order) {
+        ProductRepository repository = productRepository;
+        if (repository != null) {
+            resolveProducts(order.lines, repository);
+        }
+        order.snapshots = captureSnapshots(order.lines, order.view);
+        if (order.lines.size() >= BULK_VALIDATION_THRESHOLD) {
+            order.cartLines = CartLines.of(order.lines, order.snapshots);
+            order.shippableItems = validateCartLines(order.cartLines);
+        } else {
+            order.shippableItems = validateProductsAndGetShippableItems(order.lines, order.snapshots);
+        }
+        if (order.network != null) {
+            try {
+                order.allocation = order.network.allocate(order.lines, order.network.locate(order.customer));
+            } catch (InsufficientQuantityException e) {
+                CheckoutFailureEvent.emit(e, 0, null);
+                throw e;
+            }
+        }
+    }
 
-        // Check if the customer has enough balance to cover the total cost
-        if (totalCost > customer.getBalance()) {
-            throw new InsufficientBalanceException("Insufficient balance. Total cost: " + totalCost + ", Available balance: " + customer.getBalance());
+    /**
+     * Calculates the items cost, the promotion discount, the shipping fees and the total cost of an order.
+     *
+     * @param order The validated checkout order.
+     */
+    static void price(CheckoutOrder order) {
+        // Apply promotions, if any are configured
+        PromotionEngine engine = promotionEngine;
+        Map<Product, ProductSnapshot> snapshots = order.snapshots;
+        PricingResult pricing = engine == null ? null : engine.price(order.lines, product -> snapshots.get(product).price());
+        order.discount = pricing == null ? 0.0 : pricing.discount(); // Total discount from promotions
+        boolean freeShipping = pricing != null && pricing.freeShipping();
+
+        ParcelPacker packer = parcelPacker;
+        String zone = order.customer.getShippingZone(); // Null falls back to the default zone
+        if (order.allocation == null && packer == null) {
+            order.shippingService = new ShippingService(order.shippableItems, freeShipping, shippingRates, zone);
+        } else {
+            List<Map<ShippableItem, Integer>> shipments = order.allocation == null
+                    ? List.of(order.shippableItems)
+                    : toParcels(order.allocation.shipments(), snapshots);
+            List<Map<ShippableItem, Integer>> parcels = packer == null ? shipments : packer.packShipments(shipments);
+            order.shippingService = new ShippingService(parcels, freeShipping, shippingRates, zone);
         }
+        order.shippingFees = order.shippingService.calculateShippingCost(); // Total shipping fees for the shippable items
+        order.itemsCost = order.cartLines != null ? order.cartLines.itemsCost() : calculateItemsCost(order.lines, snapshots); // Total cost of items in the cart
+        order.totalCost = order.itemsCost - order.discount + order.shippingFees; // Total cost including discounts and shipping fees
+    }
 
+    /**
+     * Checks that the customer can cover the total cost of an order and debits it from their balance.
+     * The check and the debit are atomic with respect to other checkouts of the same customer.
+     * With a payment gateway, the payment is authorized through the gateway instead.
+     *
+     * @param order The priced checkout order.
+     * @throws InsufficientBalanceException if the customer does not have enough balance to cover the total cost.
+     * @throws PaymentDeclinedException if the payment gateway declines the payment.
+     */
+    static void pay(CheckoutOrder order) {
+        if (order.gateway != null) {
+            authorize(order);
+            return;
+        }
+        Customer customer = order.customer;
+        synchronized (customer) {
+            // Check if the customer has enough balance to cover the total cost
+            if (order.totalCost > customer.getBalance()) {
+                InsufficientBalanceException exception = new InsufficientBalanceException("Insufficient balance. Total cost: " + order.totalCost + ", Available balance: " + customer.getBalance());
+                CheckoutFailureEvent.emit(exception, 0, null);
+                throw exception;
+            }
+            customer.setBalance(customer.getBalance() - order.totalCost);
+            order.paid = true;
+        }
+    }
+
+    /**
+     * Authorizes the payment of an order through its payment gateway, waiting for the gateway's decision.
+     *
+     * @param order The priced checkout order.
+     * @throws InsufficientBalanceException if the customer does not have enough balance to cover the total cost.
+     * @throws PaymentDeclinedException if the payment gateway declines the payment.
+     */
+    private static void authorize(CheckoutOrder order) {
+        try {
+            order.authorization = order.gateway.authorize(order.customer, order.totalCost).join();
+            order.paid = true;
+        } catch (CompletionException e) {
+            RuntimeException cause = e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+            CheckoutFailureEvent.emit(cause, 0, null);
+            throw cause;
+        }
+    }
+
+    /**
+     * Removes the purchased quantities from stock.
+     * If any product no longer has enough stock, or removing it fails for any other reason, the quantities
+     * already removed are put back and the payment is refunded. With a warehouse network, the allocated
+     * quantities are taken out of the warehouses first.
+     *
+     * @param order The paid checkout order.
+     * @throws InsufficientQuantityException if any product does not have enough stock left.
+     */
+    static void commitInventory(CheckoutOrder order) {
+        if (order.allocation != null) {
+            try {
+                order.network.commit(order.allocation);
+            } catch (RuntimeException e) {
+                CheckoutFailureEvent.emit(e, 0, null);
+                refund(order);
+                throw e;
+            }
+        }
+        Map<Product, Integer> committed = new HashMap<>();
+        Product current = null;
+        try {
+            for (var entry : order.lines.entrySet()) {
+                current = entry.getKey();
+                current.adjustQuantity(-entry.getValue(), StockChangeReason.SALE);
+                committed.put(current, entry.getValue());
+            }
+            order.inventoryCommitted = true;
+        } catch (RuntimeException e) {
+            CheckoutFailureEvent.emit(e, current.getSku(), current.getName());
+            restock(order, committed);
+            refund(order);
+            throw e;
+        }
+    }
+
+    /**
+     * Prints the shipping notice, checkout receipt and summary of an order and ships its items.
+     *
+     * @param order The checkout order whose inventory has been committed.
+     */
+    static void ship(CheckoutOrder order) {
         // Print the shipping notice with item details and total weight
-        printShippingNotice(shippableItems);
+        printShippingNotice(order.shippableItems);
+        if (order.allocation != null) {
+            printFulfillment(order.allocation.shipments());
+        }
 
         // Print the checkout receipt with item details and total costs
-        printCheckoutReceipt(cart);
+        printCheckoutReceipt(order.lines, order.snapshots);
 
         // Print the checkout summary with item costs, shipping fees, and total cost
-        printCheckoutSummary(itemsCost, shippingFees, totalCost);
-
-        // Process the payment and update the customer's balance
-        customer.setBalance(customer.getBalance() - totalCost);
+        printCheckoutSummary(order.itemsCost, order.discount, order.shippingFees, order.totalCost);
 
         // Ship the items using the ShippingService
-        shippingService.shipItems();
+        order.shippingService.shipItems();
+    }
+
+    /**
+     * Hands an authorized payment over for capture, clears the customer's cart and records the result of a shipped order.
+     *
+     * @param order The shipped checkout order.
+     * @return The result of the checkout.
+     */
+    static CheckoutResult complete(CheckoutOrder order) {
+        settle(order);
+        announce(order);
+        return order.result;
+    }
+
+    /**
+     * Makes the changes that complete a shipped order: hands an authorized payment over for capture, clears the
+     * customer's cart, saves the stock sold and records the result.
+     *
+     * @param order The shipped checkout order.
+     */
+    static void settle(CheckoutOrder order) {
+        if (order.authorization != null) {
+            order.gateway.capture(order.authorization);
+            order.captured = true;
+        }
+        order.cart.clear();
+        ProductRepository repository = productRepository;
+        if (repository != null) {
+            saveStock(order.lines.keySet(), repository); // Each save reads the stock under the product's monitor
+        }
+        CoOccurrenceIndex index = recommendationIndex;
+        if (index != null) {
+            index.record(order.lines.keySet());
+        }
+
+        order.result = new CheckoutResult(order.itemsCost, order.discount, order.shippingFees, order.totalCost, order.customer.getBalance());
+    }
+
+    /**
+     * Announces a settled order: prints the remaining balance and publishes the completed checkout.
+     * Changes nothing, so it can run on another thread than the one that settled the order.
+     *
+     * @param order The settled checkout order.
+     */
+    static void announce(CheckoutOrder order) {
+        System.out.println("Checkout successful! Remaining balance: " + order.result.remainingBalance());
+        OrderEventPublisher publisher = eventPublisher;
+        if (publisher != null) {
+            publisher.publish(new CheckoutCompletedEvent(order.customer, order.result));
+        }
+    }
+
+    /**
+     * Saves the stock of the products sold to the product repository, without replacing the products it holds.
+     * The checkout has already been paid for and shipped, so a product that cannot be saved is reported
+     * rather than failing it; the live product keeps the correct stock and is saved with its next sale.
+     *
+     * @param products   The products sold.
+     * @param repository The product repository.
+     */
+    private static void saveStock(Iterable<Product> products, ProductRepository repository) {
+        for (Product product : products) {
+            try {
+                repository.saveStock(product);
+            } catch (RuntimeException e) {
+                System.out.println("Could not save stock for product: " + product.getName() + " (" + e.getMessage() + ")");
+            }
+        }
+    }
+
+    /**
+     * Publishes a failed checkout to the configured event publisher, if any.
+     * Calls without a customer are not checkouts and are not published.
+     *
+     * @param customer The customer whose checkout failed, or null.
+     * @param cause    The exception that failed the checkout.
+     */
+    static void publishFailure(Customer customer, RuntimeException cause) {
+        OrderEventPublisher publisher = eventPublisher;
+        if (publisher != null && customer != null) {
+            publisher.publish(new CheckoutFailedEvent(customer, cause));
+        }
+    }
+
+    /**
+     * Undoes everything a failed order has done so far: puts its stock back into the products and, with a
+     * warehouse network, into the warehouses if its inventory was committed, and gives back its payment.
+     * A captured payment cannot be voided, so an order that fails after its payment was captured is left
+     * as sold.
+     *
+     * @param order The failed checkout order.
+     */
+    static void compensate(CheckoutOrder order) {
+        if (order.captured) {
+            return;
+        }
+        if (order.inventoryCommitted) {
+            restock(order, order.lines);
+            order.inventoryCommitted = false;
+        }
+        refund(order);
+    }
+
+    /**
+     * Puts stock taken by an order back into the products and, if the order was allocated, into the warehouses.
+     *
+     * @param order The checkout order.
+     * @param lines The products taken out of stock and their quantities.
+     */
+    private static void restock(CheckoutOrder order, Map<Product, Integer> lines) {
+        if (order.allocation != null) {
+            order.network.restock(lines, order.allocation);
+            return;
+        }
+        for (var entry : lines.entrySet()) {
+            entry.getKey().adjustQuantity(entry.getValue(), StockChangeReason.ADJUSTMENT);
+        }
+    }
+
+    /**
+     * Gives back the payment of an order that could not be completed. Does nothing if the order was not paid.
+     *
+     * @param order The checkout order.
+     */
+    static void refund(CheckoutOrder order) {
+        if (!order.paid) {
+            return;
+        }
+        if (order.authorization != null) {
+            order.gateway.voidAuthorization(order.authorization);
+            order.paid = false;
+            return;
+        }
+        Customer customer = order.customer;
+        synchronized (customer) {
+            customer.setBalance(customer.getBalance() + order.totalCost);
+            order.paid = false;
+        }
+    }
 
-        // Clear the cart after a successful checkout
-        cart.clear();
+    /**
+     * Turns the shipments of an allocated order into parcels of shippable items.
+     *
+     * @param shipments The shipments the order was allocated to.
+     * @param snapshots The captured attributes of each product being bought.
+     * @return One parcel per shipment, holding the shipment's shippable items and their quantities.
+     */
+    private static List<Map<ShippableItem, Integer>> toParcels(List<Shipment> shipments, Map<Product, ProductSnapshot> snapshots) {
+        List<Map<ShippableItem, Integer>> parcels = new ArrayList<>(shipments.size());
+        for (Shipment shipment : shipments) {
+            Map<ShippableItem, Integer> parcel = new HashMap<>();
+            for (var entry : shipment.lines().entrySet()) {
+                ProductSnapshot snapshot = snapshots.get(entry.getKey());
+                if (snapshot.isShippable()) {
+                    parcel.put(snapshot, entry.getValue());
+                }
+            }
+            parcels.add(parcel);
+        }
+        return parcels;
+    }
 
-        System.out.println("Checkout successful! Remaining balance: " + customer.getBalance());
+    /**
+     * Prints the warehouses an order ships from.
+     *
+     * @param shipments The shipments the order was allocated to.
+     */
+    private static void printFulfillment(List<Shipment> shipments) {
+        for (Shipment shipment : shipments) {
+            int units = 0;
+            for (int quantity : shipment.lines().values()) {
+                units += quantity;
+            }
+            System.out.println("Fulfilled from " + shipment.warehouse().name() + ": " + units + " unit(s)");
+        }
+        System.out.println("--------------------------------------------");
     }
 
     /**
-     * Prints the checkout summary including item costs, shipping fees, and total cost.
+     * Prints the checkout summary including item costs, discounts, shipping fees, and total cost.
      *
      * @param itemsCost   The total cost of items in the cart.
+     * @param discount    The total discount from promotions.
      * @param shippingFees The total shipping fees for the shippable items.
-     * @param totalCost   The total cost including items and shipping fees.
+     * @param totalCost   The total cost including items, discounts and shipping fees.
      */
-    private static void printCheckoutSummary(double itemsCost, double shippingFees, double totalCost) {
+    private static void printCheckoutSummary(double itemsCost, double discount, double shippingFees, double totalCost) {
         System.out.printf("%-20s %10.2f%n", "Subtotal", itemsCost);
+        if (discount > 0) {
+            System.out.printf("%-20s %10.2f%n", "Discount", -discount);
+        }
         System.out.printf("%-20s %10.2f%n", "Shipping", shippingFees);
         System.out.printf("%-20s %10.2f%n", "Amount", totalCost);
         System.out.println("--------------------------------------------");
@@ -95,17 +710,17 @@ public class CheckoutService {
     /**
      * Prints the checkout receipt with item details and total costs.
      *
-     * @param cart The customer's cart containing products and their quantities.
+     * @param lines     The products being bought and their quantities.
+     * @param snapshots The captured attributes of each product being bought.
      */
-    private static void printCheckoutReceipt(Cart cart) {
+    private static void printCheckoutReceipt(Map<Product, Integer> lines, Map<Product, ProductSnapshot> snapshots) {
         System.out.println("------------- Checkout Receipt -------------");
         System.out.printf("%-20s %10s%n", "Item", "Total Cost");
-        for (var entry : cart.getProducts().entrySet()) {
-            Product product = entry.getKey();
+        for (var entry : lines.entrySet()) {
+            ProductSnapshot snapshot = snapshots.get(entry.getKey());
             int quantity = entry.getValue();
-            double itemCost = product.getPrice() * quantity;
-            System.out.printf("%-20s %10.2f%n", quantity + "x " + product.getName(), itemCost);
-            product.setQuantity(product.getQuantity() - quantity);
+            double itemCost = snapshot.price() * quantity;
+            System.out.printf("%-20s %10.2f%n", quantity + "x " + snapshot.name(), itemCost);
         }
         System.out.println("--------------------------------------------");
     }
@@ -115,7 +730,7 @@ public class CheckoutService {
      *
      * @param shippableItems A map of shippable items and their quantities.
      */
-    private static void printShippingNotice(Map<Shippable, Integer> shippableItems) {
+    private static void printShippingNotice(Map<ShippableItem, Integer> shippableItems) {
         if (!shippableItems.isEmpty()) {
             System.out.println("------------- Shipment Notice -------------");
             System.out.printf("%-20s %10s%n", "Item", "Weight(kg)");
@@ -123,7 +738,7 @@ public class CheckoutService {
 
         double totalWeight = 0.0;
         for (var entry : shippableItems.entrySet()) {
-            Shippable item = entry.getKey();
+            ShippableItem item = entry.getKey();
             int quantity = entry.getValue();
             double weight = item.getWeight() * quantity;
             totalWeight += weight;
@@ -134,21 +749,120 @@ public class CheckoutService {
     }
 
     /**
-     * Retrieves shippable items from the cart and validates them.
+     * Replaces every product being bought with the instance the product repository holds for its SKU, so the
+     * stock validated and taken is the stock the repository saves.
      *
-     * @param cart The customer's cart containing products and their quantities.
+     * @param lines      The products being bought and their quantities, replaced in place.
+     * @param repository The product repository every product must be in.
+     * @throws ProductNotFoundException if a product is not in the product repository.
+     */
+    private static void resolveProducts(Map<Product, Integer> lines, ProductRepository repository) {
+        Map<Product, Integer> resolved = new LinkedHashMap<>();
+        for (var entry : lines.entrySet()) {
+            Product product = entry.getKey();
+            Product resident = repository.findBySku(product.getSku());
+            if (resident == null) {
+                ProductNotFoundException exception = new ProductNotFoundException("Product not found in repository: " + product.getName());
+                CheckoutFailureEvent.emit(exception, product.getSku(), product.getName());
+                throw exception;
+            }
+            resolved.merge(resident, entry.getValue(), Integer::sum);
+        }
+        lines.clear();
+        lines.putAll(resolved);
+    }
+
+    /**
+     * Captures the attributes of every product being bought, from the pinned catalog view if there is one.
+     *
+     * @param lines The products being bought and their quantities.
+     * @param view  The pinned catalog view, or null to capture the live products.
+     * @return The captured attributes of each product being bought.
+     * @throws ProductNotFoundException if a product is not in the pinned catalog version.
+     */
+    private static Map<Product, ProductSnapshot> captureSnapshots(Map<Product, Integer> lines, CatalogView view) {
+        Map<Product, ProductSnapshot> snapshots = new IdentityHashMap<>();
+        for (Product product : lines.keySet()) {
+            ProductSnapshot snapshot = view == null ? ProductSnapshot.of(product) : view.get(product.getSku());
+            if (snapshot == null) {
+                ProductNotFoundException exception = new ProductNotFoundException("Product not found in catalog: " + product.getName());
+                CheckoutFailureEvent.emit(exception, product.getSku(), product.getName());
+                throw exception;
+            }
+            snapshots.put(product, snapshot);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Calculates the total cost of the items being bought from the captured prices.
+     *
+     * @param lines     The products being bought and their quantities.
+     * @param snapshots The captured attributes of each product being bought.
+     * @return The total cost of the items.
+     */
+    private static double calculateItemsCost(Map<Product, Integer> lines, Map<Product, ProductSnapshot> snapshots) {
+        double itemsCost = 0.0;
+        for (var entry : lines.entrySet()) {
+            itemsCost += snapshots.get(entry.getKey()).price() * entry.getValue();
+        }
+        return itemsCost;
+    }
+
+    /**
+     * Retrieves shippable items from the products being bought and validates them.
+     *
+     * @param lines     The products being bought and their quantities.
+     * @param snapshots The captured attributes of each product being bought.
      * @return A map of shippable items and their quantities.
      * @throws InsufficientQuantityException if any product is out of stock or insufficient quantity is available.
      * @throws ExpiredProductException if any product is expired.
      */
-    private static Map<Shippable, Integer> validateProductsAndGetShippableItems(Cart cart) {
-        Map<Shippable, Integer> shippableItems = new HashMap<>();
-        for (var entry : cart.getProducts().entrySet()) {
-            Product product = entry.getKey();
+    private static Map<ShippableItem, Integer> validateProductsAndGetShippableItems(Map<Product, Integer> lines, Map<Product, ProductSnapshot> snapshots) {
+        Map<ShippableItem, Integer> shippableItems = new HashMap<>();
+        for (var entry : lines.entrySet()) {
+            ProductSnapshot snapshot = snapshots.get(entry.getKey());
             int quantity = entry.getValue();
-            validateProduct(product, quantity);
-            if (product instanceof Shippable shippable) {
-                shippableItems.put(shippable, quantity);
+            try {
+                validateProduct(entry.getKey(), snapshot, quantity);
+            } catch (InsufficientQuantityException | ExpiredProductException e) {
+                CheckoutFailureEvent.emit(e, snapshot.sku(), snapshot.name());
+                throw e;
+            }
+            if (snapshot.isShippable()) {
+                shippableItems.put(snapshot, quantity);
+            }
+        }
+        return shippableItems;
+    }
+
+    /**
+     * Validates cart lines laid out as parallel arrays and collects the shippable items.
+     * Reports the same failure, with the same message, as validating the lines one by one would.
+     *
+     * @param cartLines The captured cart lines.
+     * @return A map of shippable items and their quantities.
+     * @throws InsufficientQuantityException if any product is out of stock or insufficient quantity is available.
+     * @throws ExpiredProductException if any product is expired.
+     */
+    private static Map<ShippableItem, Integer> validateCartLines(CartLines cartLines) {
+        long today = LocalDate.now().toEpochDay();
+        int invalid = cartLines.firstInvalid(today);
+        if (invalid >= 0) {
+            ProductSnapshot snapshot = cartLines.snapshot(invalid);
+            RuntimeException exception = switch (cartLines.status(invalid, today)) {
+                case OUT_OF_STOCK -> new InsufficientQuantityException("Product is out of stock: " + snapshot.name());
+                case INSUFFICIENT_STOCK -> new InsufficientQuantityException("Insufficient stock for product: " + snapshot.name());
+                default -> new ExpiredProductException("Product is expired: " + snapshot.name());
+            };
+            CheckoutFailureEvent.emit(exception, snapshot.sku(), snapshot.name());
+            throw exception;
+        }
+
+        Map<ShippableItem, Integer> shippableItems = new HashMap<>();
+        for (int i = 0; i < cartLines.size(); i++) {
+            if (cartLines.has(i, CartLines.SHIPPABLE)) {
+                shippableItems.put(cartLines.snapshot(i), cartLines.requested(i));
             }
         }
         return shippableItems;
@@ -156,23 +870,25 @@ public class CheckoutService {
 
     /**
      * Validates a product to ensure it is in stock, has sufficient quantity, and is not expired.
+     * The stock is read from the product being bought, the same instance inventory is later taken from,
+     * rather than from the live product the snapshot was captured from.
      *
-     * @param product  The product to validate.
+     * @param product  The product being bought.
+     * @param snapshot The captured attributes of the product to validate.
      * @param quantity The quantity of the product being purchased.
      * @throws InsufficientQuantityException if the product is out of stock or insufficient quantity is available.
      * @throws ExpiredProductException if the product is expired.
      */
-    private static void validateProduct(Product product, int quantity) {
-        if (product.getQuantity() == 0) {
-            throw new InsufficientQuantityException("Product is out of stock: " + product.getName());
+    private static void validateProduct(Product product, ProductSnapshot snapshot, int quantity) {
+        int stock = product.getQuantity();
+        if (stock == 0) {
+            throw new InsufficientQuantityException("Product is out of stock: " + snapshot.name());
         }
-        if (product.getQuantity() < quantity) {
-            throw new InsufficientQuantityException("Insufficient stock for product: " + product.getName());
+        if (stock < quantity) {
+            throw new InsufficientQuantityException("Insufficient stock for product: " + snapshot.name());
         }
-        if (product instanceof Expirable expirable) {
-            if (expirable.isExpired()) {
-                throw new ExpiredProductException("Product is expired: " + product.getName());
-            }
+        if (snapshot.isExpired()) {
+            throw new ExpiredProductException("Product is expired: " + snapshot.name());
         }
     }
 }
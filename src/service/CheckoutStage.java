@@ -0,0 +1,49 @@
+package service;
+
+import java.util.Locale;
+
+/**
+ * The stages of the staged checkout pipeline, in processing order.
+ */
+public enum CheckoutStage {
+    /**
+     * Validates the customer, cart and products.
+     */
+    VALIDATE,
+
+    /**
+     * Applies promotions and calculates shipping fees and the total cost.
+     */
+    PRICE,
+
+    /**
+     * Checks and debits the customer's balance.
+     */
+    PAY,
+
+    /**
+     * Takes the purchased quantities out of stock.
+     */
+    COMMIT_INVENTORY,
+
+    /**
+     * Prints the receipt and ships the items.
+     */
+    SHIP,
+
+    /**
+     * Clears the cart and completes the checkout.
+     */
+    NOTIFY;
+
+    private final String spanName = "checkout." + name().toLowerCase(Locale.ROOT).replace('_', '-');
+
+    /**
+     * Gets the name the stage is traced under.
+     *
+     * @return the span name, e.g. "checkout.commit-inventory"
+     */
+    public String getSpanName() {
+        return spanName;
+    }
+}
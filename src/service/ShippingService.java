@@ -1,15 +1,29 @@
 package service;
 
-import entity.product.Shippable;
+import entity.product.ShippableItem;
+import monitoring.ShippingDispatchEvent;
+import monitoring.trace.Tracer;
+import service.shipping.ShippingRates;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * ShippingService is responsible for calculating the shipping cost of shippable items
  * and handling the shipping process.
+ * The cost is quoted through a {@link ShippingRates} engine when one is given, otherwise at a flat rate
+ * of $5 per kg, and is computed once per service so that checkout and dispatch share the same quote.
+ * Items may be split into several parcels, e.g. one per warehouse an order ships from; each parcel is costed separately.
  */
 public class ShippingService {
-    private final Map<Shippable, Integer> shippableItems;
+    private final Map<? extends ShippableItem, Integer> shippableItems;
+    private final List<Map<? extends ShippableItem, Integer>> parcels;
+    private final boolean freeShipping;
+    private final ShippingRates rates;
+    private final String zone;
+    private double shippingCost = -1;
 
     /**
      * Constructs a ShippingService with a map of shippable items and their quantities.
@@ -17,42 +31,168 @@ public class ShippingService {
      * @param shippableItems a map where keys are shippable items and values are their quantities
      * @throws IllegalArgumentException if the shippableItems map is null or empty
      */
-    public ShippingService(Map<Shippable, Integer> shippableItems) {
+    public ShippingService(Map<? extends ShippableItem, Integer> shippableItems) {
+        this(shippableItems, false);
+    }
+
+    /**
+     * Constructs a ShippingService with a map of shippable items and their quantities,
+     * optionally waiving the shipping fees (e.g. because the order reached a free shipping threshold).
+     *
+     * @param shippableItems a map where keys are shippable items and values are their quantities
+     * @param freeShipping   whether the shipping fees are waived
+     * @throws IllegalArgumentException if the shippableItems map is null
+     */
+    public ShippingService(Map<? extends ShippableItem, Integer> shippableItems, boolean freeShipping) {
+        this(shippableItems, freeShipping, null, null);
+    }
+
+    /**
+     * Constructs a ShippingService that quotes the shipping cost through a rate engine.
+     *
+     * @param shippableItems a map where keys are shippable items and values are their quantities
+     * @param freeShipping   whether the shipping fees are waived
+     * @param rates          the rate engine to quote against, or null for the flat rate of $5 per kg
+     * @param zone           the destination zone, or null for the default zone
+     * @throws IllegalArgumentException if the shippableItems map is null
+     */
+    public ShippingService(Map<? extends ShippableItem, Integer> shippableItems, boolean freeShipping, ShippingRates rates, String zone) {
         if (shippableItems == null) {
-            throw new IllegalArgumentException("Shippable items cannot be null or empty.");
+            throw new IllegalArgumentException("ShippableItem items cannot be null or empty.");
         }
         this.shippableItems = shippableItems;
+        this.parcels = shippableItems.isEmpty() ? List.of() : List.<Map<? extends ShippableItem, Integer>>of(shippableItems);
+        this.freeShipping = freeShipping;
+        this.rates = rates;
+        this.zone = zone == null ? ShippingRates.DEFAULT_ZONE : zone;
+    }
+
+    /**
+     * Constructs a ShippingService for items split into parcels, each costed separately.
+     *
+     * @param parcels      the parcels, each a map of shippable items and their quantities
+     * @param freeShipping whether the shipping fees are waived
+     * @param rates        the rate engine to quote against, or null for the flat rate of $5 per kg
+     * @param zone         the destination zone, or null for the default zone
+     * @throws IllegalArgumentException if the parcels list or any parcel is null
+     */
+    public ShippingService(List<? extends Map<? extends ShippableItem, Integer>> parcels, boolean freeShipping, ShippingRates rates, String zone) {
+        if (parcels == null) {
+            throw new IllegalArgumentException("Parcels cannot be null.");
+        }
+        Map<ShippableItem, Integer> shippableItems = new HashMap<>();
+        List<Map<? extends ShippableItem, Integer>> nonEmptyParcels = new ArrayList<>();
+        for (Map<? extends ShippableItem, Integer> parcel : parcels) {
+            if (parcel == null) {
+                throw new IllegalArgumentException("Parcel cannot be null.");
+            }
+            if (!parcel.isEmpty()) {
+                nonEmptyParcels.add(parcel);
+                parcel.forEach((item, quantity) -> shippableItems.merge(item, quantity, Integer::sum));
+            }
+        }
+        this.shippableItems = shippableItems;
+        this.parcels = nonEmptyParcels;
+        this.freeShipping = freeShipping;
+        this.rates = rates;
+        this.zone = zone == null ? ShippingRates.DEFAULT_ZONE : zone;
     }
 
     /**
      * Calculates the total shipping cost based on the weight of each shippable item.
+     * Returns zero when free shipping applies. The cost is computed on the first call and reused afterwards.
      *
      * @return the total shipping cost
      */
     public double calculateShippingCost() {
+        if (shippingCost < 0) {
+            shippingCost = Tracer.call("shipping.quote", this::computeShippingCost);
+        }
+        return shippingCost;
+    }
+
+    /**
+     * Gets the number of parcels the items ship in.
+     *
+     * @return the number of parcels
+     */
+    public int getParcelCount() {
+        return parcels.size();
+    }
+
+    /**
+     * Ships the items by printing their details and the total shipping cost.
+     * Items split into several parcels are listed parcel by parcel.
+     */
+    public void shipItems() {
+        Tracer.run("shipping.ship", () -> {
+            ShippingDispatchEvent event = new ShippingDispatchEvent();
+            event.begin();
+            int units = 0;
+            double totalWeight = 0.0;
+            for (int i = 0; i < parcels.size(); i++) {
+                if (parcels.size() > 1) {
+                    System.out.println("Parcel " + (i + 1) + " of " + parcels.size() + ":");
+                }
+                for (var entry : parcels.get(i).entrySet()) {
+                    ShippableItem item = entry.getKey();
+                    int quantity = entry.getValue();
+                    units += quantity;
+                    totalWeight += item.getWeight() * quantity;
+                    System.out.println("Shipping item: " + item.getName() +
+                            " with weight: " + item.getWeight() + "kg"
+                            + " - Quantity: " + quantity);
+                }
+            }
+            double shippingCost = calculateShippingCost();
+            System.out.println("Total shipping cost: $" + shippingCost);
+
+            if (event.shouldCommit()) {
+                event.items = shippableItems.size();
+                event.units = units;
+                event.totalWeight = totalWeight;
+                event.shippingCost = shippingCost;
+                event.commit();
+            }
+        });
+    }
+
+    /**
+     * Computes the shipping cost as the sum of the cost of each parcel.
+     *
+     * @return the total shipping cost
+     */
+    private double computeShippingCost() {
         double totalCost = 0.0;
-        if (shippableItems.isEmpty()) {
+        if (freeShipping) {
             return totalCost;
         }
-        for (var entry : shippableItems.entrySet()) {
-            Shippable item = entry.getKey();
-            int quantity = entry.getValue();
-            totalCost += item.getWeight() * 5 * quantity; // Assuming a flat rate of $5 per kg
+        for (Map<? extends ShippableItem, Integer> parcel : parcels) {
+            totalCost += computeParcelCost(parcel);
         }
         return totalCost;
     }
 
     /**
-     * Ships the items by printing their details and the total shipping cost.
+     * Computes the cost of one parcel, either through the rate engine on the parcel's weight or per item at the flat rate.
+     *
+     * @param parcel the shippable items in the parcel and their quantities
+     * @return the shipping cost of the parcel
      */
-    public void shipItems() {
-        for (var entry : shippableItems.entrySet()) {
-            Shippable item = entry.getKey();
+    private double computeParcelCost(Map<? extends ShippableItem, Integer> parcel) {
+        if (rates != null) {
+            double weight = 0.0;
+            for (var entry : parcel.entrySet()) {
+                weight += entry.getKey().getWeight() * entry.getValue();
+            }
+            return rates.quote(weight, zone);
+        }
+        double cost = 0.0;
+        for (var entry : parcel.entrySet()) {
+            ShippableItem item = entry.getKey();
             int quantity = entry.getValue();
-            System.out.println("Shipping item: " + item.getName() +
-                    " with weight: " + item.getWeight() + "kg"
-                    + " - Quantity: " + quantity);
+            cost += item.getWeight() * 5 * quantity; // Assuming a flat rate of $5 per kg
         }
-        System.out.println("Total shipping cost: $" + calculateShippingCost());
+        return cost;
     }
 }
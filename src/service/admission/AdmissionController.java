@@ -0,0 +1,295 @@
+package service.admission;
+
+import exception.OverloadedException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * The AdmissionController limits how many requests run concurrently and sheds load when the system is overloaded.
+ * The concurrency limit adapts to observed latency in AIMD fashion: while the smoothed latency stays within
+ * a tolerance of the lowest latency seen, the limit grows additively; once latency rises above it, the limit
+ * is cut multiplicatively. Requests over the limit wait in a bounded queue for a bounded time, and are rejected
+ * immediately with an {@link OverloadedException} when the queue is full.
+ * Only the latency of tasks that complete normally is sampled; failed tasks are counted separately.
+ */
+public class AdmissionController {
+    private static final double SMOOTHING_FACTOR = 0.1;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int MIN_LATENCY_WINDOW = 1000;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final long maxWaitNanos;
+    private final double latencyTolerance;
+
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private long minLatencyNanos = Long.MAX_VALUE;
+    private double smoothedLatencyNanos;
+    private long lastDecreaseNanos;
+    private int samplesInWindow;
+
+    private final AtomicLong admittedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong timedOutCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * Constructs an AdmissionController.
+     *
+     * @param initialLimit     the initial concurrency limit
+     * @param minLimit         the lowest the concurrency limit may drop to
+     * @param maxLimit         the highest the concurrency limit may grow to
+     * @param maxQueueSize     the maximum number of requests allowed to wait for a permit
+     * @param maxWaitMillis    the maximum time a queued request waits before it is rejected
+     * @param latencyTolerance how many times the minimum observed latency is tolerated before the limit is reduced
+     * @throws IllegalArgumentException if the limits are inconsistent, the queue size or wait time is negative,
+     *                                  or the tolerance is not greater than one
+     */
+    public AdmissionController(int initialLimit, int minLimit, int maxLimit, int maxQueueSize,
+                               long maxWaitMillis, double latencyTolerance) {
+        if (minLimit <= 0 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 0 < minLimit <= initialLimit <= maxLimit.");
+        }
+        if (maxQueueSize < 0) {
+            throw new IllegalArgumentException("Queue size cannot be negative.");
+        }
+        if (maxWaitMillis < 0) {
+            throw new IllegalArgumentException("Maximum wait time cannot be negative.");
+        }
+        if (latencyTolerance <= 1.0) {
+            throw new IllegalArgumentException("Latency tolerance must be greater than 1.");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueSize = maxQueueSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * Runs a task once a permit is available.
+     *
+     * @param task the task to run
+     * @throws OverloadedException if the wait queue is full or no permit became available in time
+     */
+    public void run(Runnable task) {
+        call(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a task once a permit is available and returns its result.
+     * If the task completes normally, its latency is fed back into the concurrency limit; if it throws, its
+     * permit is released without sampling it.
+     *
+     * @param task the task to run
+     * @param <T>  the type of the task's result
+     * @return the result of the task
+     * @throws OverloadedException if the wait queue is full or no permit became available in time
+     */
+    public <T> T call(Supplier<T> task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task cannot be null.");
+        }
+        acquire();
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            T result = task.get();
+            succeeded = true;
+            return result;
+        } finally {
+            release(System.nanoTime() - start, succeeded);
+        }
+    }
+
+    /**
+     * Acquires a permit, waiting in the bounded queue if the concurrency limit has been reached.
+     *
+     * @throws OverloadedException if the wait queue is full or no permit became available in time
+     */
+    private void acquire() {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                admittedCount.incrementAndGet();
+                return;
+            }
+            if (queued >= maxQueueSize) {
+                rejectedCount.incrementAndGet();
+                throw new OverloadedException("System overloaded. Concurrency limit: " + (int) limit + ", queued: " + queued);
+            }
+
+            queued++;
+            try {
+                long remaining = maxWaitNanos;
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        timedOutCount.incrementAndGet();
+                        throw new OverloadedException("Timed out waiting for admission. Concurrency limit: " + (int) limit);
+                    }
+                    remaining = permitAvailable.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OverloadedException("Interrupted while waiting for admission.");
+            } finally {
+                queued--;
+            }
+            inFlight++;
+            admittedCount.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a permit and, for a task that completed normally, adapts the concurrency limit to its latency.
+     *
+     * @param latencyNanos the latency of the task
+     * @param succeeded    whether the task completed normally
+     */
+    private void release(long latencyNanos, boolean succeeded) {
+        lock.lock();
+        try {
+            int previousPermits = (int) limit;
+            boolean saturated = inFlight >= previousPermits / 2;
+            inFlight--;
+            if (succeeded) {
+                updateLimit(latencyNanos, saturated);
+            } else {
+                failedCount.incrementAndGet();
+            }
+
+            // Wake one waiter for the freed permit, plus one for each permit the limit grew by
+            int wakeUps = 1 + Math.max(0, (int) limit - previousPermits);
+            for (int i = 0; i < wakeUps && queued > 0; i++) {
+                permitAvailable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Updates the smoothed latency and the concurrency limit. Must be called with the lock held.
+     *
+     * @param latencyNanos the latency of the completed task
+     * @param saturated    whether at least half of the limit was in use when the task completed
+     */
+    private void updateLimit(long latencyNanos, boolean saturated) {
+        // Periodically forget the minimum so the baseline can follow a changing workload
+        if (++samplesInWindow >= MIN_LATENCY_WINDOW) {
+            samplesInWindow = 0;
+            minLatencyNanos = (long) smoothedLatencyNanos;
+        }
+        minLatencyNanos = Math.min(minLatencyNanos, Math.max(1, latencyNanos));
+        smoothedLatencyNanos = smoothedLatencyNanos == 0
+                ? latencyNanos
+                : smoothedLatencyNanos + SMOOTHING_FACTOR * (latencyNanos - smoothedLatencyNanos);
+
+        long now = System.nanoTime();
+        if (smoothedLatencyNanos > minLatencyNanos * latencyTolerance) {
+            // Back off at most once per smoothed round trip so one slow burst doesn't collapse the limit
+            if (now - lastDecreaseNanos >= (long) smoothedLatencyNanos) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                lastDecreaseNanos = now;
+            }
+        } else if (saturated) {
+            // Only probe for more capacity when the current limit is actually being used
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    /**
+     * Gets the current concurrency limit.
+     *
+     * @return the current concurrency limit
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of requests currently running.
+     *
+     * @return the number of requests in flight
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of requests currently waiting for a permit.
+     *
+     * @return the number of queued requests
+     */
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the total number of admitted requests.
+     *
+     * @return the number of admitted requests
+     */
+    public long getAdmittedCount() {
+        return admittedCount.get();
+    }
+
+    /**
+     * Gets the number of requests rejected immediately because the wait queue was full.
+     *
+     * @return the number of rejected requests
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Gets the number of requests rejected after waiting too long for a permit.
+     *
+     * @return the number of timed out requests
+     */
+    public long getTimedOutCount() {
+        return timedOutCount.get();
+    }
+
+    /**
+     * Gets the number of admitted requests whose task threw, and whose latency was therefore not sampled.
+     *
+     * @return the number of failed requests
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+}
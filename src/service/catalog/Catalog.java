@@ -0,0 +1,215 @@
+package service.catalog;
+
+import entity.product.Product;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A multi-version catalog of immutable product snapshots.
+ * Writers publish new snapshots under a new catalog version; each SKU keeps a chain of its snapshots,
+ * newest first. Readers pin a version with {@link #pin()} and walk the chains without locking, always
+ * seeing the newest snapshot no newer than their pinned version. Snapshots that no pinned reader can see
+ * any more are unlinked by writers and left to the garbage collector.
+ */
+public class Catalog {
+    private final ConcurrentHashMap<Long, Version> heads = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Integer> pins = new ConcurrentSkipListMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile long committedVersion;
+    private volatile long reclaimHorizon;
+
+    /**
+     * Publishes the current attributes of a product as a new catalog version.
+     *
+     * @param product the product to publish
+     * @return the new catalog version
+     * @throws IllegalArgumentException if the product is null
+     */
+    public long publish(Product product) {
+        return publishAll(List.of(ProductSnapshot.of(product)));
+    }
+
+    /**
+     * Publishes the current attributes of several products as a single new catalog version,
+     * so readers see either all or none of the changes.
+     *
+     * @param products the products to publish
+     * @return the new catalog version
+     * @throws IllegalArgumentException if the collection or any product is null
+     */
+    public long publishProducts(Collection<? extends Product> products) {
+        if (products == null) {
+            throw new IllegalArgumentException("Products cannot be null.");
+        }
+        return publishAll(products.stream().map(ProductSnapshot::of).toList());
+    }
+
+    /**
+     * Removes a product from the catalog as of a new catalog version.
+     *
+     * @param sku the SKU of the product to remove
+     * @return the new catalog version
+     */
+    public long remove(long sku) {
+        writeLock.lock();
+        try {
+            long version = committedVersion + 1;
+            long oldestVisible = advanceHorizon();
+            link(sku, new Version(version, null, heads.get(sku)), oldestVisible);
+            committedVersion = version;
+            return version;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Pins the latest committed version for consistent reads.
+     *
+     * @return a view of the catalog at the latest committed version; must be closed after use
+     */
+    public CatalogView pin() {
+        while (true) {
+            long version = committedVersion;
+            pins.merge(version, 1, Integer::sum);
+            // A writer may have started reclaiming past this version before the pin was visible
+            if (version >= reclaimHorizon) {
+                return new CatalogView(this, version);
+            }
+            unpin(version);
+        }
+    }
+
+    /**
+     * Gets the latest committed catalog version.
+     *
+     * @return the latest committed version
+     */
+    public long getVersion() {
+        return committedVersion;
+    }
+
+    /**
+     * Unlinks every snapshot that is no longer visible to any pinned reader.
+     * Writers already reclaim the chains they touch, so this is only needed after long-running readers finish.
+     */
+    public void reclaim() {
+        writeLock.lock();
+        try {
+            long oldestVisible = advanceHorizon();
+            for (Version head : heads.values()) {
+                prune(head, oldestVisible);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Publishes snapshots as a single new catalog version.
+     *
+     * @param snapshots the snapshots to publish
+     * @return the new catalog version
+     */
+    private long publishAll(List<ProductSnapshot> snapshots) {
+        writeLock.lock();
+        try {
+            long version = committedVersion + 1;
+            long oldestVisible = advanceHorizon();
+            for (ProductSnapshot snapshot : snapshots) {
+                link(snapshot.sku(), new Version(version, snapshot, heads.get(snapshot.sku())), oldestVisible);
+            }
+            // Readers only see the new snapshots once the version is committed
+            committedVersion = version;
+            return version;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Looks up the snapshot of a SKU as of a version.
+     *
+     * @param sku     the SKU
+     * @param version the version to read at
+     * @return the snapshot, or null if the SKU was absent or removed at that version
+     */
+    ProductSnapshot read(long sku, long version) {
+        Version node = heads.get(sku);
+        while (node != null && node.number > version) {
+            node = node.older;
+        }
+        return node == null ? null : node.snapshot;
+    }
+
+    /**
+     * Releases a pin taken by {@link #pin()}.
+     *
+     * @param version the pinned version
+     */
+    void unpin(long version) {
+        pins.computeIfPresent(version, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Raises the reclaim horizon to the committed version and returns the oldest version still visible
+     * to a reader. Must be called with the write lock held. The horizon is published before pins are
+     * scanned, so a reader pinning concurrently either shows up in the scan or sees the new horizon and retries.
+     *
+     * @return the oldest version that must stay readable
+     */
+    private long advanceHorizon() {
+        long committed = committedVersion;
+        reclaimHorizon = committed;
+        Long oldestPinned = pins.isEmpty() ? null : pins.firstKey();
+        return oldestPinned == null ? committed : Math.min(oldestPinned, committed);
+    }
+
+    /**
+     * Installs a new chain head and prunes the chain. Must be called with the write lock held.
+     *
+     * @param sku           the SKU
+     * @param head          the new head of the chain
+     * @param oldestVisible the oldest version that must stay readable
+     */
+    private void link(long sku, Version head, long oldestVisible) {
+        heads.put(sku, head);
+        prune(head, oldestVisible);
+    }
+
+    /**
+     * Unlinks the snapshots of a chain that no reader can see: everything older than the newest
+     * snapshot no newer than the oldest visible version.
+     *
+     * @param head          the head of the chain
+     * @param oldestVisible the oldest version that must stay readable
+     */
+    private static void prune(Version head, long oldestVisible) {
+        Version node = head;
+        while (node != null && node.number > oldestVisible) {
+            node = node.older;
+        }
+        if (node != null) {
+            node.older = null;
+        }
+    }
+
+    /**
+     * One snapshot of a SKU in its version chain. A null snapshot marks the SKU as removed.
+     */
+    private static final class Version {
+        private final long number;
+        private final ProductSnapshot snapshot;
+        private volatile Version older;
+
+        private Version(long number, ProductSnapshot snapshot, Version older) {
+            this.number = number;
+            this.snapshot = snapshot;
+            this.older = older;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package service.catalog;
+
+/**
+ * A read-only view of the catalog pinned at one version.
+ * Every lookup through the same view sees the catalog exactly as it was when the view was opened,
+ * regardless of later publications. Views must be closed so the versions they pin can be reclaimed.
+ */
+public class CatalogView implements AutoCloseable {
+    private final Catalog catalog;
+    private final long version;
+    private boolean closed;
+
+    /**
+     * Constructs a CatalogView. Views are opened with {@link Catalog#pin()}.
+     *
+     * @param catalog the catalog being viewed
+     * @param version the pinned version
+     */
+    CatalogView(Catalog catalog, long version) {
+        this.catalog = catalog;
+        this.version = version;
+    }
+
+    /**
+     * Gets the version this view is pinned at.
+     *
+     * @return the pinned version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Looks up a product as of the pinned version.
+     *
+     * @param sku the SKU of the product
+     * @return the snapshot of the product, or null if it was not in the catalog at the pinned version
+     * @throws IllegalStateException if the view has been closed
+     */
+    public ProductSnapshot get(long sku) {
+        if (closed) {
+            throw new IllegalStateException("Catalog view is closed.");
+        }
+        return catalog.read(sku, version);
+    }
+
+    /**
+     * Releases the pinned version. Closing a view more than once has no effect.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            catalog.unpin(version);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package service.catalog;
+
+import entity.product.Expirable;
+import entity.product.Product;
+import entity.product.Shippable;
+import entity.product.ShippableItem;
+
+import java.time.LocalDate;
+
+/**
+ * An immutable copy of a product's catalog attributes at one point in time.
+ * Snapshots of shippable products can be shipped directly as read-only shipping items; stock levels are not part of the snapshot and
+ * are always read from the live {@link Product}.
+ *
+ * @param product        the live product this snapshot was taken from
+ * @param name           the name of the product
+ * @param price          the price of the product
+ * @param weight         the weight of the product, or 0 if the product is not shippable
+ * @param expirationDate the expiration date of the product, or null if the product does not expire
+ */
+public record ProductSnapshot(Product product, String name, double price, double weight, LocalDate expirationDate)
+        implements ShippableItem {
+
+    /**
+     * Captures the current catalog attributes of a product.
+     *
+     * @param product the product to capture
+     * @return the snapshot
+     * @throws IllegalArgumentException if the product is null
+     */
+    public static ProductSnapshot of(Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null.");
+        }
+        double weight = product instanceof Shippable shippable ? shippable.getWeight() : 0.0;
+        LocalDate expirationDate = product instanceof Expirable expirable ? expirable.getExpirationDate() : null;
+        return new ProductSnapshot(product, product.getName(), product.getPrice(), weight, expirationDate);
+    }
+
+    /**
+     * Gets the SKU of the product.
+     *
+     * @return the SKU
+     */
+    public long sku() {
+        return product.getSku();
+    }
+
+    /**
+     * Checks whether the product can be shipped.
+     *
+     * @return true if the product has a weight, false otherwise
+     */
+    public boolean isShippable() {
+        return weight > 0;
+    }
+
+    /**
+     * Checks whether the product is expired.
+     * A product is considered expired if the current date is after its expiration date.
+     *
+     * @return true if the product is expired, false otherwise
+     */
+    public boolean isExpired() {
+        return expirationDate != null && LocalDate.now().isAfter(expirationDate);
+    }
+
+    /**
+     * Returns the name of the product.
+     *
+     * @return the name of the product
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the weight of the product.
+     *
+     * @return the weight of the product
+     */
+    @Override
+    public double getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,218 @@
+package service.customer;
+
+import entity.Customer;
+import entity.CustomerValidation;
+import exception.DuplicateCustomerException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * The CustomerDirectory keeps registered customers indexed by email address and by phone number.
+ * Both are unique across the directory; email addresses are compared case-insensitively.
+ * Contact details must be changed through the directory so the indexes stay in step with the customers.
+ */
+public class CustomerDirectory {
+    private final ConcurrentHashMap<String, Customer> byEmail;
+    private final ConcurrentHashMap<String, Customer> byPhoneNumber;
+
+    /**
+     * Constructs an empty CustomerDirectory.
+     */
+    public CustomerDirectory() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty CustomerDirectory sized for the expected number of customers,
+     * so bulk loads don't repeatedly resize the indexes.
+     *
+     * @param expectedCustomers the expected number of customers
+     * @throws IllegalArgumentException if expectedCustomers is negative
+     */
+    public CustomerDirectory(int expectedCustomers) {
+        if (expectedCustomers < 0) {
+            throw new IllegalArgumentException("Expected customers cannot be negative.");
+        }
+        this.byEmail = new ConcurrentHashMap<>(expectedCustomers);
+        this.byPhoneNumber = new ConcurrentHashMap<>(expectedCustomers);
+    }
+
+    /**
+     * Registers a customer.
+     *
+     * @param customer the customer to register
+     * @throws IllegalArgumentException if the customer is null
+     * @throws DuplicateCustomerException if another customer already uses the email address or phone number
+     */
+    public void register(Customer customer) {
+        if (customer == null) {
+            throw new IllegalArgumentException("Customer cannot be null.");
+        }
+        String emailKey = emailKey(customer.getEmail());
+        Customer existing = byEmail.putIfAbsent(emailKey, customer);
+        if (existing != null) {
+            throw new DuplicateCustomerException("Email address already registered: " + customer.getEmail());
+        }
+        existing = byPhoneNumber.putIfAbsent(customer.getPhoneNumber(), customer);
+        if (existing != null) {
+            byEmail.remove(emailKey, customer);
+            throw new DuplicateCustomerException("Phone number already registered: " + customer.getPhoneNumber());
+        }
+    }
+
+    /**
+     * Removes a customer from the directory.
+     *
+     * @param customer the customer to remove
+     * @return true if the customer was registered, false otherwise
+     */
+    public boolean unregister(Customer customer) {
+        if (customer == null) {
+            return false;
+        }
+        boolean removed = byEmail.remove(emailKey(customer.getEmail()), customer);
+        byPhoneNumber.remove(customer.getPhoneNumber(), customer);
+        return removed;
+    }
+
+    /**
+     * Looks up a customer by email address.
+     *
+     * @param email the email address
+     * @return the customer, or null if no customer uses the email address
+     */
+    public Customer findByEmail(String email) {
+        return email == null ? null : byEmail.get(emailKey(email));
+    }
+
+    /**
+     * Looks up a customer by phone number.
+     *
+     * @param phoneNumber the phone number
+     * @return the customer, or null if no customer uses the phone number
+     */
+    public Customer findByPhoneNumber(String phoneNumber) {
+        return phoneNumber == null ? null : byPhoneNumber.get(phoneNumber);
+    }
+
+    /**
+     * Changes a registered customer's email address, keeping the index and uniqueness up to date.
+     *
+     * @param customer the registered customer
+     * @param email    the new email address
+     * @throws IllegalArgumentException if the customer is not registered or the email address is invalid
+     * @throws DuplicateCustomerException if another customer already uses the new email address
+     */
+    public void changeEmail(Customer customer, String email) {
+        requireRegistered(customer);
+        if (!CustomerValidation.isValidEmail(email)) {
+            throw new IllegalArgumentException("Invalid email address.");
+        }
+        String oldKey = emailKey(customer.getEmail());
+        String newKey = emailKey(email);
+        if (!oldKey.equals(newKey)) {
+            Customer existing = byEmail.putIfAbsent(newKey, customer);
+            if (existing != null) {
+                throw new DuplicateCustomerException("Email address already registered: " + email);
+            }
+            byEmail.remove(oldKey, customer);
+        }
+        customer.setEmail(email);
+    }
+
+    /**
+     * Changes a registered customer's phone number, keeping the index and uniqueness up to date.
+     *
+     * @param customer    the registered customer
+     * @param phoneNumber the new phone number
+     * @throws IllegalArgumentException if the customer is not registered or the phone number is invalid
+     * @throws DuplicateCustomerException if another customer already uses the new phone number
+     */
+    public void changePhoneNumber(Customer customer, String phoneNumber) {
+        requireRegistered(customer);
+        if (!CustomerValidation.isValidPhoneNumber(phoneNumber)) {
+            throw new IllegalArgumentException("Phone number must be a 10-digit number.");
+        }
+        String oldPhoneNumber = customer.getPhoneNumber();
+        if (!oldPhoneNumber.equals(phoneNumber)) {
+            Customer existing = byPhoneNumber.putIfAbsent(phoneNumber, customer);
+            if (existing != null) {
+                throw new DuplicateCustomerException("Phone number already registered: " + phoneNumber);
+            }
+            byPhoneNumber.remove(oldPhoneNumber, customer);
+        }
+        customer.setPhoneNumber(phoneNumber);
+    }
+
+    /**
+     * Creates and registers customers from a list of records in parallel.
+     * Each record is onboarded independently; invalid or duplicate records are reported without
+     * affecting the others.
+     *
+     * @param records the customer records to onboard
+     * @return the number of customers registered and the rejected records
+     * @throws IllegalArgumentException if the records list is null
+     */
+    public OnboardingResult onboard(List<CustomerRecord> records) {
+        if (records == null) {
+            throw new IllegalArgumentException("Records cannot be null.");
+        }
+        AtomicInteger onboarded = new AtomicInteger();
+        Queue<OnboardingFailure> failures = new ConcurrentLinkedQueue<>();
+        IntStream.range(0, records.size()).parallel().forEach(index -> {
+            CustomerRecord record = records.get(index);
+            if (record == null) {
+                failures.add(new OnboardingFailure(index, "Record cannot be null."));
+                return;
+            }
+            try {
+                register(new Customer(record.name(), record.email(), record.phoneNumber(), record.balance()));
+                onboarded.incrementAndGet();
+            } catch (IllegalArgumentException | DuplicateCustomerException e) {
+                failures.add(new OnboardingFailure(index, e.getMessage()));
+            }
+        });
+        List<OnboardingFailure> sortedFailures = new ArrayList<>(failures);
+        sortedFailures.sort(Comparator.comparingInt(OnboardingFailure::index));
+        return new OnboardingResult(onboarded.get(), sortedFailures);
+    }
+
+    /**
+     * Gets the number of registered customers.
+     *
+     * @return the number of customers
+     */
+    public int size() {
+        return byEmail.size();
+    }
+
+    /**
+     * Ensures a customer is registered in this directory.
+     *
+     * @param customer the customer
+     * @throws IllegalArgumentException if the customer is null or not registered
+     */
+    private void requireRegistered(Customer customer) {
+        if (customer == null || byEmail.get(emailKey(customer.getEmail())) != customer) {
+            throw new IllegalArgumentException("Customer is not registered.");
+        }
+    }
+
+    /**
+     * Normalizes an email address for the index.
+     *
+     * @param email the email address
+     * @return the index key
+     */
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
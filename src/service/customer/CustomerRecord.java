@@ -0,0 +1,12 @@
+package service.customer;
+
+/**
+ * The details of a customer to onboard.
+ *
+ * @param name        the name of the customer
+ * @param email       the email address of the customer
+ * @param phoneNumber the phone number of the customer
+ * @param balance     the initial balance of the customer
+ */
+public record CustomerRecord(String name, String email, String phoneNumber, double balance) {
+}
@@ -0,0 +1,10 @@
+package service.customer;
+
+/**
+ * A customer record that could not be onboarded.
+ *
+ * @param index  the position of the record in the onboarded list
+ * @param reason why the record was rejected
+ */
+public record OnboardingFailure(int index, String reason) {
+}
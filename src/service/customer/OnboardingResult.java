@@ -0,0 +1,12 @@
+package service.customer;
+
+import java.util.List;
+
+/**
+ * The result of a bulk onboarding run.
+ *
+ * @param onboarded the number of customers registered
+ * @param failures  the records that were rejected, ordered by index
+ */
+public record OnboardingResult(int onboarded, List<OnboardingFailure> failures) {
+}
@@ -0,0 +1,21 @@
+package service.events;
+
+/**
+ * What an {@link OrderEventPublisher} does with a new event when a subscriber's buffer is full.
+ */
+public enum BackpressureStrategy {
+    /**
+     * Waits until the subscriber makes room. No event is lost, but the publishing thread, e.g. a checkout,
+     * is held up by the slowest such subscriber. Not accepted by a publisher attached to cart and stock
+     * changes, which are published while a monitor is held.
+     */
+    BLOCK,
+    /**
+     * Drops the oldest buffered event to make room for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * Replaces the newest buffered event with the new one, so a lagging subscriber still sees the latest event.
+     */
+    SAMPLE
+}
@@ -0,0 +1,11 @@
+package service.events;
+
+import entity.CartChangeEvent;
+
+/**
+ * Published whenever a shopping cart changes.
+ *
+ * @param change the cart change
+ */
+public record CartChangedEvent(CartChangeEvent change) implements OrderEvent {
+}
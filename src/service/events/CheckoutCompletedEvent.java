@@ -0,0 +1,13 @@
+package service.events;
+
+import entity.Customer;
+import service.CheckoutResult;
+
+/**
+ * Published when a checkout completes.
+ *
+ * @param customer the customer who checked out
+ * @param result   the result of the checkout
+ */
+public record CheckoutCompletedEvent(Customer customer, CheckoutResult result) implements OrderEvent {
+}
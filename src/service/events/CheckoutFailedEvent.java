@@ -0,0 +1,12 @@
+package service.events;
+
+import entity.Customer;
+
+/**
+ * Published when a checkout fails.
+ *
+ * @param customer the customer whose checkout failed
+ * @param cause    the exception that failed the checkout
+ */
+public record CheckoutFailedEvent(Customer customer, RuntimeException cause) implements OrderEvent {
+}
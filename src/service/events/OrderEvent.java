@@ -0,0 +1,7 @@
+package service.events;
+
+/**
+ * An event published to downstream systems through an {@link OrderEventPublisher}.
+ */
+public sealed interface OrderEvent permits CartChangedEvent, StockChangedEvent, CheckoutCompletedEvent, CheckoutFailedEvent {
+}
@@ -0,0 +1,392 @@
+package service.events;
+
+import entity.CartChangeListener;
+import entity.CartEvents;
+import entity.product.StockChangeListener;
+import entity.product.StockEvents;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The OrderEventPublisher class streams {@link OrderEvent}s to downstream subscribers.
+ * Every subscriber gets its own bounded buffer and {@link BackpressureStrategy}; events are delivered on
+ * the publisher's threads as the subscriber requests them, so publishing only costs an enqueue per
+ * subscriber and a slow subscriber never holds up the publishing thread unless it asked to
+ * {@link BackpressureStrategy#BLOCK block}.
+ * Once {@link #attach() attached}, the publisher streams every cart and stock change. Those changes are
+ * published while the cart's or product's monitor is held, so an attached publisher does not accept
+ * {@link BackpressureStrategy#BLOCK blocking} subscribers: a full buffer would hold every thread waiting
+ * for the monitor.
+ */
+public class OrderEventPublisher implements Flow.Publisher<OrderEvent>, AutoCloseable {
+    private static final int MAX_DRAIN_BATCH = 64;
+
+    private final int defaultBufferSize;
+    private final BackpressureStrategy defaultStrategy;
+    private final ExecutorService executor;
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final List<BufferedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final CartChangeListener cartListener = event -> publish(new CartChangedEvent(event));
+    private final StockChangeListener stockListener = event -> publish(new StockChangedEvent(event));
+    private boolean attached;
+    private volatile boolean closed;
+
+    /**
+     * Constructs an OrderEventPublisher.
+     *
+     * @param defaultBufferSize the buffer size of subscribers that do not choose one
+     * @param defaultStrategy   the backpressure strategy of subscribers that do not choose one
+     * @param threads           the number of threads delivering events
+     * @throws IllegalArgumentException if the buffer size or threads is not positive, or the strategy is null
+     */
+    public OrderEventPublisher(int defaultBufferSize, BackpressureStrategy defaultStrategy, int threads) {
+        if (defaultBufferSize <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Buffer size and threads must be greater than zero.");
+        }
+        if (defaultStrategy == null) {
+            throw new IllegalArgumentException("Backpressure strategy cannot be null.");
+        }
+        this.defaultBufferSize = defaultBufferSize;
+        this.defaultStrategy = defaultStrategy;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "order-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Subscribes with the default buffer size and backpressure strategy.
+     *
+     * @param subscriber the subscriber
+     * @throws NullPointerException if the subscriber is null, as required by {@link Flow.Publisher}
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super OrderEvent> subscriber) {
+        subscribe(subscriber, defaultBufferSize, defaultStrategy);
+    }
+
+    /**
+     * Subscribes with a buffer of the given size and the given backpressure strategy.
+     * The subscriber receives its subscription before it can be completed or sent any event; a subscriber
+     * joining a closed publisher is completed right after.
+     *
+     * @param subscriber the subscriber
+     * @param bufferSize the number of events buffered for the subscriber
+     * @param strategy   what to do with new events while the buffer is full
+     * @throws NullPointerException if the subscriber is null, as required by {@link Flow.Publisher}
+     * @throws IllegalArgumentException if the buffer size is not positive or the strategy is null
+     * @throws IllegalStateException if the strategy is {@link BackpressureStrategy#BLOCK} and the publisher is attached
+     */
+    public void subscribe(Flow.Subscriber<? super OrderEvent> subscriber, int bufferSize, BackpressureStrategy strategy) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber cannot be null.");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be greater than zero.");
+        }
+        if (strategy == null) {
+            throw new IllegalArgumentException("Backpressure strategy cannot be null.");
+        }
+        synchronized (this) {
+            if (attached && strategy == BackpressureStrategy.BLOCK) {
+                throw new IllegalStateException("Blocking subscribers cannot join a publisher streaming cart and stock changes.");
+            }
+        }
+        BufferedSubscription subscription = new BufferedSubscription(subscriber, bufferSize, strategy);
+        subscriber.onSubscribe(subscription);
+        boolean attachedSince;
+        boolean closedSince;
+        synchronized (this) {
+            // Registering and checking for close under the monitor close() takes means the subscription is
+            // completed exactly once: here if the publisher closed first, by close() otherwise
+            attachedSince = attached && strategy == BackpressureStrategy.BLOCK;
+            closedSince = closed;
+            if (!attachedSince && !closedSince) {
+                subscriptions.add(subscription);
+            }
+        }
+        if (attachedSince) {
+            subscription.cancel();
+            subscriber.onError(new IllegalStateException("Blocking subscribers cannot join a publisher streaming cart and stock changes."));
+        } else if (closedSince) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Publishes an event to every subscriber. Does nothing once the publisher is closed.
+     *
+     * @param event the event to publish
+     * @throws IllegalArgumentException if the event is null
+     */
+    public void publish(OrderEvent event) {
+        if (event == null) {
+            throw new IllegalArgumentException("Event cannot be null.");
+        }
+        if (closed) {
+            return;
+        }
+        for (BufferedSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Starts streaming every cart and stock change to the subscribers. Does nothing if already attached.
+     *
+     * @throws IllegalStateException if a subscriber uses the {@link BackpressureStrategy#BLOCK} strategy
+     */
+    public synchronized void attach() {
+        if (attached) {
+            return;
+        }
+        for (BufferedSubscription subscription : subscriptions) {
+            if (subscription.strategy == BackpressureStrategy.BLOCK) {
+                throw new IllegalStateException("Cannot stream cart and stock changes to blocking subscribers.");
+            }
+        }
+        attached = true;
+        CartEvents.addListener(cartListener);
+        StockEvents.addListener(stockListener);
+    }
+
+    /**
+     * Stops streaming cart and stock changes.
+     */
+    public synchronized void detach() {
+        attached = false;
+        CartEvents.removeListener(cartListener);
+        StockEvents.removeListener(stockListener);
+    }
+
+    /**
+     * Gets the number of current subscribers.
+     *
+     * @return the number of subscribers
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Gets the number of events dropped or replaced across all subscribers because their buffers were full.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Detaches the publisher, stops accepting events and completes every subscriber once it has received
+     * the events already buffered for it.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            detach();
+            closed = true;
+        }
+        for (BufferedSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * The subscription of one subscriber: a bounded buffer of events drained as the subscriber requests them.
+     * At most one thread drains a subscription at a time, so the subscriber's methods are never called concurrently.
+     */
+    private final class BufferedSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super OrderEvent> subscriber;
+        private final int capacity;
+        private final BackpressureStrategy strategy;
+        private final ArrayDeque<OrderEvent> buffer;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notFull = lock.newCondition();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile boolean completed;
+        private volatile boolean invalidRequest;
+
+        private BufferedSubscription(Flow.Subscriber<? super OrderEvent> subscriber, int capacity, BackpressureStrategy strategy) {
+            this.subscriber = subscriber;
+            this.capacity = capacity;
+            this.strategy = strategy;
+            this.buffer = new ArrayDeque<>(capacity);
+        }
+
+        /**
+         * Requests more events. A non-positive request cancels the subscription and fails the subscriber,
+         * as required by {@link Flow.Subscription}.
+         *
+         * @param n the number of additional events the subscriber is ready to receive
+         */
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = true;
+            } else {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            scheduleDrain();
+        }
+
+        /**
+         * Cancels the subscription, discarding buffered events and releasing any blocked publisher.
+         */
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            lock.lock();
+            try {
+                buffer.clear();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Buffers an event for the subscriber, applying the backpressure strategy if the buffer is full.
+         *
+         * @param event the event to buffer
+         */
+        private void offer(OrderEvent event) {
+            lock.lock();
+            try {
+                if (cancelled || completed) {
+                    return;
+                }
+                if (buffer.size() == capacity) {
+                    switch (strategy) {
+                        case BLOCK -> {
+                            while (buffer.size() == capacity && !cancelled) {
+                                notFull.awaitUninterruptibly();
+                            }
+                            if (cancelled) {
+                                return;
+                            }
+                        }
+                        case DROP_OLDEST -> {
+                            buffer.pollFirst();
+                            droppedCount.incrementAndGet();
+                        }
+                        case SAMPLE -> {
+                            buffer.pollLast();
+                            droppedCount.incrementAndGet();
+                        }
+                    }
+                }
+                buffer.addLast(event);
+            } finally {
+                lock.unlock();
+            }
+            scheduleDrain();
+        }
+
+        /**
+         * Marks the subscription complete; the subscriber is completed once its buffer is drained.
+         */
+        private void complete() {
+            completed = true;
+            scheduleDrain();
+        }
+
+        /**
+         * Schedules a drain on the publisher's threads unless one is already running, in which case the
+         * running drain picks up the new work. Drains after the publisher has shut down run on the caller.
+         */
+        private void scheduleDrain() {
+            if (pendingDrains.getAndIncrement() != 0) {
+                return;
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                drain();
+            }
+        }
+
+        /**
+         * Delivers buffered events while the subscriber has demand, then completes or fails the subscriber if due.
+         * After a batch of events the drain hands its thread back to the pool, so a slow subscriber cannot
+         * monopolize the delivery threads.
+         */
+        private void drain() {
+            int missed = 1;
+            int delivered = 0;
+            while (true) {
+                while (!cancelled) {
+                    if (invalidRequest) {
+                        cancel();
+                        subscriber.onError(new IllegalArgumentException("Requested number of events must be greater than zero."));
+                        break;
+                    }
+                    OrderEvent event = null;
+                    boolean done = false;
+                    lock.lock();
+                    try {
+                        if (!buffer.isEmpty() && demand.get() > 0) {
+                            event = buffer.pollFirst();
+                            notFull.signal();
+                        } else if (buffer.isEmpty() && completed) {
+                            done = true;
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                    if (event != null) {
+                        demand.getAndUpdate(current -> current == Long.MAX_VALUE ? current : current - 1);
+                        try {
+                            subscriber.onNext(event);
+                        } catch (RuntimeException e) {
+                            // A subscriber that throws is treated as having cancelled
+                            cancel();
+                        }
+                        if (++delivered == MAX_DRAIN_BATCH && resubmit()) {
+                            return;
+                        }
+                    } else if (done) {
+                        cancel();
+                        subscriber.onComplete();
+                    } else {
+                        break;
+                    }
+                }
+                missed = pendingDrains.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Continues the current drain in a new task at the back of the pool's queue.
+         *
+         * @return true if the drain was resubmitted, false if the publisher has shut down
+         */
+        private boolean resubmit() {
+            try {
+                executor.execute(this::drain);
+                return true;
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package service.events;
+
+import entity.product.StockChangeEvent;
+
+/**
+ * Published whenever a product's stock quantity changes.
+ *
+ * @param change the stock change
+ */
+public record StockChangedEvent(StockChangeEvent change) implements OrderEvent {
+}
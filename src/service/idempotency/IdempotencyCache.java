@@ -0,0 +1,164 @@
+package service.idempotency;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, time-evicting cache of operation results keyed by idempotency key.
+ * The first call for a key runs the operation; later calls with the same key, including calls that arrive
+ * while the first one is still running, receive the same result without running the operation again.
+ * Failed operations are not cached, so a retry after a failure runs the operation again.
+ * Completed entries are evicted in completion order once they are older than the time-to-live or the cache
+ * is full. An entry whose operation is still running is never evicted, since a retry arriving after its
+ * eviction would run the operation, e.g. charge the customer, a second time; the cache may therefore hold
+ * more than its maximum while that many operations are in flight.
+ *
+ * @param <T> the type of the cached results
+ */
+public class IdempotencyCache<T> {
+    private final ConcurrentHashMap<String, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry<T>> completionOrder = new ConcurrentLinkedQueue<>();
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    /**
+     * Constructs an IdempotencyCache.
+     *
+     * @param maxEntries the maximum number of results kept
+     * @param ttlMillis  how long a result is kept, in milliseconds
+     * @throws IllegalArgumentException if maxEntries or ttlMillis is not positive
+     */
+    public IdempotencyCache(int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Maximum entries must be greater than zero.");
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Time-to-live must be greater than zero.");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * Returns the result recorded for the key, running the operation if there is none.
+     *
+     * @param key       the idempotency key
+     * @param operation the operation to run for a new key
+     * @return the result of the operation for this key
+     * @throws IllegalArgumentException if the key is null or blank, or the operation is null
+     * @throws RuntimeException         whatever the operation threw, for the call that ran it and any concurrent duplicates
+     */
+    public T execute(String key, Supplier<T> operation) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalArgumentException("Idempotency key cannot be null or empty.");
+        }
+        if (operation == null) {
+            throw new IllegalArgumentException("Operation cannot be null.");
+        }
+
+        long now = System.nanoTime();
+        Entry<T> existing = entries.get(key);
+        if (existing != null && !existing.isExpired(now, ttlNanos)) {
+            return await(existing);
+        }
+
+        Entry<T> created = new Entry<>(key);
+        Entry<T> winner = existing == null
+                ? entries.putIfAbsent(key, created)
+                : (entries.replace(key, existing, created) ? null : entries.get(key));
+        if (winner != null) {
+            // Another caller registered this key first; share its result
+            return await(winner);
+        }
+
+        evict(now);
+        try {
+            T result = operation.get();
+            created.completedNanos = System.nanoTime();
+            created.result.complete(result);
+            completionOrder.add(created);
+            evict(created.completedNanos);
+            return result;
+        } catch (RuntimeException | Error e) {
+            entries.remove(key, created);
+            created.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of results currently held.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes expired entries and, if the cache is still over capacity, the entries completed longest ago.
+     * Entries still running are not in the completion order, so they are never removed here.
+     *
+     * @param now the current time in nanoseconds
+     */
+    private void evict(long now) {
+        Entry<T> oldest;
+        while ((oldest = completionOrder.peek()) != null
+                && (oldest.isExpired(now, ttlNanos) || entries.size() > maxEntries)) {
+            if (completionOrder.remove(oldest)) {
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    /**
+     * Waits for an entry's result, rethrowing the original exception if the operation failed.
+     *
+     * @param entry the entry to wait for
+     * @return the entry's result
+     */
+    private T await(Entry<T> entry) {
+        try {
+            return entry.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A cached result together with its key and the time its operation completed.
+     *
+     * @param <T> the type of the result
+     */
+    private static final class Entry<T> {
+        private final String key;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private volatile long completedNanos;
+
+        private Entry(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Checks whether the entry's result has outlived the time-to-live. An entry still running never expires.
+         *
+         * @param now      the current time in nanoseconds
+         * @param ttlNanos the time-to-live in nanoseconds
+         * @return true if the entry completed more than the time-to-live ago, false otherwise
+         */
+        private boolean isExpired(long now, long ttlNanos) {
+            return result.isDone() && now - completedNanos > ttlNanos;
+        }
+    }
+}
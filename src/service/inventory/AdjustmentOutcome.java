@@ -0,0 +1,21 @@
+package service.inventory;
+
+/**
+ * The outcome of applying a single inventory adjustment line.
+ */
+public enum AdjustmentOutcome {
+    /**
+     * The adjustment was applied to the product's stock.
+     */
+    APPLIED,
+
+    /**
+     * The adjustment was rejected because it would have made the stock negative.
+     */
+    REJECTED_INSUFFICIENT_STOCK,
+
+    /**
+     * The adjustment line itself was invalid (missing product or type, or non-positive quantity).
+     */
+    INVALID
+}
@@ -0,0 +1,19 @@
+package service.inventory;
+
+/**
+ * The result of applying a single inventory adjustment line.
+ *
+ * @param adjustment        the adjustment line
+ * @param outcome           whether the line was applied, rejected or invalid
+ * @param resultingQuantity the product's stock after this line was processed, or -1 if the line was invalid
+ */
+public record AdjustmentResult(InventoryAdjustment adjustment, AdjustmentOutcome outcome, int resultingQuantity) {
+    /**
+     * Checks whether the adjustment line was applied.
+     *
+     * @return true if the line was applied, false otherwise
+     */
+    public boolean isApplied() {
+        return outcome == AdjustmentOutcome.APPLIED;
+    }
+}
@@ -0,0 +1,37 @@
+package service.inventory;
+
+/**
+ * The kind of an inventory adjustment, which determines the direction of the stock change.
+ */
+public enum AdjustmentType {
+    /**
+     * Goods received from a supplier; adds stock.
+     */
+    RECEIPT(1),
+
+    /**
+     * Damaged, lost or expired goods written off; removes stock.
+     */
+    WRITE_OFF(-1),
+
+    /**
+     * Goods returned by a customer; adds stock.
+     */
+    RETURN(1);
+
+    private final int sign;
+
+    AdjustmentType(int sign) {
+        this.sign = sign;
+    }
+
+    /**
+     * Converts an unsigned adjustment quantity into a signed stock delta.
+     *
+     * @param quantity the unsigned quantity of the adjustment
+     * @return the signed delta to apply to the stock
+     */
+    public int toDelta(int quantity) {
+        return sign * quantity;
+    }
+}
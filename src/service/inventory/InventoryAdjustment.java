@@ -0,0 +1,21 @@
+package service.inventory;
+
+import entity.product.Product;
+
+/**
+ * A single line of an inventory adjustment batch.
+ *
+ * @param product  the product to adjust
+ * @param type     the kind of adjustment
+ * @param quantity the number of units received, written off or returned; must be greater than zero
+ */
+public record InventoryAdjustment(Product product, AdjustmentType type, int quantity) {
+    /**
+     * Returns the signed stock delta of this adjustment.
+     *
+     * @return the signed delta
+     */
+    public int delta() {
+        return type.toDelta(quantity);
+    }
+}
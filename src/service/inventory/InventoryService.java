@@ -0,0 +1,146 @@
+package service.inventory;
+
+import entity.product.Product;
+import entity.product.StockChangeReason;
+import exception.InsufficientQuantityException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The InventoryService class applies batches of stock adjustments (receipts, write-offs and returns).
+ * Lines are grouped by product so each product's monitor is taken once per batch; within a product,
+ * lines are applied in their original order and each line is individually accepted or rejected.
+ * The net change of each product is published as a single stock change event.
+ * Products in flash-sale mode keep selling without the product lock, so their lines are applied one by one.
+ */
+public class InventoryService {
+    private InventoryService() {
+    }
+
+    /**
+     * Applies a batch of inventory adjustments.
+     * Each product is updated atomically with respect to concurrent checkouts and other batches.
+     * A line that would make a product's stock negative is rejected without affecting the other lines.
+     *
+     * @param adjustments the adjustment lines to apply
+     * @return the per-line results, in the same order as the given adjustments
+     * @throws IllegalArgumentException if the adjustments list is null
+     */
+    public static List<AdjustmentResult> applyBatch(List<InventoryAdjustment> adjustments) {
+        if (adjustments == null) {
+            throw new IllegalArgumentException("Adjustments cannot be null.");
+        }
+
+        AdjustmentResult[] results = new AdjustmentResult[adjustments.size()];
+
+        // Group line indices by product, keeping the original order within each product
+        Map<Product, int[]> linesByProduct = new IdentityHashMap<>();
+        int[] lineCounts = new int[adjustments.size()];
+        for (int i = 0; i < adjustments.size(); i++) {
+            InventoryAdjustment adjustment = adjustments.get(i);
+            if (!isValid(adjustment)) {
+                results[i] = new AdjustmentResult(adjustment, AdjustmentOutcome.INVALID, -1);
+                continue;
+            }
+            int[] lines = linesByProduct.get(adjustment.product());
+            if (lines == null) {
+                lines = new int[4];
+                linesByProduct.put(adjustment.product(), lines);
+            }
+            // lines[0] holds the number of indices stored after it
+            int count = lines[0];
+            if (count + 1 == lines.length) {
+                lines = Arrays.copyOf(lines, lines.length * 2);
+                linesByProduct.put(adjustment.product(), lines);
+            }
+            lines[count + 1] = i;
+            lines[0] = count + 1;
+        }
+
+        for (Map.Entry<Product, int[]> entry : linesByProduct.entrySet()) {
+            applyProductLines(entry.getKey(), entry.getValue(), adjustments, results);
+        }
+
+        return new ArrayList<>(Arrays.asList(results));
+    }
+
+    /**
+     * Applies all lines of a batch that target a single product while holding the product's monitor.
+     * The flash-sale mode is checked again once the monitor is held, since it may have been switched on
+     * in the meantime; the net change would otherwise race the lock-free takes of concurrent checkouts.
+     *
+     * @param product     the product to adjust
+     * @param lines       the line indices, with the count stored at index 0
+     * @param adjustments the full adjustment batch
+     * @param results     the per-line results to fill in
+     */
+    private static void applyProductLines(Product product, int[] lines, List<InventoryAdjustment> adjustments,
+                                          AdjustmentResult[] results) {
+        if (product.isFlashSale()) {
+            applyFlashSaleLines(product, lines, adjustments, results);
+            return;
+        }
+        synchronized (product) {
+            // Flash-sale mode is only switched on under the monitor, so it cannot change from here on
+            if (product.isFlashSale()) {
+                applyFlashSaleLines(product, lines, adjustments, results);
+                return;
+            }
+            int startQuantity = product.getQuantity();
+            long running = startQuantity;
+            for (int j = 1; j <= lines[0]; j++) {
+                int index = lines[j];
+                InventoryAdjustment adjustment = adjustments.get(index);
+                long next = running + adjustment.delta();
+                if (next < 0 || next > Integer.MAX_VALUE) {
+                    results[index] = new AdjustmentResult(adjustment, AdjustmentOutcome.REJECTED_INSUFFICIENT_STOCK, (int) running);
+                } else {
+                    running = next;
+                    results[index] = new AdjustmentResult(adjustment, AdjustmentOutcome.APPLIED, (int) running);
+                }
+            }
+            if (running != startQuantity) {
+                product.adjustQuantity((int) (running - startQuantity), StockChangeReason.ADJUSTMENT);
+            }
+        }
+    }
+
+    /**
+     * Applies all lines of a batch that target a product in flash-sale mode, one atomic adjustment per line.
+     *
+     * @param product     the product to adjust
+     * @param lines       the line indices, with the count stored at index 0
+     * @param adjustments the full adjustment batch
+     * @param results     the per-line results to fill in
+     */
+    private static void applyFlashSaleLines(Product product, int[] lines, List<InventoryAdjustment> adjustments,
+                                            AdjustmentResult[] results) {
+        for (int j = 1; j <= lines[0]; j++) {
+            int index = lines[j];
+            InventoryAdjustment adjustment = adjustments.get(index);
+            try {
+                int quantity = product.adjustQuantity(adjustment.delta(), StockChangeReason.ADJUSTMENT);
+                results[index] = new AdjustmentResult(adjustment, AdjustmentOutcome.APPLIED, quantity);
+            } catch (InsufficientQuantityException | IllegalArgumentException e) {
+                results[index] = new AdjustmentResult(adjustment, AdjustmentOutcome.REJECTED_INSUFFICIENT_STOCK, product.getQuantity());
+            }
+        }
+    }
+
+    /**
+     * Checks whether an adjustment line is well-formed.
+     *
+     * @param adjustment the adjustment line
+     * @return true if the line has a product, a type and a positive quantity
+     */
+    private static boolean isValid(InventoryAdjustment adjustment) {
+        return adjustment != null
+                && adjustment.product() != null
+                && adjustment.type() != null
+                && adjustment.quantity() > 0;
+    }
+}
@@ -0,0 +1,75 @@
+package service.payment;
+
+import entity.Customer;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A hold of funds on a customer's balance, created by a {@link PaymentGateway}.
+ */
+public class Authorization {
+    private final long id;
+    private final Customer customer;
+    private final double amount;
+    private final AtomicReference<AuthorizationStatus> status = new AtomicReference<>(AuthorizationStatus.AUTHORIZED);
+
+    /**
+     * Constructs an Authorization in the {@link AuthorizationStatus#AUTHORIZED} state.
+     *
+     * @param id       the identifier assigned by the gateway
+     * @param customer the customer whose funds are held
+     * @param amount   the amount held
+     */
+    public Authorization(long id, Customer customer, double amount) {
+        this.id = id;
+        this.customer = customer;
+        this.amount = amount;
+    }
+
+    /**
+     * Gets the identifier assigned by the gateway.
+     *
+     * @return the authorization id
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the customer whose funds are held.
+     *
+     * @return the customer
+     */
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    /**
+     * Gets the amount held.
+     *
+     * @return the amount
+     */
+    public double getAmount() {
+        return amount;
+    }
+
+    /**
+     * Gets the current status of the authorization.
+     *
+     * @return the status
+     */
+    public AuthorizationStatus getStatus() {
+        return status.get();
+    }
+
+    /**
+     * Moves the authorization from one status to another if it is still in the expected status.
+     *
+     * @param expected the status the authorization must be in
+     * @param next     the status to move to
+     * @return true if the status changed, false if the authorization was not in the expected status
+     */
+    public boolean transition(AuthorizationStatus expected, AuthorizationStatus next) {
+        return status.compareAndSet(expected, next);
+    }
+}
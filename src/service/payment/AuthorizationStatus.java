@@ -0,0 +1,26 @@
+package service.payment;
+
+/**
+ * The lifecycle states of a payment authorization.
+ */
+public enum AuthorizationStatus {
+    /**
+     * The funds are held on the customer's balance.
+     */
+    AUTHORIZED,
+
+    /**
+     * The capture was requested and is waiting for the next settlement batch.
+     */
+    CAPTURE_PENDING,
+
+    /**
+     * The funds were captured in a settlement batch.
+     */
+    SETTLED,
+
+    /**
+     * The authorization was cancelled and the funds returned to the customer.
+     */
+    VOIDED
+}
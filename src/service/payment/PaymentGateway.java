@@ -0,0 +1,37 @@
+package service.payment;
+
+import entity.Customer;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A payment provider that authorizes payments up front and captures them later.
+ * Checkout completes as soon as a payment is authorized; the capture can be settled asynchronously.
+ */
+public interface PaymentGateway {
+    /**
+     * Requests an authorization holding the given amount of the customer's funds.
+     *
+     * @param customer the paying customer
+     * @param amount   the amount to authorize
+     * @return a future completed with the authorization, or exceptionally if the payment was declined
+     */
+    CompletableFuture<Authorization> authorize(Customer customer, double amount);
+
+    /**
+     * Requests the capture of an authorized payment. Captures may be settled later and in batches.
+     *
+     * @param authorization the authorization to capture
+     * @throws IllegalStateException if the authorization is not in the authorized state
+     */
+    void capture(Authorization authorization);
+
+    /**
+     * Cancels an authorized payment and returns the held funds to the customer.
+     * Does nothing if the authorization was already voided.
+     *
+     * @param authorization the authorization to void
+     * @throws IllegalStateException if the authorization has already been captured
+     */
+    void voidAuthorization(Authorization authorization);
+}
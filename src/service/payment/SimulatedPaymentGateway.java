@@ -0,0 +1,283 @@
+package service.payment;
+
+import entity.Customer;
+import exception.InsufficientBalanceException;
+import exception.PaymentDeclinedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * An in-process stand-in for an external payment provider.
+ * Authorizations complete after a configurable latency and are declined at a configurable rate; approved
+ * authorizations hold the funds by debiting the customer's balance. Captures are queued and settled in
+ * batches, either on a fixed interval or as soon as a full batch is waiting, each batch paying the
+ * provider latency once. Latencies are simulated by scheduling the completion rather than sleeping, so a
+ * settlement in flight never holds up authorizations sharing the simulator threads.
+ */
+public class SimulatedPaymentGateway implements PaymentGateway, AutoCloseable {
+    private final long latencyMillis;
+    private final double failureRate;
+    private final int settlementBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    private final Queue<Authorization> pendingCaptures = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong authorizedCount = new AtomicLong();
+    private final AtomicLong declinedCount = new AtomicLong();
+    private final AtomicLong settledCount = new AtomicLong();
+    private final AtomicLong settlementBatchCount = new AtomicLong();
+    private final DoubleAdder settledAmount = new DoubleAdder();
+
+    /**
+     * Constructs a SimulatedPaymentGateway.
+     *
+     * @param latencyMillis            the simulated provider latency of each authorization and settlement batch
+     * @param failureRate              the fraction of authorizations declined, between 0 and 1
+     * @param settlementBatchSize      the number of captures settled together
+     * @param settlementIntervalMillis how often pending captures are settled even if the batch is not full
+     * @param threads                  the number of threads simulating the provider
+     * @throws IllegalArgumentException if any value is out of range
+     */
+    public SimulatedPaymentGateway(long latencyMillis, double failureRate, int settlementBatchSize,
+                                   long settlementIntervalMillis, int threads) {
+        if (latencyMillis < 0) {
+            throw new IllegalArgumentException("Latency cannot be negative.");
+        }
+        if (failureRate < 0 || failureRate > 1) {
+            throw new IllegalArgumentException("Failure rate must be between 0 and 1.");
+        }
+        if (settlementBatchSize <= 0 || settlementIntervalMillis <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Batch size, settlement interval and threads must be greater than zero.");
+        }
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+        this.settlementBatchSize = settlementBatchSize;
+        this.scheduler = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "payment-gateway-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::settlePending, settlementIntervalMillis, settlementIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Authorizes a payment after the simulated latency, holding the funds on the customer's balance.
+     *
+     * @param customer the paying customer
+     * @param amount   the amount to authorize
+     * @return a future completed with the authorization, or exceptionally with a
+     *         {@link PaymentDeclinedException} or {@link InsufficientBalanceException}
+     * @throws IllegalArgumentException if the customer is null or the amount is negative
+     */
+    @Override
+    public CompletableFuture<Authorization> authorize(Customer customer, double amount) {
+        if (customer == null) {
+            throw new IllegalArgumentException("Customer cannot be null.");
+        }
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount cannot be negative.");
+        }
+        CompletableFuture<Authorization> result = new CompletableFuture<>();
+        scheduler.schedule(() -> {
+            try {
+                result.complete(approve(customer, amount));
+            } catch (RuntimeException e) {
+                declinedCount.incrementAndGet();
+                result.completeExceptionally(e);
+            }
+        }, latencyMillis, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    /**
+     * Queues an authorization for the next settlement batch.
+     *
+     * @param authorization the authorization to capture
+     * @throws IllegalStateException if the authorization is not in the authorized state
+     */
+    @Override
+    public void capture(Authorization authorization) {
+        if (!authorization.transition(AuthorizationStatus.AUTHORIZED, AuthorizationStatus.CAPTURE_PENDING)) {
+            throw new IllegalStateException("Authorization " + authorization.getId() + " cannot be captured in state " + authorization.getStatus() + ".");
+        }
+        pendingCaptures.add(authorization);
+        if (pendingCount.incrementAndGet() == settlementBatchSize) {
+            scheduler.execute(this::settlePending);
+        }
+    }
+
+    /**
+     * Voids an authorization and returns the held funds to the customer's balance.
+     *
+     * @param authorization the authorization to void
+     * @throws IllegalStateException if the authorization has already been captured
+     */
+    @Override
+    public void voidAuthorization(Authorization authorization) {
+        if (authorization.transition(AuthorizationStatus.AUTHORIZED, AuthorizationStatus.VOIDED)) {
+            Customer customer = authorization.getCustomer();
+            synchronized (customer) {
+                customer.setBalance(customer.getBalance() + authorization.getAmount());
+            }
+            return;
+        }
+        if (authorization.getStatus() != AuthorizationStatus.VOIDED) {
+            throw new IllegalStateException("Authorization " + authorization.getId() + " has already been captured.");
+        }
+    }
+
+    /**
+     * Settles all pending captures and stops the simulator threads.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(latencyMillis + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        while (!pendingCaptures.isEmpty()) {
+            settleBatch(drainBatch());
+        }
+    }
+
+    /**
+     * Gets the number of approved authorizations.
+     *
+     * @return the number of authorizations
+     */
+    public long getAuthorizedCount() {
+        return authorizedCount.get();
+    }
+
+    /**
+     * Gets the number of declined authorizations, including those declined for insufficient balance.
+     *
+     * @return the number of declines
+     */
+    public long getDeclinedCount() {
+        return declinedCount.get();
+    }
+
+    /**
+     * Gets the number of captures waiting for settlement.
+     *
+     * @return the number of pending captures
+     */
+    public int getPendingCaptureCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Gets the number of settled captures.
+     *
+     * @return the number of settled captures
+     */
+    public long getSettledCount() {
+        return settledCount.get();
+    }
+
+    /**
+     * Gets the total amount settled.
+     *
+     * @return the settled amount
+     */
+    public double getSettledAmount() {
+        return settledAmount.sum();
+    }
+
+    /**
+     * Gets the number of settlement batches sent to the provider.
+     *
+     * @return the number of settlement batches
+     */
+    public long getSettlementBatchCount() {
+        return settlementBatchCount.get();
+    }
+
+    /**
+     * Decides an authorization request and, if approved, holds the funds.
+     *
+     * @param customer the paying customer
+     * @param amount   the amount to authorize
+     * @return the approved authorization
+     * @throws PaymentDeclinedException if the simulated provider declines the payment
+     * @throws InsufficientBalanceException if the customer cannot cover the amount
+     */
+    private Authorization approve(Customer customer, double amount) {
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new PaymentDeclinedException("Payment declined by provider for customer: " + customer.getEmail());
+        }
+        synchronized (customer) {
+            if (amount > customer.getBalance()) {
+                throw new InsufficientBalanceException("Insufficient balance. Total cost: " + amount + ", Available balance: " + customer.getBalance());
+            }
+            customer.setBalance(customer.getBalance() - amount);
+        }
+        authorizedCount.incrementAndGet();
+        return new Authorization(nextId.incrementAndGet(), customer, amount);
+    }
+
+    /**
+     * Sends pending captures to the provider in full batches, plus one final partial batch; each batch is
+     * settled once the simulated latency has passed.
+     */
+    private void settlePending() {
+        while (!pendingCaptures.isEmpty()) {
+            List<Authorization> batch = drainBatch();
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                scheduler.schedule(() -> settleBatch(batch), latencyMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Closing: settle right away rather than lose the batch
+                settleBatch(batch);
+            }
+        }
+    }
+
+    /**
+     * Takes up to one batch of pending captures off the queue.
+     *
+     * @return the batch
+     */
+    private List<Authorization> drainBatch() {
+        List<Authorization> batch = new ArrayList<>(settlementBatchSize);
+        Authorization authorization;
+        while (batch.size() < settlementBatchSize && (authorization = pendingCaptures.poll()) != null) {
+            batch.add(authorization);
+        }
+        pendingCount.addAndGet(-batch.size());
+        return batch;
+    }
+
+    /**
+     * Marks a batch of captures as settled.
+     *
+     * @param batch the captures to settle
+     */
+    private void settleBatch(List<Authorization> batch) {
+        for (Authorization authorization : batch) {
+            authorization.transition(AuthorizationStatus.CAPTURE_PENDING, AuthorizationStatus.SETTLED);
+            settledAmount.add(authorization.getAmount());
+        }
+        settledCount.addAndGet(batch.size());
+        settlementBatchCount.incrementAndGet();
+    }
+}
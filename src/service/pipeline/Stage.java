@@ -0,0 +1,220 @@
+package service.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * One stage of a staged (SEDA) pipeline: a bounded input queue drained in batches by a dedicated pool
+ * of worker threads. A full queue blocks producers, so back pressure travels upstream stage by stage.
+ * Once the stage is closed it accepts no more items; anything still queued when its workers have stopped
+ * is handed to the stage's rejection handler.
+ *
+ * @param <T> the type of the items flowing through the stage
+ */
+public class Stage<T> implements AutoCloseable {
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int maxBatchSize;
+    private final Consumer<List<T>> handler;
+    private final Consumer<? super T> rejected;
+    private final ReadWriteLock submitLock = new ReentrantReadWriteLock();
+    private final Thread[] workers;
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private volatile int peakQueueDepth;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs and starts a Stage.
+     * The handler must deal with failures of individual items itself; an exception escaping the handler
+     * is reported on standard error and the batch is dropped.
+     *
+     * @param name     the name of the stage, used for its worker threads
+     * @param config   the sizing of the stage
+     * @param handler  the function processing each batch of items
+     * @param rejected the function receiving each item left unprocessed when the stage is closed
+     * @throws IllegalArgumentException if any argument is null
+     */
+    public Stage(String name, StageConfig config, Consumer<List<T>> handler, Consumer<? super T> rejected) {
+        if (name == null || config == null || handler == null || rejected == null) {
+            throw new IllegalArgumentException("Name, config and handlers cannot be null.");
+        }
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(config.queueCapacity());
+        this.maxBatchSize = config.maxBatchSize();
+        this.handler = handler;
+        this.rejected = rejected;
+        this.workers = new Thread[config.threads()];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::work, name + "-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Adds an item to the stage, waiting for room if the queue is full.
+     *
+     * @param item the item to process
+     * @throws IllegalStateException if the stage has been closed or the calling thread was interrupted
+     */
+    public void put(T item) {
+        submitLock.readLock().lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Stage " + name + " is closed.");
+            }
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while submitting to stage " + name + ".");
+        } finally {
+            submitLock.readLock().unlock();
+        }
+        recordDepth();
+    }
+
+    /**
+     * Adds an item to the stage if there is room in the queue.
+     *
+     * @param item the item to process
+     * @return true if the item was queued, false if the queue is full
+     * @throws IllegalStateException if the stage has been closed
+     */
+    public boolean offer(T item) {
+        boolean queued;
+        submitLock.readLock().lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Stage " + name + " is closed.");
+            }
+            queued = queue.offer(item);
+        } finally {
+            submitLock.readLock().unlock();
+        }
+        if (queued) {
+            recordDepth();
+        }
+        return queued;
+    }
+
+    /**
+     * Gets the name of the stage.
+     *
+     * @return the name of the stage
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of items waiting in the stage's queue.
+     *
+     * @return the current queue depth
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Gets the highest queue depth observed since the stage started.
+     *
+     * @return the peak queue depth
+     */
+    public int getPeakQueueDepth() {
+        return peakQueueDepth;
+    }
+
+    /**
+     * Gets the number of items the stage has processed.
+     *
+     * @return the number of processed items
+     */
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * Gets the average number of items per processed batch.
+     *
+     * @return the average batch size, or 0 if no batch has been processed
+     */
+    public double getAverageBatchSize() {
+        long batches = batchCount.get();
+        return batches == 0 ? 0.0 : (double) processedCount.get() / batches;
+    }
+
+    /**
+     * Stops accepting items and stops the stage's workers once they have drained the queue. Items still
+     * queued after the workers have stopped, e.g. because one of them died, are handed to the rejection handler.
+     * A submission in progress, including one waiting for room, completes before the stage stops accepting items.
+     */
+    @Override
+    public void close() {
+        submitLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            submitLock.writeLock().unlock();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        List<T> left = new ArrayList<>();
+        queue.drainTo(left);
+        for (T item : left) {
+            rejected.accept(item);
+        }
+    }
+
+    /**
+     * The worker loop: waits for an item, drains up to a batch and hands it to the handler.
+     */
+    private void work() {
+        List<T> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                handler.accept(batch);
+                processedCount.addAndGet(batch.size());
+                batchCount.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Stage " + name + " dropped a batch of " + batch.size() + ": " + e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Records the current queue depth if it is a new peak.
+     */
+    private void recordDepth() {
+        int depth = queue.size();
+        if (depth > peakQueueDepth) {
+            peakQueueDepth = depth;
+        }
+    }
+}
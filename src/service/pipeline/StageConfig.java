@@ -0,0 +1,21 @@
+package service.pipeline;
+
+/**
+ * The sizing of one pipeline stage.
+ *
+ * @param threads       the number of worker threads
+ * @param queueCapacity the maximum number of items waiting in the stage's input queue
+ * @param maxBatchSize  the maximum number of items a worker takes from the queue at once
+ */
+public record StageConfig(int threads, int queueCapacity, int maxBatchSize) {
+    /**
+     * Validates the stage sizing.
+     *
+     * @throws IllegalArgumentException if any value is not positive
+     */
+    public StageConfig {
+        if (threads <= 0 || queueCapacity <= 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Threads, queue capacity and batch size must be greater than zero.");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package service.promotion;
+
+import java.util.Arrays;
+
+/**
+ * A promotion that sells one unit each of several SKUs together at a fixed bundle price.
+ * The bundle is applied as many times as the cart holds complete sets.
+ */
+public class BundlePricePromotion implements Promotion {
+    private final String name;
+    private final long[] skus;
+    private final double bundlePrice;
+
+    /**
+     * Constructs a BundlePricePromotion.
+     *
+     * @param name        the name of the promotion
+     * @param skus        the SKUs making up the bundle; must contain at least two distinct SKUs
+     * @param bundlePrice the price of one complete bundle
+     * @throws IllegalArgumentException if the name is null or empty, the SKUs are not at least two distinct values,
+     *                                  or the bundle price is negative
+     */
+    public BundlePricePromotion(String name, long[] skus, double bundlePrice) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Promotion name cannot be null or empty.");
+        }
+        if (skus == null || skus.length < 2 || Arrays.stream(skus).distinct().count() != skus.length) {
+            throw new IllegalArgumentException("A bundle needs at least two distinct SKUs.");
+        }
+        if (bundlePrice < 0) {
+            throw new IllegalArgumentException("Bundle price cannot be negative.");
+        }
+        this.name = name;
+        this.skus = skus.clone();
+        this.bundlePrice = bundlePrice;
+    }
+
+    /**
+     * Returns the name of the promotion.
+     *
+     * @return the name of the promotion
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the SKUs the promotion applies to.
+     *
+     * @return a copy of the SKUs of the promotion
+     */
+    @Override
+    public long[] getSkus() {
+        return skus.clone();
+    }
+
+    /**
+     * Calculates the saving of the bundle price over the regular prices, for every complete bundle in the cart.
+     *
+     * @param context the cart being priced
+     * @return the discount amount, or 0 if the cart holds no complete bundle
+     */
+    @Override
+    public double discount(PricingContext context) {
+        int bundles = Integer.MAX_VALUE;
+        double regularPrice = 0.0;
+        for (long sku : skus) {
+            bundles = Math.min(bundles, context.getQuantity(sku));
+            if (bundles == 0) {
+                return 0.0;
+            }
+            regularPrice += context.getPrice(sku);
+        }
+        return Math.max(0.0, regularPrice - bundlePrice) * bundles;
+    }
+}
@@ -0,0 +1,66 @@
+package service.promotion;
+
+/**
+ * A promotion that gives free units of a SKU for every group bought, e.g. "buy 2, get 1 free".
+ */
+public class BuyXGetYPromotion implements Promotion {
+    private final String name;
+    private final long[] skus;
+    private final int freeQuantity;
+    private final int groupSize;
+
+    /**
+     * Constructs a BuyXGetYPromotion.
+     *
+     * @param name         the name of the promotion
+     * @param sku          the SKU the promotion applies to
+     * @param buyQuantity  the number of units that must be paid for in each group
+     * @param freeQuantity the number of free units in each group
+     * @throws IllegalArgumentException if the name is null or empty, or either quantity is not positive
+     */
+    public BuyXGetYPromotion(String name, long sku, int buyQuantity, int freeQuantity) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Promotion name cannot be null or empty.");
+        }
+        if (buyQuantity <= 0 || freeQuantity <= 0) {
+            throw new IllegalArgumentException("Buy and free quantities must be greater than zero.");
+        }
+        this.name = name;
+        this.skus = new long[]{sku};
+        this.freeQuantity = freeQuantity;
+        this.groupSize = buyQuantity + freeQuantity;
+    }
+
+    /**
+     * Returns the name of the promotion.
+     *
+     * @return the name of the promotion
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the SKUs the promotion applies to.
+     *
+     * @return a copy of the SKUs of the promotion
+     */
+    @Override
+    public long[] getSkus() {
+        return skus.clone();
+    }
+
+    /**
+     * Calculates the value of the free units earned by the complete groups in the cart.
+     *
+     * @param context the cart being priced
+     * @return the discount amount, or 0 if the cart holds no complete group
+     */
+    @Override
+    public double discount(PricingContext context) {
+        long sku = skus[0];
+        int groups = context.getQuantity(sku) / groupSize;
+        return (double) groups * freeQuantity * context.getPrice(sku);
+    }
+}
@@ -0,0 +1,45 @@
+package service.promotion;
+
+/**
+ * A cart-wide promotion that waives shipping fees once the discounted cart total reaches a threshold.
+ */
+public class FreeShippingPromotion {
+    private final String name;
+    private final double threshold;
+
+    /**
+     * Constructs a FreeShippingPromotion.
+     *
+     * @param name      the name of the promotion
+     * @param threshold the minimum discounted cart total that qualifies for free shipping
+     * @throws IllegalArgumentException if the name is null or empty, or the threshold is negative
+     */
+    public FreeShippingPromotion(String name, double threshold) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Promotion name cannot be null or empty.");
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold cannot be negative.");
+        }
+        this.name = name;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Gets the name of the promotion.
+     *
+     * @return the name of the promotion
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the minimum discounted cart total that qualifies for free shipping.
+     *
+     * @return the threshold
+     */
+    public double getThreshold() {
+        return threshold;
+    }
+}
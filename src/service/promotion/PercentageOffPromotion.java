@@ -0,0 +1,62 @@
+package service.promotion;
+
+/**
+ * A promotion that takes a percentage off every unit of a single SKU.
+ */
+public class PercentageOffPromotion implements Promotion {
+    private final String name;
+    private final long[] skus;
+    private final double rate;
+
+    /**
+     * Constructs a PercentageOffPromotion.
+     *
+     * @param name    the name of the promotion
+     * @param sku     the SKU the discount applies to
+     * @param percent the percentage taken off, between 0 (exclusive) and 100 (inclusive)
+     * @throws IllegalArgumentException if the name is null or empty, or the percentage is out of range
+     */
+    public PercentageOffPromotion(String name, long sku, double percent) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Promotion name cannot be null or empty.");
+        }
+        if (percent <= 0 || percent > 100) {
+            throw new IllegalArgumentException("Percentage must be greater than 0 and at most 100.");
+        }
+        this.name = name;
+        this.skus = new long[]{sku};
+        this.rate = percent / 100.0;
+    }
+
+    /**
+     * Returns the name of the promotion.
+     *
+     * @return the name of the promotion
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the SKUs the promotion applies to.
+     *
+     * @return a copy of the SKUs of the promotion
+     */
+    @Override
+    public long[] getSkus() {
+        return skus.clone();
+    }
+
+    /**
+     * Calculates the percentage discount on all units of the SKU in the cart.
+     *
+     * @param context the cart being priced
+     * @return the discount amount, or 0 if the SKU is not in the cart
+     */
+    @Override
+    public double discount(PricingContext context) {
+        long sku = skus[0];
+        return context.getPrice(sku) * context.getQuantity(sku) * rate;
+    }
+}
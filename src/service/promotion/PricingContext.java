@@ -0,0 +1,106 @@
+package service.promotion;
+
+import entity.Cart;
+import entity.product.Product;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A view of a cart's lines indexed by SKU, used to evaluate promotions.
+ */
+public class PricingContext {
+    private final Map<Long, Double> prices;
+    private final Map<Long, Integer> quantities;
+    private final double subtotal;
+
+    /**
+     * Constructs a PricingContext from a cart.
+     *
+     * @param cart the cart being priced
+     * @throws IllegalArgumentException if the cart is null
+     */
+    public PricingContext(Cart cart) {
+        this(requireCart(cart).getProducts(), Product::getPrice);
+    }
+
+    /**
+     * Constructs a PricingContext from cart lines, with unit prices supplied by the caller
+     * (e.g. from a pinned catalog version rather than the live products).
+     *
+     * @param lines  the products and their quantities
+     * @param prices the unit price of each product
+     * @throws IllegalArgumentException if the lines or prices are null
+     */
+    public PricingContext(Map<Product, Integer> lines, ToDoubleFunction<Product> prices) {
+        if (lines == null || prices == null) {
+            throw new IllegalArgumentException("Lines and prices cannot be null.");
+        }
+        int size = lines.size();
+        this.prices = new HashMap<>(size * 2);
+        this.quantities = new HashMap<>(size * 2);
+        double total = 0.0;
+        for (var entry : lines.entrySet()) {
+            Product product = entry.getKey();
+            int quantity = entry.getValue();
+            double price = prices.applyAsDouble(product);
+            this.prices.put(product.getSku(), price);
+            quantities.put(product.getSku(), quantity);
+            total += price * quantity;
+        }
+        this.subtotal = total;
+    }
+
+    /**
+     * Gets the quantity of a SKU in the cart.
+     *
+     * @param sku the SKU
+     * @return the quantity in the cart, or 0 if the SKU is not in the cart
+     */
+    public int getQuantity(long sku) {
+        return quantities.getOrDefault(sku, 0);
+    }
+
+    /**
+     * Gets the unit price of a SKU in the cart.
+     *
+     * @param sku the SKU
+     * @return the unit price, or 0 if the SKU is not in the cart
+     */
+    public double getPrice(long sku) {
+        return prices.getOrDefault(sku, 0.0);
+    }
+
+    /**
+     * Gets the SKUs in the cart.
+     *
+     * @return the SKUs in the cart
+     */
+    public Iterable<Long> getSkus() {
+        return quantities.keySet();
+    }
+
+    /**
+     * Rejects a null cart before it is dereferenced by the delegating constructor.
+     *
+     * @param cart the cart
+     * @return the same cart
+     * @throws IllegalArgumentException if the cart is null
+     */
+    private static Cart requireCart(Cart cart) {
+        if (cart == null) {
+            throw new IllegalArgumentException("Cart cannot be null.");
+        }
+        return cart;
+    }
+
+    /**
+     * Gets the undiscounted total of the cart.
+     *
+     * @return the cart subtotal
+     */
+    public double getSubtotal() {
+        return subtotal;
+    }
+}
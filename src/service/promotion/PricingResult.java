@@ -0,0 +1,22 @@
+package service.promotion;
+
+import java.util.List;
+
+/**
+ * The price of a cart after promotions.
+ *
+ * @param subtotal          the undiscounted total of the cart
+ * @param discount          the total discount from all applied promotions
+ * @param appliedPromotions the promotions that were applied
+ * @param freeShipping      whether the cart qualifies for free shipping
+ */
+public record PricingResult(double subtotal, double discount, List<Promotion> appliedPromotions, boolean freeShipping) {
+    /**
+     * Returns the discounted total of the cart.
+     *
+     * @return the subtotal minus the discount
+     */
+    public double total() {
+        return subtotal - discount;
+    }
+}
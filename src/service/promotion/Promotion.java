@@ -0,0 +1,33 @@
+package service.promotion;
+
+/**
+ * A promotion that lowers the price of a cart.
+ * Implementations are immutable and precompute everything they can at construction, so evaluating
+ * a promotion against a cart is cheap.
+ */
+public interface Promotion {
+    /**
+     * Gets the display name of the promotion.
+     *
+     * @return the name of the promotion
+     */
+    String getName();
+
+    /**
+     * Gets the SKUs the promotion applies to. The promotion engine indexes promotions by these SKUs
+     * and only evaluates a promotion for carts containing at least one of them.
+     * Two promotions sharing a SKU are never applied to the same cart.
+     * Implementations return a new array on every call, so callers cannot change the promotion's SKUs.
+     *
+     * @return a copy of the SKUs of the promotion
+     */
+    long[] getSkus();
+
+    /**
+     * Calculates the discount this promotion gives on a cart.
+     *
+     * @param context the cart being priced
+     * @return the discount amount, or 0 if the promotion does not apply
+     */
+    double discount(PricingContext context);
+}
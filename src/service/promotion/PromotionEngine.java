@@ -0,0 +1,201 @@
+package service.promotion;
+
+import entity.Cart;
+import entity.product.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The PromotionEngine holds the active promotions and prices carts against them.
+ * Promotions are indexed by SKU, so pricing a cart only evaluates the promotions that mention one of the
+ * cart's SKUs, regardless of how many promotions are active. When promotions overlap on a SKU, the ones
+ * giving the largest discount are applied first and any promotion sharing a SKU with an applied one is skipped.
+ * A promotion's SKUs are copied once when it is activated, and pricing reads that copy.
+ */
+public class PromotionEngine {
+    private static final Registration[] NO_PROMOTIONS = new Registration[0];
+
+    private final Map<Long, Registration[]> promotionsBySku = new ConcurrentHashMap<>();
+    private final List<FreeShippingPromotion> freeShippingPromotions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Activates a promotion.
+     *
+     * @param promotion the promotion to add
+     * @throws IllegalArgumentException if the promotion is null
+     */
+    public void addPromotion(Promotion promotion) {
+        if (promotion == null) {
+            throw new IllegalArgumentException("Promotion cannot be null.");
+        }
+        Registration registration = new Registration(promotion, promotion.getSkus());
+        for (long sku : registration.skus()) {
+            promotionsBySku.merge(sku, new Registration[]{registration}, (current, added) -> {
+                Registration[] merged = Arrays.copyOf(current, current.length + 1);
+                merged[current.length] = registration;
+                return merged;
+            });
+        }
+    }
+
+    /**
+     * Deactivates a promotion.
+     *
+     * @param promotion the promotion to remove
+     */
+    public void removePromotion(Promotion promotion) {
+        if (promotion == null) {
+            return;
+        }
+        for (long sku : promotion.getSkus()) {
+            promotionsBySku.computeIfPresent(sku, (key, current) -> {
+                Registration[] remaining = Arrays.stream(current)
+                        .filter(candidate -> candidate.promotion() != promotion)
+                        .toArray(Registration[]::new);
+                return remaining.length == 0 ? null : remaining;
+            });
+        }
+    }
+
+    /**
+     * Activates a free shipping promotion.
+     *
+     * @param promotion the promotion to add
+     * @throws IllegalArgumentException if the promotion is null
+     */
+    public void addFreeShippingPromotion(FreeShippingPromotion promotion) {
+        if (promotion == null) {
+            throw new IllegalArgumentException("Promotion cannot be null.");
+        }
+        freeShippingPromotions.add(promotion);
+    }
+
+    /**
+     * Deactivates a free shipping promotion.
+     *
+     * @param promotion the promotion to remove
+     */
+    public void removeFreeShippingPromotion(FreeShippingPromotion promotion) {
+        freeShippingPromotions.remove(promotion);
+    }
+
+    /**
+     * Prices a cart against the active promotions.
+     *
+     * @param cart the cart to price
+     * @return the price of the cart after promotions
+     * @throws IllegalArgumentException if the cart is null
+     */
+    public PricingResult price(Cart cart) {
+        return price(new PricingContext(cart));
+    }
+
+    /**
+     * Prices cart lines against the active promotions, using the given unit prices.
+     *
+     * @param lines  the products and their quantities
+     * @param prices the unit price of each product
+     * @return the price of the lines after promotions
+     * @throws IllegalArgumentException if the lines or prices are null
+     */
+    public PricingResult price(Map<Product, Integer> lines, ToDoubleFunction<Product> prices) {
+        return price(new PricingContext(lines, prices));
+    }
+
+    /**
+     * Prices a pricing context against the active promotions.
+     *
+     * @param context the lines being priced
+     * @return the price after promotions
+     */
+    private PricingResult price(PricingContext context) {
+
+        // Collect the distinct promotions that mention at least one SKU in the cart
+        Set<Registration> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (long sku : context.getSkus()) {
+            Collections.addAll(candidates, promotionsBySku.getOrDefault(sku, NO_PROMOTIONS));
+        }
+
+        List<Promotion> applied = new ArrayList<>();
+        double discount = 0.0;
+        if (!candidates.isEmpty()) {
+            List<Registration> eligible = new ArrayList<>(candidates.size());
+            Map<Registration, Double> discounts = new IdentityHashMap<>();
+            for (Registration registration : candidates) {
+                double amount = registration.promotion().discount(context);
+                if (amount > 0) {
+                    eligible.add(registration);
+                    discounts.put(registration, amount);
+                }
+            }
+            eligible.sort((a, b) -> Double.compare(discounts.get(b), discounts.get(a)));
+
+            Set<Long> usedSkus = new HashSet<>();
+            for (Registration registration : eligible) {
+                if (overlaps(registration, usedSkus)) {
+                    continue;
+                }
+                for (long sku : registration.skus()) {
+                    usedSkus.add(sku);
+                }
+                applied.add(registration.promotion());
+                discount += discounts.get(registration);
+            }
+        }
+
+        double subtotal = context.getSubtotal();
+        discount = Math.min(discount, subtotal);
+        boolean freeShipping = qualifiesForFreeShipping(subtotal - discount);
+        return new PricingResult(subtotal, discount, applied, freeShipping);
+    }
+
+    /**
+     * Checks whether a promotion mentions any SKU already claimed by an applied promotion.
+     *
+     * @param registration the promotion to check
+     * @param usedSkus     the SKUs claimed so far
+     * @return true if the promotion overlaps an applied promotion
+     */
+    private static boolean overlaps(Registration registration, Set<Long> usedSkus) {
+        for (long sku : registration.skus()) {
+            if (usedSkus.contains(sku)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a discounted cart total qualifies for any active free shipping promotion.
+     *
+     * @param total the discounted cart total
+     * @return true if shipping should be free
+     */
+    private boolean qualifiesForFreeShipping(double total) {
+        for (FreeShippingPromotion promotion : freeShippingPromotions) {
+            if (total >= promotion.getThreshold()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * An active promotion together with the copy of its SKUs taken when it was activated.
+     *
+     * @param promotion the promotion
+     * @param skus      the SKUs the promotion applies to
+     */
+    private record Registration(Promotion promotion, long[] skus) {
+    }
+}
@@ -0,0 +1,168 @@
+package service.recommendation;
+
+import entity.product.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An incrementally maintained "frequently bought together" index.
+ * Every recorded order adds one to the co-occurrence count of each pair of SKUs in it. Counts are kept in
+ * one sparse row per SKU, each of which also keeps its top K partners sorted as counts change, so a
+ * "customers also bought" query is a copy of at most K entries however long the order history is.
+ * After every {@code decayInterval} orders all counts are multiplied by the decay factor, so recent
+ * buying patterns outweigh old ones and partners bought together only rarely drop out of the index.
+ */
+public class CoOccurrenceIndex {
+    /**
+     * Orders with more lines than this contribute only their first lines, bounding the quadratic cost of counting pairs.
+     */
+    public static final int MAX_LINES_PER_ORDER = 100;
+
+    private final int topK;
+    private final double decayFactor;
+    private final int decayInterval;
+    private final Map<Long, CoOccurrenceRow> rows = new ConcurrentHashMap<>();
+    private final AtomicLong orderCount = new AtomicLong();
+
+    /**
+     * Constructs a CoOccurrenceIndex.
+     *
+     * @param topK          the number of partners kept ready per SKU
+     * @param decayFactor   the factor all counts are multiplied by after every decay interval, in (0, 1]
+     * @param decayInterval the number of orders between decays
+     * @throws IllegalArgumentException if topK or the decay interval is not positive, or the decay factor is out of range
+     */
+    public CoOccurrenceIndex(int topK, double decayFactor, int decayInterval) {
+        if (topK <= 0 || decayInterval <= 0) {
+            throw new IllegalArgumentException("Top K and decay interval must be greater than zero.");
+        }
+        if (!(decayFactor > 0.0 && decayFactor <= 1.0)) {
+            throw new IllegalArgumentException("Decay factor must be greater than 0 and at most 1.");
+        }
+        this.topK = topK;
+        this.decayFactor = decayFactor;
+        this.decayInterval = decayInterval;
+    }
+
+    /**
+     * Records the products bought together in one order.
+     * Orders with a single product count towards the decay schedule but add no pairs.
+     *
+     * @param products the distinct products of the order
+     * @throws IllegalArgumentException if the collection or any product is null
+     */
+    public void record(Collection<? extends Product> products) {
+        if (products == null) {
+            throw new IllegalArgumentException("Products cannot be null.");
+        }
+        long[] skus = new long[Math.min(products.size(), MAX_LINES_PER_ORDER)];
+        int count = 0;
+        for (Product product : products) {
+            if (product == null) {
+                throw new IllegalArgumentException("Products cannot contain null.");
+            }
+            if (count == skus.length) {
+                break;
+            }
+            skus[count++] = product.getSku();
+        }
+
+        long epoch = orderCount.incrementAndGet() / decayInterval;
+        if (count < 2) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            rows.computeIfAbsent(skus[i], sku -> new CoOccurrenceRow(topK, epoch)).addOrder(skus, i, count, epoch, decayFactor);
+        }
+    }
+
+    /**
+     * Gets the products most often bought together with a product.
+     *
+     * @param sku   the SKU of the product
+     * @param limit the maximum number of recommendations; at most topK are available
+     * @return the recommendations, strongest first; empty if the product was never bought with another
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public List<Recommendation> alsoBought(long sku, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be greater than zero.");
+        }
+        CoOccurrenceRow row = rows.get(sku);
+        return row == null ? List.of() : row.top(limit, currentEpoch(), decayFactor);
+    }
+
+    /**
+     * Gets the products most often bought together with the products in a cart, combining the partners of
+     * every product and leaving out the products already in the cart.
+     *
+     * @param products the products in the cart
+     * @param limit    the maximum number of recommendations
+     * @return the recommendations, strongest first
+     * @throws IllegalArgumentException if the collection or any product is null, or the limit is not positive
+     */
+    public List<Recommendation> alsoBought(Collection<? extends Product> products, int limit) {
+        if (products == null) {
+            throw new IllegalArgumentException("Products cannot be null.");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be greater than zero.");
+        }
+        long[] skus = new long[products.size()];
+        int count = 0;
+        for (Product product : products) {
+            if (product == null) {
+                throw new IllegalArgumentException("Products cannot contain null.");
+            }
+            skus[count++] = product.getSku();
+        }
+
+        long epoch = currentEpoch();
+        Map<Long, Double> totals = new HashMap<>();
+        for (long sku : skus) {
+            CoOccurrenceRow row = rows.get(sku);
+            if (row != null) {
+                row.addTopTo(totals, skus, epoch, decayFactor);
+            }
+        }
+        List<Recommendation> recommendations = new ArrayList<>(totals.size());
+        for (Map.Entry<Long, Double> total : totals.entrySet()) {
+            recommendations.add(new Recommendation(total.getKey(), total.getValue()));
+        }
+        recommendations.sort((a, b) -> Double.compare(b.score(), a.score()));
+        return recommendations.size() > limit ? List.copyOf(recommendations.subList(0, limit)) : recommendations;
+    }
+
+    /**
+     * Gets the number of orders recorded.
+     *
+     * @return the number of orders
+     */
+    public long getOrderCount() {
+        return orderCount.get();
+    }
+
+    /**
+     * Gets the number of SKUs that have been bought together with another SKU.
+     *
+     * @return the number of SKUs in the index
+     */
+    public int getSkuCount() {
+        return rows.size();
+    }
+
+    /**
+     * Gets the number of decay intervals that have passed.
+     *
+     * @return the current decay epoch
+     */
+    private long currentEpoch() {
+        return orderCount.get() / decayInterval;
+    }
+}
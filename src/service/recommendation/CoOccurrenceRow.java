@@ -0,0 +1,263 @@
+package service.recommendation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The co-occurrence counts of one SKU: how often every other SKU was bought in the same order, in an
+ * open-addressing table of primitive keys and counts, together with the top K SKUs kept sorted as the
+ * counts change.
+ * Counts only grow between decays and a decay scales every count alike, so the top K stay exact without
+ * ever rescanning the table. Counts are decayed lazily, the next time the row is used after a decay
+ * period has passed, and counts that decay below {@link #PRUNE_THRESHOLD} are dropped to keep rows sparse.
+ * All methods synchronize on the row.
+ */
+final class CoOccurrenceRow {
+    /**
+     * Counts below this value after a decay are dropped.
+     */
+    static final double PRUNE_THRESHOLD = 0.05;
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private double[] counts = new double[INITIAL_CAPACITY];
+    private int size;
+    private final long[] topSkus;
+    private final double[] topScores;
+    private int topSize;
+    private long epoch;
+
+    /**
+     * Constructs an empty CoOccurrenceRow.
+     *
+     * @param topK  the number of top SKUs to maintain
+     * @param epoch the current decay epoch
+     */
+    CoOccurrenceRow(int topK, long epoch) {
+        this.topSkus = new long[topK];
+        this.topScores = new double[topK];
+        this.epoch = epoch;
+    }
+
+    /**
+     * Counts one order in which this row's SKU was bought with other SKUs.
+     *
+     * @param skus        the SKUs of the order
+     * @param self        the position of this row's SKU in the array, which is skipped
+     * @param count       the number of SKUs of the order to use
+     * @param epoch       the current decay epoch
+     * @param decayFactor the factor counts are multiplied by per epoch
+     */
+    synchronized void addOrder(long[] skus, int self, int count, long epoch, double decayFactor) {
+        decay(epoch, decayFactor);
+        for (int i = 0; i < count; i++) {
+            if (i != self) {
+                int slot = slot(skus[i]);
+                counts[slot] += 1.0;
+                offer(skus[i], counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Gets the SKUs bought together with this row's SKU most often.
+     *
+     * @param limit       the maximum number of recommendations
+     * @param epoch       the current decay epoch
+     * @param decayFactor the factor counts are multiplied by per epoch
+     * @return the recommendations, strongest first
+     */
+    synchronized List<Recommendation> top(int limit, long epoch, double decayFactor) {
+        decay(epoch, decayFactor);
+        int n = Math.min(limit, topSize);
+        List<Recommendation> top = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            top.add(new Recommendation(topSkus[i], topScores[i]));
+        }
+        return top;
+    }
+
+    /**
+     * Adds the scores of this row's top SKUs to a running total, skipping the excluded SKUs.
+     *
+     * @param totals      the running total per SKU
+     * @param excluded    the SKUs to skip
+     * @param epoch       the current decay epoch
+     * @param decayFactor the factor counts are multiplied by per epoch
+     */
+    synchronized void addTopTo(Map<Long, Double> totals, long[] excluded, long epoch, double decayFactor) {
+        decay(epoch, decayFactor);
+        for (int i = 0; i < topSize; i++) {
+            if (!contains(excluded, topSkus[i])) {
+                totals.merge(topSkus[i], topScores[i], Double::sum);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of SKUs with a count in this row.
+     *
+     * @return the number of co-occurring SKUs
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Updates the top K for a SKU whose count has grown.
+     *
+     * @param sku   the SKU
+     * @param score the SKU's new count
+     */
+    private void offer(long sku, double score) {
+        int i = 0;
+        while (i < topSize && topSkus[i] != sku) {
+            i++;
+        }
+        if (i == topSize) {
+            if (topSize < topSkus.length) {
+                topSize++;
+            } else if (score > topScores[topSize - 1]) {
+                i = topSize - 1;
+            } else {
+                return;
+            }
+            topSkus[i] = sku;
+        }
+        topScores[i] = score;
+        // Bubble the grown entry up to its place
+        while (i > 0 && topScores[i - 1] < score) {
+            topSkus[i] = topSkus[i - 1];
+            topScores[i] = topScores[i - 1];
+            topSkus[i - 1] = sku;
+            topScores[i - 1] = score;
+            i--;
+        }
+    }
+
+    /**
+     * Applies the decay of every epoch that has passed since the row was last used, dropping counts that
+     * fall below the prune threshold.
+     *
+     * @param currentEpoch the current decay epoch
+     * @param decayFactor  the factor counts are multiplied by per epoch
+     */
+    private void decay(long currentEpoch, double decayFactor) {
+        if (currentEpoch <= epoch) {
+            return;
+        }
+        double scale = Math.pow(decayFactor, currentEpoch - epoch);
+        epoch = currentEpoch;
+        if (scale == 1.0) {
+            return;
+        }
+
+        long[] oldKeys = keys;
+        double[] oldCounts = counts;
+        int survivors = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && oldCounts[i] * scale >= PRUNE_THRESHOLD) {
+                survivors++;
+            }
+        }
+        keys = new long[capacityFor(survivors)];
+        counts = new double[keys.length];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && oldCounts[i] * scale >= PRUNE_THRESHOLD) {
+                counts[slot(oldKeys[i])] = oldCounts[i] * scale;
+            }
+        }
+
+        // Scaling keeps the order of the top K; pruned entries are the smallest, so they are at the end
+        int kept = 0;
+        for (int i = 0; i < topSize; i++) {
+            double score = topScores[i] * scale;
+            if (score >= PRUNE_THRESHOLD) {
+                topSkus[kept] = topSkus[i];
+                topScores[kept] = score;
+                kept++;
+            }
+        }
+        topSize = kept;
+    }
+
+    /**
+     * Finds the slot of a SKU, inserting it with a zero count if absent and growing the table as needed.
+     *
+     * @param sku the SKU, which must be positive
+     * @return the slot of the SKU
+     */
+    private int slot(long sku) {
+        int mask = keys.length - 1;
+        int i = hash(sku) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == sku) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+            return slot(sku);
+        }
+        keys[i] = sku;
+        size++;
+        return i;
+    }
+
+    /**
+     * Doubles the table, keeping it at most half full.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        double[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new double[keys.length];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                counts[slot(oldKeys[i])] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Gets a table capacity that holds a number of entries at most half full.
+     *
+     * @param entries the number of entries
+     * @return a power of two
+     */
+    private static int capacityFor(int entries) {
+        return Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, entries * 2 - 1)) << 1);
+    }
+
+    /**
+     * Spreads the bits of a SKU, since consecutive SKUs would otherwise cluster in the table.
+     *
+     * @param sku the SKU
+     * @return the hash
+     */
+    private static int hash(long sku) {
+        long hash = sku * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Checks whether a small array contains a SKU.
+     *
+     * @param skus the SKUs
+     * @param sku  the SKU to look for
+     * @return true if the SKU is in the array, false otherwise
+     */
+    private static boolean contains(long[] skus, long sku) {
+        for (long candidate : skus) {
+            if (candidate == sku) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,10 @@
+package service.recommendation;
+
+/**
+ * A product recommended alongside another, with how strongly the two are bought together.
+ *
+ * @param sku   the SKU of the recommended product
+ * @param score the decayed number of orders containing both products
+ */
+public record Recommendation(long sku, double score) {
+}
@@ -0,0 +1,161 @@
+package service.replay;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The outcome of a {@link WorkloadReplayer} run: the latency distribution and failures of each kind of
+ * operation and, for paced replays, how far behind the recorded schedule operations started.
+ */
+public class ReplayReport {
+    private final Map<WorkloadOperation, LatencyHistogram> latencies = new EnumMap<>(WorkloadOperation.class);
+    private final long[] failures = new long[WorkloadOperation.values().length];
+    private final LatencyHistogram lag = new LatencyHistogram();
+    private long operationCount;
+    private long elapsedNanos;
+
+    /**
+     * Constructs an empty ReplayReport.
+     */
+    ReplayReport() {
+        for (WorkloadOperation operation : WorkloadOperation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Gets the latencies of the replayed calls of one kind, failed calls included.
+     *
+     * @param operation the kind of call
+     * @return the latency histogram
+     * @throws IllegalArgumentException if the operation is null
+     */
+    public LatencyHistogram getLatencies(WorkloadOperation operation) {
+        if (operation == null) {
+            throw new IllegalArgumentException("Operation cannot be null.");
+        }
+        return latencies.get(operation);
+    }
+
+    /**
+     * Gets the number of replayed calls of one kind that threw.
+     *
+     * @param operation the kind of call
+     * @return the number of failed calls
+     * @throws IllegalArgumentException if the operation is null
+     */
+    public long getFailureCount(WorkloadOperation operation) {
+        if (operation == null) {
+            throw new IllegalArgumentException("Operation cannot be null.");
+        }
+        return failures[operation.ordinal()];
+    }
+
+    /**
+     * Gets how far behind the recorded schedule operations started. Empty for replays at maximum throughput.
+     *
+     * @return the schedule lag histogram
+     */
+    public LatencyHistogram getLag() {
+        return lag;
+    }
+
+    /**
+     * Gets the number of replayed operations.
+     *
+     * @return the number of operations
+     */
+    public long getOperationCount() {
+        return operationCount;
+    }
+
+    /**
+     * Gets the wall-clock time the replay took.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the number of operations replayed per second.
+     *
+     * @return the throughput, or 0 if the replay took no time
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0.0 : operationCount * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns a table of the latency percentiles of each kind of operation that was replayed, in microseconds.
+     *
+     * @return the report as a table
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                "Replayed %d operations in %.1f ms (%.0f ops/s)%n", operationCount, elapsedNanos / 1e6, getThroughput()));
+        sb.append(String.format(Locale.ROOT, "%-9s %9s %7s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "failed", "mean us", "p50 us", "p99 us", "p99.9 us", "max us"));
+        for (Map.Entry<WorkloadOperation, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            if (histogram.getCount() > 0) {
+                appendRow(sb, entry.getKey().name().toLowerCase(Locale.ROOT), histogram, failures[entry.getKey().ordinal()]);
+            }
+        }
+        if (lag.getCount() > 0) {
+            appendRow(sb, "lag", lag, 0);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Records the latency of a replayed call.
+     *
+     * @param operation the kind of call
+     * @param nanos     the latency in nanoseconds
+     * @param succeeded whether the call succeeded
+     */
+    void record(WorkloadOperation operation, long nanos, boolean succeeded) {
+        latencies.get(operation).record(nanos);
+        if (!succeeded) {
+            failures[operation.ordinal()]++;
+        }
+        operationCount++;
+    }
+
+    /**
+     * Records how far behind the recorded schedule an operation started.
+     *
+     * @param nanos the lag in nanoseconds
+     */
+    void recordLag(long nanos) {
+        lag.record(nanos);
+    }
+
+    /**
+     * Records the wall-clock time the replay took.
+     *
+     * @param nanos the elapsed time in nanoseconds
+     */
+    void finish(long nanos) {
+        elapsedNanos = nanos;
+    }
+
+    /**
+     * Appends one row of the table.
+     *
+     * @param sb        the table
+     * @param name      the name of the row
+     * @param histogram the latencies of the row
+     * @param failed    the number of failed calls
+     */
+    private static void appendRow(StringBuilder sb, String name, LatencyHistogram histogram, long failed) {
+        sb.append(String.format(Locale.ROOT, "%-9s %9d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                name, histogram.getCount(), failed, histogram.getMean() / 1e3,
+                histogram.getPercentile(50) / 1e3, histogram.getPercentile(99) / 1e3,
+                histogram.getPercentile(99.9) / 1e3, histogram.getMax() / 1e3));
+    }
+}
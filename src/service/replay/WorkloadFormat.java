@@ -0,0 +1,74 @@
+package service.replay;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The layout of a workload log. Fixed-size values are big-endian; counts, ids and times are unsigned
+ * variable-length integers of 7 bits per byte, least significant group first.
+ * <pre>
+ * header      magic, version (ints)
+ * records     a type byte, then for a product definition:
+ *               SKU (varint), product type (1 byte), name (modified UTF-8), price (double),
+ *               quantity (varint), weight (double) if shippable, and if expirable whether it has an
+ *               expiration date (boolean) followed by its epoch day (varint) if it does
+ *             and for an operation, whose type is the {@link WorkloadOperation} ordinal:
+ *               nanoseconds since the previous operation (varint), then
+ *               add, update, restore   cart id, SKU, quantity (varints)
+ *               remove                 cart id, SKU (varints)
+ *               clear                  cart id (varint)
+ *               checkout               cart id (varint), customer balance (double)
+ *               stock                  SKU, new quantity (varints)
+ * </pre>
+ * A product is defined once, right before the first operation that refers to it. Cart ids are assigned
+ * in order of first appearance, starting at 0.
+ */
+final class WorkloadFormat {
+    static final int MAGIC = 0x574B4C44;
+    static final int VERSION = 2;
+
+    static final byte PRODUCT = 0x7F;
+
+    static final byte PLAIN = 0;
+    static final byte SHIPPABLE = 1;
+    static final byte EXPIRABLE = 2;
+    static final byte EXPIRABLE_SHIPPABLE = SHIPPABLE | EXPIRABLE;
+
+    private WorkloadFormat() {
+    }
+
+    /**
+     * Writes a non-negative value as a variable-length integer.
+     *
+     * @param out   the output
+     * @param value the value, not negative
+     * @throws IOException if the value cannot be written
+     */
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads a variable-length integer.
+     *
+     * @param in the input
+     * @return the value
+     * @throws IOException if the value cannot be read or is longer than 64 bits
+     */
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer.");
+    }
+}
@@ -0,0 +1,42 @@
+package service.replay;
+
+/**
+ * The kinds of call captured in a workload log.
+ * A constant's ordinal is its record type in the log, so new operations must only be appended.
+ */
+public enum WorkloadOperation {
+    /**
+     * A product added to a cart.
+     */
+    ADD,
+
+    /**
+     * A product removed from a cart.
+     */
+    REMOVE,
+
+    /**
+     * The quantity of a product in a cart changed.
+     */
+    UPDATE,
+
+    /**
+     * A saved line restored into a cart.
+     */
+    RESTORE,
+
+    /**
+     * A cart cleared.
+     */
+    CLEAR,
+
+    /**
+     * A checkout of a cart.
+     */
+    CHECKOUT,
+
+    /**
+     * A product's stock set outside of checkout, e.g. a restock.
+     */
+    STOCK
+}
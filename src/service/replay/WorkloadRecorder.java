@@ -0,0 +1,403 @@
+package service.replay;
+
+import entity.Cart;
+import entity.CartChangeEvent;
+import entity.CartChangeListener;
+import entity.CartEvents;
+import entity.Customer;
+import entity.product.Expirable;
+import entity.product.Product;
+import entity.product.Shippable;
+import entity.product.StockChangeEvent;
+import entity.product.StockChangeListener;
+import entity.product.StockChangeReason;
+import entity.product.StockEvents;
+import service.CheckoutService;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static service.replay.WorkloadFormat.*;
+
+/**
+ * Captures live traffic into a workload log that {@link WorkloadReplayer} can re-execute.
+ * Once {@link #attach() attached}, every cart change, every {@link CheckoutService#checkout(Customer) checkout}
+ * and every stock change made outside of checkout, e.g. a restock, is appended to the log with the time it
+ * happened, together with a definition of each product the first time it is referred to.
+ * Carts may already hold products when the recorder is attached: the first time a cart is referred to,
+ * the contents it had before the call being recorded are written as {@link WorkloadOperation#RESTORE}
+ * records, so a replay starts every cart from the state it was recorded in. These seeding restores are
+ * replayed and reported like any other restore.
+ * Cart calls rejected without changing the cart are not captured, as replaying them would not change the
+ * state either. Checkouts run through a {@link service.CheckoutEngine} or {@link service.CheckoutPipeline}
+ * are not captured.
+ * <p>
+ * Operations are written in the order they took effect, under a lock held for the few bytes each one
+ * takes, through a buffer. If the log cannot be written, recording stops and the failure is thrown by
+ * {@link #close()}; the calls being recorded are never failed by the recorder.
+ */
+public class WorkloadRecorder implements AutoCloseable {
+    private static final WorkloadOperation[] CART_OPERATIONS = {
+            WorkloadOperation.ADD, WorkloadOperation.REMOVE, WorkloadOperation.UPDATE,
+            WorkloadOperation.RESTORE, WorkloadOperation.CLEAR
+    };
+
+    private final DataOutputStream out;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Cart, Integer> cartIds = new WeakHashMap<>();
+    private final Set<Long> definedSkus = new HashSet<>();
+    private final ThreadLocal<Boolean> inCheckout = ThreadLocal.withInitial(() -> false);
+    private final CartChangeListener cartListener = this::onCartChanged;
+    private final StockChangeListener stockListener = this::onStockChanged;
+    private int nextCartId;
+    private long lastNanos = -1;
+    private long recordCount;
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * Constructs a WorkloadRecorder writing to a new log file, replacing any file already there.
+     *
+     * @param file the log file
+     * @throws IllegalArgumentException if the file is null
+     * @throws IOException if the file cannot be created
+     */
+    public WorkloadRecorder(Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null.");
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * Starts capturing cart changes, stock changes and checkouts.
+     * Only one recorder can capture checkouts at a time.
+     */
+    public void attach() {
+        CartEvents.addListener(cartListener);
+        StockEvents.addListener(stockListener);
+        CheckoutService.setWorkloadRecorder(this);
+    }
+
+    /**
+     * Stops capturing.
+     */
+    public void detach() {
+        CheckoutService.setWorkloadRecorder(null);
+        StockEvents.removeListener(stockListener);
+        CartEvents.removeListener(cartListener);
+    }
+
+    /**
+     * Records the start of a checkout with the customer's balance at that moment. Called by
+     * {@link CheckoutService}, which calls {@link #endCheckout()} when the checkout ends however this call
+     * ends; changes made to the cart and stock by the checkout itself are not recorded, since replaying the
+     * checkout repeats them.
+     *
+     * @param customer the customer who is checking out, or null
+     */
+    public void beginCheckout(Customer customer) {
+        inCheckout.set(true);
+        if (customer == null || customer.getCart() == null) {
+            return;
+        }
+        Cart cart = customer.getCart();
+        double balance = customer.getBalance();
+        Map<Product, Integer> contents = null;
+        lock.lock();
+        try {
+            if (!cartIds.containsKey(cart)) {
+                // Read the contents outside the lock: cart listeners take the lock while holding the cart's monitor
+                lock.unlock();
+                try {
+                    synchronized (cart) {
+                        contents = new LinkedHashMap<>(cart.getProducts());
+                    }
+                } finally {
+                    lock.lock();
+                }
+            }
+            Integer id = cartId(cart, contents);
+            if (id != null && beginRecord(WorkloadOperation.CHECKOUT)) {
+                writeVarLong(out, id);
+                out.writeDouble(balance);
+            }
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the end of a checkout started with {@link #beginCheckout(Customer)}.
+     */
+    public void endCheckout() {
+        inCheckout.set(false);
+    }
+
+    /**
+     * Gets the number of operations recorded.
+     *
+     * @return the number of operations
+     */
+    public long getRecordCount() {
+        lock.lock();
+        try {
+            return recordCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Detaches the recorder and closes the log.
+     *
+     * @throws IOException if the log could not be written while recording or cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        detach();
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                out.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a cart change, unless it was made by a checkout.
+     *
+     * @param event the cart change
+     */
+    private void onCartChanged(CartChangeEvent event) {
+        if (inCheckout.get()) {
+            return;
+        }
+        WorkloadOperation operation = cartOperation(event.operation());
+        Product product = event.product();
+        if (operation == null || (product == null && operation != WorkloadOperation.CLEAR)) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (product != null && !define(product, product.getQuantity())) {
+                return;
+            }
+            Integer id = cartIds.containsKey(event.cart()) ? cartIds.get(event.cart()) : cartId(event.cart(), contentsBefore(event, operation));
+            if (id == null || !beginRecord(operation)) {
+                return;
+            }
+            writeVarLong(out, id);
+            if (operation != WorkloadOperation.CLEAR) {
+                writeVarLong(out, product.getSku());
+            }
+            if (operation != WorkloadOperation.CLEAR && operation != WorkloadOperation.REMOVE) {
+                writeVarLong(out, event.quantity());
+            }
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a stock change made outside of checkout.
+     *
+     * @param event the stock change
+     */
+    private void onStockChanged(StockChangeEvent event) {
+        if (event.reason() == StockChangeReason.SALE || inCheckout.get() || event.newQuantity() < 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (define(event.product(), Math.max(0, event.previousQuantity())) && beginRecord(WorkloadOperation.STOCK)) {
+                writeVarLong(out, event.product().getSku());
+                writeVarLong(out, event.newQuantity());
+            }
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a product's definition if it has not been written yet. Must be called while holding the lock.
+     *
+     * @param product  the product
+     * @param quantity the product's stock before the operation being recorded
+     * @return true if the product is defined in the log, false if recording has stopped
+     * @throws IOException if the definition cannot be written
+     */
+    private boolean define(Product product, int quantity) throws IOException {
+        if (closed || failure != null) {
+            return false;
+        }
+        if (!definedSkus.add(product.getSku())) {
+            return true;
+        }
+        byte type = PLAIN;
+        if (product instanceof Shippable) {
+            type |= SHIPPABLE;
+        }
+        if (product instanceof Expirable) {
+            type |= EXPIRABLE;
+        }
+        out.writeByte(PRODUCT);
+        writeVarLong(out, product.getSku());
+        out.writeByte(type);
+        out.writeUTF(product.getName());
+        out.writeDouble(product.getPrice());
+        writeVarLong(out, quantity);
+        if (product instanceof Shippable shippable) {
+            out.writeDouble(shippable.getWeight());
+        }
+        if (product instanceof Expirable expirable) {
+            LocalDate expirationDate = expirable.getExpirationDate();
+            out.writeBoolean(expirationDate != null);
+            if (expirationDate != null) {
+                writeVarLong(out, expirationDate.toEpochDay());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the type and time of an operation record. Must be called while holding the lock.
+     *
+     * @param operation the operation
+     * @return true if the record was started, false if recording has stopped
+     * @throws IOException if the record cannot be written
+     */
+    private boolean beginRecord(WorkloadOperation operation) throws IOException {
+        if (closed || failure != null) {
+            return false;
+        }
+        long now = System.nanoTime();
+        out.writeByte(operation.ordinal());
+        writeVarLong(out, lastNanos < 0 ? 0 : Math.max(0, now - lastNanos));
+        lastNanos = now;
+        recordCount++;
+        return true;
+    }
+
+    /**
+     * Gets the id of a cart. On its first appearance, the cart is assigned the next id and the contents it
+     * had are written as restore records. Must be called while holding the lock.
+     *
+     * @param cart     the cart
+     * @param contents the contents of the cart before the operation being recorded, or null if the cart
+     *                 is known to have appeared already
+     * @return the cart id, or null if recording has stopped
+     * @throws IOException if the contents cannot be written
+     */
+    private Integer cartId(Cart cart, Map<Product, Integer> contents) throws IOException {
+        Integer id = cartIds.get(cart);
+        if (id != null) {
+            return id;
+        }
+        if (closed || failure != null) {
+            return null;
+        }
+        id = nextCartId++;
+        cartIds.put(cart, id);
+        if (contents == null) {
+            return id;
+        }
+        for (var entry : contents.entrySet()) {
+            Product product = entry.getKey();
+            if (!define(product, product.getQuantity()) || !beginRecord(WorkloadOperation.RESTORE)) {
+                return null;
+            }
+            writeVarLong(out, id);
+            writeVarLong(out, product.getSku());
+            writeVarLong(out, entry.getValue());
+        }
+        return id;
+    }
+
+    /**
+     * Works out what a cart held before a change, from its contents after the change. The quantity a product
+     * had before an update is not known; it is taken to be the updated quantity, which the replayed update
+     * then leaves unchanged. Must be called while holding the cart's monitor, which cart listeners are.
+     *
+     * @param event     the cart change
+     * @param operation the operation of the change
+     * @return the contents of the cart before the change
+     */
+    private static Map<Product, Integer> contentsBefore(CartChangeEvent event, WorkloadOperation operation) {
+        Map<Product, Integer> contents = new LinkedHashMap<>(event.cart().getProducts());
+        Product product = event.product();
+        switch (operation) {
+            case ADD -> {
+                int before = contents.getOrDefault(product, 0) - event.quantity();
+                if (before > 0) {
+                    contents.put(product, before);
+                } else {
+                    contents.remove(product);
+                }
+            }
+            case REMOVE -> contents.put(product, event.quantity());
+            case RESTORE -> contents.remove(product);
+            default -> {
+                // An update keeps the product in the cart and a clear leaves nothing to restore
+            }
+        }
+        return contents;
+    }
+
+    /**
+     * Stops recording after a write failed. Must be called while holding the lock.
+     *
+     * @param e the write failure
+     */
+    private void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Maps the name of a cart change to its operation.
+     *
+     * @param name the name of the change
+     * @return the operation, or null if the change is not recorded
+     */
+    private static WorkloadOperation cartOperation(String name) {
+        for (WorkloadOperation operation : CART_OPERATIONS) {
+            if (operation.name().equalsIgnoreCase(name)) {
+                return operation;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,332 @@
+package service.replay;
+
+import entity.Cart;
+import entity.Customer;
+import entity.product.ExpirableProduct;
+import entity.product.ExpirableShippableProduct;
+import entity.product.Product;
+import entity.product.ShippableProduct;
+import service.CheckoutService;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+import static service.replay.WorkloadFormat.*;
+
+/**
+ * Re-executes a workload log captured by {@link WorkloadRecorder}, to compare the performance of changes
+ * on real traffic.
+ * Every replay starts from fresh products and customers built from the log, with the product definitions
+ * recorded and a customer per recorded cart whose balance is set to the recorded one before each checkout,
+ * so repeated replays against the same code execute the same calls with the same outcomes. Operations run
+ * on the calling thread in the order they were recorded, paced to the recorded timing at a chosen speed or
+ * as fast as possible, and the latency of every call is recorded per operation.
+ * Checkouts run through {@link CheckoutService} with its promotions, shipping rates and parcel packing, but
+ * a replay refuses to run while anything is configured that would reach state outside the replay, such
+ * as a product repository or a payment gateway; see {@link CheckoutService#requireIsolated()}.
+ * Console output of the calls is not suppressed.
+ */
+public final class WorkloadReplayer {
+    /**
+     * The speed that replays operations back to back, without pacing them to the recorded timing.
+     */
+    public static final double MAX_THROUGHPUT = Double.POSITIVE_INFINITY;
+
+    private static final long SPIN_THRESHOLD_NANOS = 100_000;
+
+    private final List<ProductDefinition> definitions;
+    private final int cartCount;
+    private final int operationCount;
+    private final byte[] operations;
+    private final long[] times;
+    private final int[] carts;
+    private final long[] skus;
+    private final int[] quantities;
+    private final double[] balances;
+
+    private WorkloadReplayer(List<ProductDefinition> definitions, int cartCount, int operationCount, byte[] operations,
+                             long[] times, int[] carts, long[] skus, int[] quantities, double[] balances) {
+        this.definitions = definitions;
+        this.cartCount = cartCount;
+        this.operationCount = operationCount;
+        this.operations = operations;
+        this.times = times;
+        this.carts = carts;
+        this.skus = skus;
+        this.quantities = quantities;
+        this.balances = balances;
+    }
+
+    /**
+     * Loads a workload log into memory. A log cut off in the middle of a record, e.g. because the recording
+     * process died, is loaded up to its last complete record.
+     *
+     * @param file the log file
+     * @return the replayer for the log
+     * @throws IllegalArgumentException if the file is null or not a workload log of a supported version
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static WorkloadReplayer load(Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null.");
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a workload log.");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported workload log version: " + version);
+            }
+            return read(in);
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Not a workload log.");
+        }
+    }
+
+    /**
+     * Gets the number of operations in the log.
+     *
+     * @return the number of operations
+     */
+    public int getOperationCount() {
+        return operationCount;
+    }
+
+    /**
+     * Gets the time between the first and the last recorded operation.
+     *
+     * @return the recorded duration in nanoseconds
+     */
+    public long getRecordedNanos() {
+        return operationCount == 0 ? 0 : times[operationCount - 1];
+    }
+
+    /**
+     * Replays the log against fresh products and customers.
+     *
+     * @param speed how many times faster than recorded to replay: 1 for the original speed, more to
+     *              accelerate, or {@link #MAX_THROUGHPUT} to run operations back to back
+     * @return the latencies and failures of the replayed calls
+     * @throws IllegalArgumentException if the speed is not positive
+     * @throws IllegalStateException if {@link CheckoutService} is configured with state outside the replay
+     */
+    public ReplayReport replay(double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Speed must be greater than zero.");
+        }
+        CheckoutService.requireIsolated();
+        Map<Long, Product> products = new HashMap<>();
+        for (ProductDefinition definition : definitions) {
+            products.put(definition.sku(), definition.create());
+        }
+        Customer[] customers = new Customer[cartCount];
+        for (int i = 0; i < cartCount; i++) {
+            customers[i] = new Customer("Replay customer " + i, "replay" + i + "@example.com", "01000000000", 0);
+        }
+
+        ReplayReport report = new ReplayReport();
+        boolean paced = speed != MAX_THROUGHPUT;
+        long start = System.nanoTime();
+        for (int i = 0; i < operationCount; i++) {
+            WorkloadOperation operation = WorkloadOperation.values()[operations[i]];
+            if (paced) {
+                long lag = System.nanoTime() - awaitUntil(start + (long) (times[i] / speed));
+                report.recordLag(lag);
+            }
+            Customer customer = operation == WorkloadOperation.STOCK ? null : customers[carts[i]];
+            if (operation == WorkloadOperation.CHECKOUT) {
+                customer.setBalance(balances[i]);
+            }
+            long begin = System.nanoTime();
+            boolean succeeded = execute(operation, customer, products.get(skus[i]), quantities[i]);
+            report.record(operation, System.nanoTime() - begin, succeeded);
+        }
+        report.finish(System.nanoTime() - start);
+        return report;
+    }
+
+    /**
+     * Executes one operation.
+     *
+     * @param operation the operation
+     * @param customer  the customer whose cart the operation is on, or null for a stock change
+     * @param product   the product the operation is on, or null if it affects a whole cart
+     * @param quantity  the quantity of the operation
+     * @return true if the call succeeded, false if it threw
+     */
+    private static boolean execute(WorkloadOperation operation, Customer customer, Product product, int quantity) {
+        try {
+            Cart cart = customer == null ? null : customer.getCart();
+            switch (operation) {
+                case ADD -> cart.add(product, quantity);
+                case REMOVE -> cart.remove(product);
+                case UPDATE -> cart.updateProductQuantity(product, quantity);
+                case RESTORE -> cart.restore(product, quantity);
+                case CLEAR -> cart.clear();
+                case CHECKOUT -> CheckoutService.checkout(customer);
+                case STOCK -> product.setQuantity(quantity);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            // The call failed the same way when it was recorded, or the code under test behaves differently
+            return false;
+        }
+    }
+
+    /**
+     * Waits until a point in time, parking while it is far away and spinning once it is close.
+     *
+     * @param deadline the time to wait for, in {@link System#nanoTime()} terms
+     * @return the deadline
+     */
+    private static long awaitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        return deadline;
+    }
+
+    /**
+     * Reads the records of a log into parallel arrays.
+     *
+     * @param in the log, positioned after its header
+     * @return the replayer for the log
+     * @throws IOException if the log cannot be read or is malformed
+     */
+    private static WorkloadReplayer read(DataInputStream in) throws IOException {
+        List<ProductDefinition> definitions = new ArrayList<>();
+        int capacity = 1024;
+        byte[] operations = new byte[capacity];
+        long[] times = new long[capacity];
+        int[] carts = new int[capacity];
+        long[] skus = new long[capacity];
+        int[] quantities = new int[capacity];
+        double[] balances = new double[capacity];
+        int count = 0;
+        int cartCount = 0;
+        long time = 0;
+        WorkloadOperation[] values = WorkloadOperation.values();
+
+        while (true) {
+            int type = in.read();
+            if (type < 0) {
+                break;
+            }
+            try {
+                if (type == PRODUCT) {
+                    definitions.add(readDefinition(in));
+                    continue;
+                }
+                if (type >= values.length) {
+                    throw new IOException("Unknown record type: " + type);
+                }
+                WorkloadOperation operation = values[type];
+                long delta = readVarLong(in);
+                long sku = 0;
+                int cart = 0;
+                int quantity = 0;
+                double balance = 0.0;
+                if (operation == WorkloadOperation.STOCK) {
+                    sku = readVarLong(in);
+                    quantity = (int) readVarLong(in);
+                } else {
+                    cart = (int) readVarLong(in);
+                    if (operation == WorkloadOperation.CHECKOUT) {
+                        balance = in.readDouble();
+                    } else if (operation != WorkloadOperation.CLEAR) {
+                        sku = readVarLong(in);
+                        if (operation != WorkloadOperation.REMOVE) {
+                            quantity = (int) readVarLong(in);
+                        }
+                    }
+                    cartCount = Math.max(cartCount, cart + 1);
+                }
+
+                if (count == capacity) {
+                    capacity *= 2;
+                    operations = Arrays.copyOf(operations, capacity);
+                    times = Arrays.copyOf(times, capacity);
+                    carts = Arrays.copyOf(carts, capacity);
+                    skus = Arrays.copyOf(skus, capacity);
+                    quantities = Arrays.copyOf(quantities, capacity);
+                    balances = Arrays.copyOf(balances, capacity);
+                }
+                time += delta;
+                operations[count] = (byte) type;
+                times[count] = time;
+                carts[count] = cart;
+                skus[count] = sku;
+                quantities[count] = quantity;
+                balances[count] = balance;
+                count++;
+            } catch (EOFException e) {
+                // Truncated last record
+                break;
+            }
+        }
+        return new WorkloadReplayer(definitions, cartCount, count, operations, times, carts, skus, quantities, balances);
+    }
+
+    /**
+     * Reads a product definition record.
+     *
+     * @param in the log, positioned after the record type
+     * @return the product definition
+     * @throws IOException if the record cannot be read
+     */
+    private static ProductDefinition readDefinition(DataInputStream in) throws IOException {
+        long sku = readVarLong(in);
+        byte type = in.readByte();
+        String name = in.readUTF();
+        double price = in.readDouble();
+        int quantity = (int) readVarLong(in);
+        double weight = (type & SHIPPABLE) != 0 ? in.readDouble() : 0.0;
+        LocalDate expirationDate = (type & EXPIRABLE) != 0 && in.readBoolean() ? LocalDate.ofEpochDay(readVarLong(in)) : null;
+        return new ProductDefinition(sku, type, name, price, quantity, weight, expirationDate);
+    }
+
+    /**
+     * A product as it was when the log first referred to it.
+     *
+     * @param sku            the SKU of the product
+     * @param type           the product type
+     * @param name           the name of the product
+     * @param price          the price of the product
+     * @param quantity       the stock of the product
+     * @param weight         the weight of the product, if shippable
+     * @param expirationDate the expiration date of the product, if expirable
+     */
+    private record ProductDefinition(long sku, byte type, String name, double price, int quantity, double weight,
+                                     LocalDate expirationDate) {
+        /**
+         * Creates a fresh product from the definition.
+         *
+         * @return the new product
+         */
+        private Product create() {
+            return switch (type) {
+                case SHIPPABLE -> new ShippableProduct(sku, name, price, quantity, weight);
+                case EXPIRABLE -> new ExpirableProduct(sku, name, price, quantity, expirationDate);
+                case EXPIRABLE_SHIPPABLE -> new ExpirableShippableProduct(sku, name, price, quantity, expirationDate, weight);
+                default -> new Product(sku, name, price, quantity);
+            };
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package service.repository;
+
+import entity.product.Product;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded read-through cache in front of a slower product repository, using the W-TinyLFU policy.
+ * New products enter a small LRU window; when the window overflows, its oldest product competes with the
+ * main space's eviction victim and only the one a {@link FrequencySketch} estimates was used more often
+ * stays. The main space is split into a probation and a protected segment, so products used once are
+ * evicted before products used repeatedly. This keeps the popular part of a catalog much larger than
+ * memory resident even under scans of rarely used products, which would flush a plain LRU cache.
+ * <p>
+ * Lookups of resident products do not block: the hit is recorded for the policy only if its lock is free.
+ * Concurrent lookups of the same missing SKU share one load. A product evicted while still referenced
+ * elsewhere, e.g. from a cart, is handed out again instead of being reloaded, so there is never more than
+ * one live object per SKU; for the same reason a product can only be saved as the object already held for
+ * its SKU. Saves are written through to the backing repository; stock saves of the same SKU are written
+ * one at a time, so a slower save can never overwrite the stock a later one wrote.
+ */
+public class CachedProductRepository implements ProductRepository {
+    private static final int STOCK_LOCK_STRIPES = 64;
+
+    private final ProductRepository store;
+    private final int maximumSize;
+    private final int windowMaximum;
+    private final int protectedMaximum;
+    private final ConcurrentHashMap<Long, Node> data = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, CompletableFuture<Product>> loading = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, EvictedReference> evicted = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Product> collected = new ReferenceQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock[] stockLocks = new ReentrantLock[STOCK_LOCK_STRIPES];
+    private final FrequencySketch sketch;
+    private final AccessQueue window = new AccessQueue();
+    private final AccessQueue probation = new AccessQueue();
+    private final AccessQueue protectedSegment = new AccessQueue();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private int size;
+
+    /**
+     * Constructs a CachedProductRepository.
+     *
+     * @param store       the repository products are loaded from and saved to
+     * @param maximumSize the maximum number of products kept in memory
+     * @throws IllegalArgumentException if the store is null or maximumSize is not positive
+     */
+    public CachedProductRepository(ProductRepository store, int maximumSize) {
+        if (store == null) {
+            throw new IllegalArgumentException("Store cannot be null.");
+        }
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be greater than zero.");
+        }
+        this.store = store;
+        this.maximumSize = maximumSize;
+        this.windowMaximum = Math.max(1, maximumSize / 100);
+        this.protectedMaximum = (int) ((maximumSize - windowMaximum) * 0.8);
+        this.sketch = new FrequencySketch(maximumSize);
+        for (int i = 0; i < STOCK_LOCK_STRIPES; i++) {
+            stockLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Finds a product by its SKU, loading it from the backing repository if it is not in memory.
+     *
+     * @param sku the SKU of the product
+     * @return the product, or null if the backing repository holds no product with this SKU
+     * @throws RuntimeException whatever the backing repository threw while loading the product
+     */
+    @Override
+    public Product findBySku(long sku) {
+        Node node = data.get(sku);
+        if (node != null) {
+            hits.incrementAndGet();
+            recordHit(node);
+            return node.product;
+        }
+        return load(sku);
+    }
+
+    /**
+     * Saves a product to the backing repository and makes it the product returned for its SKU.
+     * A product already in memory, or evicted but still referenced elsewhere, must be saved as the same
+     * object, so that carts and orders holding it never diverge from the product handed out for the SKU.
+     *
+     * @param product the product to save
+     * @throws IllegalArgumentException if the product is null, or another object is held for its SKU
+     * @throws RuntimeException whatever the backing repository threw while saving the product
+     */
+    @Override
+    public void save(Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null.");
+        }
+        long sku = product.getSku();
+        Node node = data.get(sku);
+        EvictedReference reference = evicted.get(sku);
+        Product held = node != null ? node.product : reference != null ? reference.get() : null;
+        if (held != null && held != product) {
+            throw new IllegalArgumentException("Another product is held for SKU: " + sku);
+        }
+        store.save(product);
+        lock.lock();
+        try {
+            evicted.remove(sku);
+            admit(product, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Saves the current stock of a product to the backing repository, keeping it as the product returned
+     * for its SKU. Saves of the same SKU are serialized, and each writes the stock current when it runs.
+     *
+     * @param product the product whose stock to save, as returned by this repository
+     * @throws IllegalArgumentException if the product is null or not the one this repository holds for its SKU
+     * @throws RuntimeException whatever the backing repository threw while saving the stock
+     */
+    @Override
+    public void saveStock(Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null.");
+        }
+        if (findBySku(product.getSku()) != product) {
+            throw new IllegalArgumentException("Product is not the one held for SKU: " + product.getSku());
+        }
+        ReentrantLock stockLock = stockLocks[Long.hashCode(product.getSku()) & (STOCK_LOCK_STRIPES - 1)];
+        stockLock.lock();
+        try {
+            store.saveStock(product);
+        } finally {
+            stockLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of products currently in memory.
+     *
+     * @return the number of cached products
+     */
+    public int getSize() {
+        return data.size();
+    }
+
+    /**
+     * Gets the number of lookups served from memory.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that were not served from memory.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the share of lookups served from memory.
+     *
+     * @return the hit rate between 0 and 1, or 0 if there were no lookups
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * Gets the number of products loaded from the backing repository.
+     *
+     * @return the number of loads
+     */
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    /**
+     * Gets the average time a load from the backing repository took.
+     *
+     * @return the average load latency in milliseconds, or 0 if nothing was loaded
+     */
+    public double getAverageLoadMillis() {
+        long loadCount = loads.get();
+        return loadCount == 0 ? 0.0 : loadNanos.get() / 1_000_000.0 / loadCount;
+    }
+
+    /**
+     * Gets the number of products evicted to stay within the maximum size.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Loads a missing product, sharing the load with concurrent lookups of the same SKU.
+     *
+     * @param sku the SKU of the product
+     * @return the product, or null if the backing repository holds no product with this SKU
+     */
+    private Product load(long sku) {
+        CompletableFuture<Product> created = new CompletableFuture<>();
+        CompletableFuture<Product> existing = loading.putIfAbsent(sku, created);
+        if (existing != null) {
+            misses.incrementAndGet();
+            return await(existing);
+        }
+        try {
+            // The product may have been admitted between the lookup and registering this load
+            Node node = data.get(sku);
+            if (node != null) {
+                hits.incrementAndGet();
+                created.complete(node.product);
+                return node.product;
+            }
+            misses.incrementAndGet();
+            Product product = reclaim(sku);
+            if (product == null) {
+                long start = System.nanoTime();
+                product = store.findBySku(sku);
+                loadNanos.addAndGet(System.nanoTime() - start);
+                loads.incrementAndGet();
+            }
+            if (product != null) {
+                lock.lock();
+                try {
+                    product = admit(product, false);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            created.complete(product);
+            return product;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(sku, created);
+        }
+    }
+
+    /**
+     * Takes back an evicted product that is still referenced elsewhere.
+     *
+     * @param sku the SKU of the product
+     * @return the evicted product, or null if it was not evicted or is no longer referenced
+     */
+    private Product reclaim(long sku) {
+        EvictedReference reference;
+        while ((reference = (EvictedReference) collected.poll()) != null) {
+            evicted.remove(reference.sku, reference);
+        }
+        reference = evicted.remove(sku);
+        return reference == null ? null : reference.get();
+    }
+
+    /**
+     * Records a hit for the eviction policy, unless another thread holds the policy lock.
+     * Dropping a few hits under contention only makes the frequency estimates slightly lower.
+     *
+     * @param node the node that was hit
+     */
+    private void recordHit(Node node) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            if (node.queue == null) {
+                // Evicted since the lookup
+                return;
+            }
+            sketch.increment(node.sku);
+            if (node.queue == probation) {
+                // A second use promotes the product to the protected segment
+                probation.remove(node);
+                protectedSegment.addLast(node);
+                if (protectedSegment.size > protectedMaximum) {
+                    probation.addLast(protectedSegment.removeFirst());
+                }
+            } else {
+                node.queue.moveToLast(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes a product resident, evicting others if the cache is full. Must be called while holding the lock.
+     *
+     * @param product the product to admit
+     * @param replace whether to replace a product already resident under the same SKU
+     * @return the product now resident under the SKU
+     */
+    private Product admit(Product product, boolean replace) {
+        long sku = product.getSku();
+        sketch.increment(sku);
+        Node node = data.get(sku);
+        if (node != null) {
+            if (replace) {
+                node.product = product;
+            }
+            return node.product;
+        }
+
+        node = new Node(sku, product);
+        data.put(sku, node);
+        window.addLast(node);
+        size++;
+
+        Node candidate = null;
+        if (window.size > windowMaximum) {
+            candidate = window.removeFirst();
+            probation.addLast(candidate);
+        }
+        while (size > maximumSize) {
+            Node victim = probation.first();
+            if (victim == null) {
+                victim = protectedSegment.first() != null ? protectedSegment.first() : window.first();
+            }
+            Node evict = victim;
+            if (candidate != null && candidate != victim && candidate.queue == probation) {
+                // Admit the window's candidate only if it is used more often than the victim
+                evict = sketch.frequency(candidate.sku) > sketch.frequency(victim.sku) ? victim : candidate;
+            }
+            if (evict == candidate) {
+                candidate = null;
+            }
+            discard(evict);
+        }
+        return product;
+    }
+
+    /**
+     * Evicts a node, remembering its product weakly in case it is still referenced elsewhere.
+     * Must be called while holding the lock.
+     *
+     * @param node the node to evict
+     */
+    private void discard(Node node) {
+        node.queue.remove(node);
+        // Remember the product before it stops being resident, so a concurrent load reclaims it instead of reloading
+        evicted.put(node.sku, new EvictedReference(node.sku, node.product, collected));
+        data.remove(node.sku, node);
+        size--;
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * Waits for a load started by another thread, rethrowing the original exception if it failed.
+     *
+     * @param load the load to wait for
+     * @return the loaded product, or null if the product does not exist
+     */
+    private static Product await(CompletableFuture<Product> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A resident product and its position in the policy's queues.
+     */
+    private static final class Node {
+        private final long sku;
+        private volatile Product product;
+        private AccessQueue queue;
+        private Node previous;
+        private Node next;
+
+        private Node(long sku, Product product) {
+            this.sku = sku;
+            this.product = product;
+        }
+    }
+
+    /**
+     * A doubly linked queue of nodes ordered from least to most recently used.
+     */
+    private static final class AccessQueue {
+        private final Node sentinel = new Node(0, null);
+        private int size;
+
+        private AccessQueue() {
+            sentinel.previous = sentinel;
+            sentinel.next = sentinel;
+        }
+
+        /**
+         * Gets the least recently used node.
+         *
+         * @return the first node, or null if the queue is empty
+         */
+        private Node first() {
+            return sentinel.next == sentinel ? null : sentinel.next;
+        }
+
+        /**
+         * Appends a node as the most recently used.
+         *
+         * @param node the node to append
+         */
+        private void addLast(Node node) {
+            node.previous = sentinel.previous;
+            node.next = sentinel;
+            sentinel.previous.next = node;
+            sentinel.previous = node;
+            node.queue = this;
+            size++;
+        }
+
+        /**
+         * Removes a node from the queue.
+         *
+         * @param node the node to remove
+         */
+        private void remove(Node node) {
+            node.previous.next = node.next;
+            node.next.previous = node.previous;
+            node.previous = null;
+            node.next = null;
+            node.queue = null;
+            size--;
+        }
+
+        /**
+         * Removes the least recently used node.
+         *
+         * @return the removed node
+         */
+        private Node removeFirst() {
+            Node node = sentinel.next;
+            remove(node);
+            return node;
+        }
+
+        /**
+         * Moves a node to the most recently used position.
+         *
+         * @param node the node to move
+         */
+        private void moveToLast(Node node) {
+            remove(node);
+            addLast(node);
+        }
+    }
+
+    /**
+     * A weak reference to an evicted product, remembering its SKU so the reference can be cleaned up once collected.
+     */
+    private static final class EvictedReference extends WeakReference<Product> {
+        private final long sku;
+
+        private EvictedReference(long sku, Product product, ReferenceQueue<Product> queue) {
+            super(product, queue);
+            this.sku = sku;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package service.repository;
+
+import entity.product.Expirable;
+import entity.product.ExpirableProduct;
+import entity.product.ExpirableShippableProduct;
+import entity.product.Product;
+import entity.product.Shippable;
+import entity.product.ShippableProduct;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+
+/**
+ * A product repository backed by one file per product, standing in for a slow product database.
+ * Every read and write pays a configurable latency on top of the file access. Each read creates a new
+ * product object, so this repository should sit behind a {@link CachedProductRepository} rather than be
+ * used directly.
+ * Files are replaced atomically on save, so a concurrent read sees either the old or the new product.
+ */
+public class FileProductRepository implements ProductRepository {
+    private static final String EXTENSION = ".product";
+    private static final byte PLAIN = 0;
+    private static final byte SHIPPABLE = 1;
+    private static final byte EXPIRABLE = 2;
+    private static final byte EXPIRABLE_SHIPPABLE = 3;
+
+    private final Path directory;
+    private final long latencyMillis;
+
+    /**
+     * Constructs a FileProductRepository.
+     *
+     * @param directory     the directory the products are stored in; created if it does not exist
+     * @param latencyMillis the simulated database latency of every read and write
+     * @throws IllegalArgumentException if the directory is null or the latency is negative
+     * @throws IOException if the directory cannot be created
+     */
+    public FileProductRepository(Path directory, long latencyMillis) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory cannot be null.");
+        }
+        if (latencyMillis < 0) {
+            throw new IllegalArgumentException("Latency cannot be negative.");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Reads a product from its file after the simulated latency.
+     *
+     * @param sku the SKU of the product
+     * @return a new product object with the saved state, or null if no product with this SKU is saved
+     * @throws UncheckedIOException if the product file cannot be read
+     */
+    @Override
+    public Product findBySku(long sku) {
+        sleep(latencyMillis);
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file(sku));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            return decode(sku, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt product file for SKU: " + sku, e);
+        }
+    }
+
+    /**
+     * Writes a product to its file after the simulated latency.
+     *
+     * @param product the product to save
+     * @throws IllegalArgumentException if the product is null
+     * @throws UncheckedIOException if the product file cannot be written
+     */
+    @Override
+    public void save(Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null.");
+        }
+        write(product, product.getQuantity());
+    }
+
+    /**
+     * Writes a product to its file with the given stock after the simulated latency.
+     *
+     * @param product  the product to write
+     * @param quantity the stock to write
+     * @throws UncheckedIOException if the product file cannot be written
+     */
+    private void write(Product product, int quantity) {
+        sleep(latencyMillis);
+        try {
+            byte[] bytes = encode(product, quantity);
+            Path temporary = Files.createTempFile(directory, Long.toString(product.getSku()), ".tmp");
+            try {
+                Files.write(temporary, bytes);
+                Files.move(temporary, file(product.getSku()), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a product to its file with its stock read under the product's monitor, so the stock written
+     * is the one left by the last completed change.
+     *
+     * @param product the product whose stock to save
+     * @throws IllegalArgumentException if the product is null
+     * @throws UncheckedIOException if the product file cannot be written
+     */
+    @Override
+    public void saveStock(Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null.");
+        }
+        int quantity;
+        synchronized (product) {
+            quantity = product.getQuantity();
+        }
+        write(product, quantity);
+    }
+
+    /**
+     * Encodes a product: its type, name, price and stock, followed by its weight and expiration date if it has them.
+     *
+     * @param product  the product to encode
+     * @param quantity the stock to encode
+     * @return the encoded product
+     * @throws IOException never, as the product is written to memory
+     */
+    private static byte[] encode(Product product, int quantity) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            byte type = product instanceof Shippable
+                    ? (product instanceof Expirable ? EXPIRABLE_SHIPPABLE : SHIPPABLE)
+                    : (product instanceof Expirable ? EXPIRABLE : PLAIN);
+            out.writeByte(type);
+            out.writeUTF(product.getName());
+            out.writeDouble(product.getPrice());
+            out.writeInt(quantity);
+            if (product instanceof Shippable shippable) {
+                out.writeDouble(shippable.getWeight());
+            }
+            if (product instanceof Expirable expirable) {
+                out.writeLong(expirable.getExpirationDate().toEpochDay());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a product written by {@link #encode(Product, int)}.
+     *
+     * @param sku   the SKU of the product
+     * @param bytes the encoded product
+     * @return the new product
+     * @throws IOException if the bytes are truncated
+     */
+    private static Product decode(long sku, byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte type = in.readByte();
+            String name = in.readUTF();
+            double price = in.readDouble();
+            int quantity = in.readInt();
+            double weight = type == SHIPPABLE || type == EXPIRABLE_SHIPPABLE ? in.readDouble() : 0.0;
+            LocalDate expirationDate = type == EXPIRABLE || type == EXPIRABLE_SHIPPABLE ? LocalDate.ofEpochDay(in.readLong()) : null;
+            return switch (type) {
+                case SHIPPABLE -> new ShippableProduct(sku, name, price, quantity, weight);
+                case EXPIRABLE -> new ExpirableProduct(sku, name, price, quantity, expirationDate);
+                case EXPIRABLE_SHIPPABLE -> new ExpirableShippableProduct(sku, name, price, quantity, expirationDate, weight);
+                default -> new Product(sku, name, price, quantity);
+            };
+        }
+    }
+
+    /**
+     * Resolves the file of a product.
+     *
+     * @param sku the SKU of the product
+     * @return the product file
+     */
+    private Path file(long sku) {
+        return directory.resolve(sku + EXTENSION);
+    }
+
+    /**
+     * Simulates database latency on the current thread.
+     *
+     * @param millis the time to sleep
+     */
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
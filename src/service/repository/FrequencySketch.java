@@ -0,0 +1,135 @@
+package service.repository;
+
+/**
+ * A count-min sketch of 4-bit counters estimating how often each SKU was accessed recently.
+ * Each SKU maps to one counter in each of four rows; its estimate is the smallest of the four, which can
+ * only overcount. Counters saturate at 15, and once the sketch has recorded ten accesses per tracked entry
+ * every counter is halved, so the estimates follow changes in popularity.
+ * Not thread-safe; callers synchronize access.
+ */
+final class FrequencySketch {
+    private static final long SEED_0 = 0x9E3779B97F4A7C15L;
+    private static final long SEED_1 = 0xC2B2AE3D27D4EB4FL;
+    private static final long SEED_2 = 0x165667B19E3779F9L;
+    private static final long SEED_3 = 0xD6E8FEB86659FD93L;
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * Constructs a FrequencySketch sized for a number of tracked entries.
+     *
+     * @param maximumSize the number of entries the sketch should distinguish
+     */
+    FrequencySketch(int maximumSize) {
+        // Each long holds sixteen 4-bit counters
+        int length = Integer.highestOneBit(Math.max(1, maximumSize - 1)) << 1;
+        this.table = new long[Math.max(4, length)];
+        this.tableMask = table.length - 1;
+        this.sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * Math.max(1, maximumSize));
+    }
+
+    /**
+     * Estimates how often a SKU was accessed recently.
+     *
+     * @param sku the SKU
+     * @return the estimated frequency, from 0 to 15
+     */
+    int frequency(long sku) {
+        int frequency = Math.min(count(sku, SEED_0), count(sku, SEED_1));
+        frequency = Math.min(frequency, count(sku, SEED_2));
+        return Math.min(frequency, count(sku, SEED_3));
+    }
+
+    /**
+     * Records an access to a SKU, halving every counter once the sample is full.
+     *
+     * @param sku the SKU
+     */
+    void increment(long sku) {
+        boolean added = increment(sku, SEED_0);
+        added |= increment(sku, SEED_1);
+        added |= increment(sku, SEED_2);
+        added |= increment(sku, SEED_3);
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Reads the counter of a SKU in one row.
+     *
+     * @param sku  the SKU
+     * @param seed the seed of the row
+     * @return the counter value
+     */
+    private int count(long sku, long seed) {
+        long hash = hash(sku, seed);
+        return (int) ((table[index(hash)] >>> shift(hash)) & 0xF);
+    }
+
+    /**
+     * Increments the counter of a SKU in one row unless it is saturated.
+     *
+     * @param sku  the SKU
+     * @param seed the seed of the row
+     * @return true if the counter was incremented, false if it was saturated
+     */
+    private boolean increment(long sku, long seed) {
+        long hash = hash(sku, seed);
+        int index = index(hash);
+        int shift = shift(hash);
+        long mask = 0xFL << shift;
+        if ((table[index] & mask) == mask) {
+            return false;
+        }
+        table[index] += 1L << shift;
+        return true;
+    }
+
+    /**
+     * Halves every counter, shifting each long right by one and clearing the bit each counter received from its neighbour.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    /**
+     * Mixes a SKU with a row seed.
+     *
+     * @param sku  the SKU
+     * @param seed the seed of the row
+     * @return the hash
+     */
+    private static long hash(long sku, long seed) {
+        long hash = (sku + seed) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 31)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * Selects the long holding a counter.
+     *
+     * @param hash the hash of the SKU in the row
+     * @return the index into the table
+     */
+    private int index(long hash) {
+        return (int) (hash >>> 32) & tableMask;
+    }
+
+    /**
+     * Selects the counter within its long.
+     *
+     * @param hash the hash of the SKU in the row
+     * @return the bit offset of the counter
+     */
+    private static int shift(long hash) {
+        return ((int) hash & 0xF) << 2;
+    }
+}
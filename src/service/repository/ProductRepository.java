@@ -0,0 +1,53 @@
+package service.repository;
+
+import entity.product.Product;
+import exception.ProductNotFoundException;
+
+/**
+ * A store of products, looked up by SKU.
+ * Implementations return the same product object for a SKU for as long as it is in use, so stock taken
+ * through one reference is seen through every other.
+ */
+public interface ProductRepository {
+    /**
+     * Finds a product by its SKU.
+     *
+     * @param sku the SKU of the product
+     * @return the product, or null if the repository holds no product with this SKU
+     */
+    Product findBySku(long sku);
+
+    /**
+     * Saves the current state of a product, replacing any state saved before.
+     *
+     * @param product the product to save
+     * @throws IllegalArgumentException if the product is null
+     */
+    void save(Product product);
+
+    /**
+     * Saves the current stock of a product obtained from this repository, keeping the product returned for
+     * its SKU. The default implementation saves the whole product.
+     *
+     * @param product the product whose stock to save
+     * @throws IllegalArgumentException if the product is null
+     */
+    default void saveStock(Product product) {
+        save(product);
+    }
+
+    /**
+     * Gets a product by its SKU.
+     *
+     * @param sku the SKU of the product
+     * @return the product
+     * @throws ProductNotFoundException if the repository holds no product with this SKU
+     */
+    default Product getBySku(long sku) {
+        Product product = findBySku(sku);
+        if (product == null) {
+            throw new ProductNotFoundException("No product with SKU: " + sku);
+        }
+        return product;
+    }
+}
@@ -0,0 +1,167 @@
+package service.session;
+
+import entity.Cart;
+import entity.product.Product;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes cart contents in a compact binary form.
+ * A saved cart is a format version, the number of lines and, per line, the SKU and quantity as unsigned
+ * varints followed by the captured price. Prices in whole cents, the common case, are stored as a varint
+ * of the cents shifted left by one; any other price is stored as a varint 1 followed by its 8-byte IEEE 754 bits.
+ * A typical line takes 4 to 6 bytes.
+ */
+public final class CartCodec {
+    private static final int VERSION = 1;
+
+    private CartCodec() {
+    }
+
+    /**
+     * Encodes the contents of a cart, copied under the cart's monitor.
+     *
+     * @param cart the cart to encode
+     * @return the encoded cart
+     * @throws IllegalArgumentException if the cart is null
+     */
+    public static byte[] encode(Cart cart) {
+        if (cart == null) {
+            throw new IllegalArgumentException("Cart cannot be null.");
+        }
+        Map<Product, Integer> lines;
+        synchronized (cart) {
+            lines = new LinkedHashMap<>(cart.getProducts());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + 6 * lines.size());
+        writeVarLong(out, VERSION);
+        writeVarLong(out, lines.size());
+        for (var entry : lines.entrySet()) {
+            Product product = entry.getKey();
+            writeVarLong(out, product.getSku());
+            writeVarLong(out, entry.getValue());
+            writePrice(out, product.getPrice());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes an encoded cart.
+     *
+     * @param bytes the encoded cart
+     * @return the saved cart
+     * @throws IllegalArgumentException if the bytes are null
+     * @throws IOException if the bytes are truncated, malformed or of an unsupported version
+     */
+    public static SavedCart decode(byte[] bytes) throws IOException {
+        if (bytes == null) {
+            throw new IllegalArgumentException("Bytes cannot be null.");
+        }
+        int[] position = {0};
+        long version = readVarLong(bytes, position);
+        if (version != VERSION) {
+            throw new IOException("Unsupported saved cart version: " + version);
+        }
+        long count = readVarLong(bytes, position);
+        // Every line takes at least one byte for each of its SKU, quantity and price
+        if (count < 0 || count > (bytes.length - position[0]) / 3) {
+            throw new IOException("Truncated saved cart.");
+        }
+        List<SavedCartLine> lines = new ArrayList<>((int) count);
+        for (int i = 0; i < count; i++) {
+            long sku = readVarLong(bytes, position);
+            long quantity = readVarLong(bytes, position);
+            if (quantity < 1 || quantity > Integer.MAX_VALUE) {
+                throw new IOException("Invalid quantity in saved cart: " + Long.toUnsignedString(quantity));
+            }
+            double price = readPrice(bytes, position);
+            lines.add(new SavedCartLine(sku, (int) quantity, price));
+        }
+        return new SavedCart(lines);
+    }
+
+    /**
+     * Writes a price, as a varint of whole cents if it has no fraction of a cent.
+     *
+     * @param out   the stream to write to
+     * @param price the price
+     */
+    private static void writePrice(ByteArrayOutputStream out, double price) {
+        long cents = Math.round(price * 100);
+        if (cents >= 0 && cents < (1L << 53) && cents / 100.0 == price) {
+            writeVarLong(out, cents << 1);
+            return;
+        }
+        writeVarLong(out, 1);
+        long bits = Double.doubleToLongBits(price);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (bits >>> shift));
+        }
+    }
+
+    /**
+     * Reads a price written by {@link #writePrice(ByteArrayOutputStream, double)}.
+     *
+     * @param bytes    the encoded cart
+     * @param position the read position, advanced past the price
+     * @return the price
+     * @throws IOException if the price is truncated
+     */
+    private static double readPrice(byte[] bytes, int[] position) throws IOException {
+        long tagged = readVarLong(bytes, position);
+        if ((tagged & 1) == 0) {
+            return (tagged >>> 1) / 100.0;
+        }
+        if (position[0] + 8 > bytes.length) {
+            throw new IOException("Truncated saved cart.");
+        }
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | (bytes[position[0]++] & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * Writes an unsigned varint: seven bits per byte, least significant group first, with the high bit
+     * set on every byte but the last.
+     *
+     * @param out   the stream to write to
+     * @param value the value, treated as unsigned
+     */
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @param bytes    the encoded cart
+     * @param position the read position, advanced past the varint
+     * @return the value
+     * @throws IOException if the varint is truncated or longer than 64 bits
+     */
+    private static long readVarLong(byte[] bytes, int[] position) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position[0] >= bytes.length) {
+                throw new IOException("Truncated saved cart.");
+            }
+            byte b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in saved cart.");
+    }
+}
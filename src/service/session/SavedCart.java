@@ -0,0 +1,36 @@
+package service.session;
+
+import entity.Cart;
+import entity.product.Product;
+
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * The saved contents of a cart.
+ *
+ * @param lines the saved lines, in cart order
+ */
+public record SavedCart(List<SavedCartLine> lines) {
+    /**
+     * Restores the saved lines into a new cart. Lines whose SKU no longer resolves to a product are dropped;
+     * the products' current prices apply.
+     *
+     * @param resolver resolves a SKU to its product, or to null if the product no longer exists
+     * @return the restored cart
+     * @throws IllegalArgumentException if the resolver is null
+     */
+    public Cart restore(LongFunction<Product> resolver) {
+        if (resolver == null) {
+            throw new IllegalArgumentException("Resolver cannot be null.");
+        }
+        Cart cart = new Cart();
+        for (SavedCartLine line : lines) {
+            Product product = resolver.apply(line.sku());
+            if (product != null) {
+                cart.restore(product, line.quantity());
+            }
+        }
+        return cart;
+    }
+}
@@ -0,0 +1,11 @@
+package service.session;
+
+/**
+ * One line of a saved cart.
+ *
+ * @param sku           the SKU of the product
+ * @param quantity      the quantity in the cart
+ * @param capturedPrice the price of the product when the cart was saved
+ */
+public record SavedCartLine(long sku, int quantity, double capturedPrice) {
+}
@@ -0,0 +1,228 @@
+package service.session;
+
+import entity.Cart;
+import entity.product.Product;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.regex.Pattern;
+
+/**
+ * The SessionStore saves shoppers' carts under a session id so they survive restarts and can be picked up
+ * by any front-end instance sharing the store's directory.
+ * Each session is one small file holding the cart in {@link CartCodec} form, replaced atomically on every
+ * save. Recently used sessions are also kept in a bounded in-memory LRU cache; a cached session is only
+ * served while its file is unchanged, so an instance never restores a cart another instance has since saved.
+ * Changes are detected by file modification time, so the directory should be on a file system with
+ * fine-grained timestamps.
+ */
+public class SessionStore {
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9_-]{1,128}");
+    private static final String EXTENSION = ".cart";
+
+    private final Path directory;
+    private final LongFunction<Product> resolver;
+    private final Map<String, CachedSession> cache;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructs a SessionStore.
+     *
+     * @param directory         the directory the sessions are stored in; created if it does not exist
+     * @param maxCachedSessions the maximum number of sessions kept in memory
+     * @param resolver          resolves a saved SKU to its product, or to null if the product no longer exists
+     * @throws IllegalArgumentException if the directory or resolver is null, or maxCachedSessions is not positive
+     * @throws IOException if the directory cannot be created
+     */
+    public SessionStore(Path directory, int maxCachedSessions, LongFunction<Product> resolver) throws IOException {
+        if (directory == null || resolver == null) {
+            throw new IllegalArgumentException("Directory and resolver cannot be null.");
+        }
+        if (maxCachedSessions <= 0) {
+            throw new IllegalArgumentException("Cache size must be greater than zero.");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.resolver = resolver;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedSession> eldest) {
+                return size() > maxCachedSessions;
+            }
+        };
+    }
+
+    /**
+     * Saves a cart under a session id, replacing any cart saved before.
+     *
+     * @param sessionId the session id, 1 to 128 letters, digits, '_' or '-'
+     * @param cart      the cart to save
+     * @throws IllegalArgumentException if the session id is invalid or the cart is null
+     * @throws IOException if the session file cannot be written
+     */
+    public void save(String sessionId, Cart cart) throws IOException {
+        Path file = file(sessionId);
+        byte[] bytes = CartCodec.encode(cart);
+        Path temporary = Files.createTempFile(directory, sessionId, ".tmp");
+        FileTime modified;
+        try {
+            Files.write(temporary, bytes);
+            // Read before the move: once moved, the file may already have been replaced by another instance
+            modified = Files.getLastModifiedTime(temporary);
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        cacheSession(sessionId, new CachedSession(bytes, modified));
+    }
+
+    /**
+     * Loads the saved contents of a session's cart, including the prices captured when it was saved.
+     *
+     * @param sessionId the session id
+     * @return the saved cart, or null if no cart is saved under the session id
+     * @throws IllegalArgumentException if the session id is invalid
+     * @throws IOException if the session file cannot be read or is not a valid saved cart
+     */
+    public SavedCart load(String sessionId) throws IOException {
+        Path file = file(sessionId);
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(file);
+        } catch (NoSuchFileException e) {
+            evict(sessionId);
+            return null;
+        }
+
+        CachedSession cached;
+        lock.lock();
+        try {
+            cached = cache.get(sessionId);
+        } finally {
+            lock.unlock();
+        }
+        if (cached != null && cached.modified().equals(modified)) {
+            hits.incrementAndGet();
+            return CartCodec.decode(cached.bytes());
+        }
+
+        misses.incrementAndGet();
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            evict(sessionId);
+            return null;
+        }
+        cacheSession(sessionId, new CachedSession(bytes, modified));
+        return CartCodec.decode(bytes);
+    }
+
+    /**
+     * Restores a session's cart with the current products and prices.
+     * Lines whose product no longer exists are dropped.
+     *
+     * @param sessionId the session id
+     * @return the restored cart, or null if no cart is saved under the session id
+     * @throws IllegalArgumentException if the session id is invalid
+     * @throws IOException if the session file cannot be read or is not a valid saved cart
+     */
+    public Cart restore(String sessionId) throws IOException {
+        SavedCart saved = load(sessionId);
+        return saved == null ? null : saved.restore(resolver);
+    }
+
+    /**
+     * Deletes a session's saved cart.
+     *
+     * @param sessionId the session id
+     * @return true if a cart was saved under the session id, false otherwise
+     * @throws IllegalArgumentException if the session id is invalid
+     * @throws IOException if the session file cannot be deleted
+     */
+    public boolean delete(String sessionId) throws IOException {
+        Path file = file(sessionId);
+        evict(sessionId);
+        return Files.deleteIfExists(file);
+    }
+
+    /**
+     * Gets the number of loads served from the in-memory cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of loads that read the session file.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Resolves the file of a session.
+     *
+     * @param sessionId the session id
+     * @return the session file
+     * @throws IllegalArgumentException if the session id is invalid
+     */
+    private Path file(String sessionId) {
+        if (sessionId == null || !SESSION_ID.matcher(sessionId).matches()) {
+            throw new IllegalArgumentException("Session id must be 1 to 128 letters, digits, '_' or '-'.");
+        }
+        return directory.resolve(sessionId + EXTENSION);
+    }
+
+    /**
+     * Puts a session into the in-memory cache.
+     *
+     * @param sessionId the session id
+     * @param session   the encoded cart and the modification time of its file
+     */
+    private void cacheSession(String sessionId, CachedSession session) {
+        lock.lock();
+        try {
+            cache.put(sessionId, session);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a session from the in-memory cache.
+     *
+     * @param sessionId the session id
+     */
+    private void evict(String sessionId) {
+        lock.lock();
+        try {
+            cache.remove(sessionId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A cached session: the encoded cart and the modification time of the file it was read from or written to.
+     *
+     * @param bytes    the encoded cart
+     * @param modified the modification time of the session file
+     */
+    private record CachedSession(byte[] bytes, FileTime modified) {
+    }
+}
@@ -0,0 +1,44 @@
+package service.shipping;
+
+import java.util.List;
+
+/**
+ * A rate table quoting the cheapest of several carriers' rate tables.
+ */
+public class CheapestCarrierRateTable implements RateTable {
+    private final RateTable[] carriers;
+
+    /**
+     * Constructs a CheapestCarrierRateTable.
+     *
+     * @param carriers the rate table of each carrier
+     * @throws IllegalArgumentException if the list is null, empty or contains null
+     */
+    public CheapestCarrierRateTable(List<RateTable> carriers) {
+        if (carriers == null || carriers.isEmpty()) {
+            throw new IllegalArgumentException("At least one carrier is required.");
+        }
+        this.carriers = carriers.toArray(new RateTable[0]);
+        for (RateTable carrier : this.carriers) {
+            if (carrier == null) {
+                throw new IllegalArgumentException("Carrier rate table cannot be null.");
+            }
+        }
+    }
+
+    /**
+     * Quotes every carrier and returns the lowest price.
+     *
+     * @param weight the weight of the parcel in kilograms
+     * @param zone   the destination zone
+     * @return the cheapest shipping cost
+     */
+    @Override
+    public double quote(double weight, String zone) {
+        double cheapest = Double.MAX_VALUE;
+        for (RateTable carrier : carriers) {
+            cheapest = Math.min(cheapest, carrier.quote(weight, zone));
+        }
+        return cheapest;
+    }
+}
@@ -0,0 +1,33 @@
+package service.shipping;
+
+/**
+ * A rate table charging a flat rate per kilogram, regardless of zone.
+ */
+public class FlatRateTable implements RateTable {
+    private final double ratePerKg;
+
+    /**
+     * Constructs a FlatRateTable.
+     *
+     * @param ratePerKg the price per kilogram
+     * @throws IllegalArgumentException if the rate is negative
+     */
+    public FlatRateTable(double ratePerKg) {
+        if (ratePerKg < 0) {
+            throw new IllegalArgumentException("Rate cannot be negative.");
+        }
+        this.ratePerKg = ratePerKg;
+    }
+
+    /**
+     * Quotes the weight multiplied by the flat rate.
+     *
+     * @param weight the weight of the parcel in kilograms
+     * @param zone   the destination zone, ignored
+     * @return the shipping cost
+     */
+    @Override
+    public double quote(double weight, String zone) {
+        return weight * ratePerKg;
+    }
+}
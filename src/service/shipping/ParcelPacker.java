@@ -0,0 +1,157 @@
+package service.shipping;
+
+import entity.product.ShippableItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ParcelPacker splits shippable items into carrier parcels under a weight limit, using the
+ * first-fit-decreasing heuristic: items are placed heaviest first, each into the first parcel with room
+ * for it, and a new parcel is opened only when none has.
+ * Quantities are placed arithmetically rather than unit by unit: each parcel takes as many units of an
+ * item as fit at once, so the cost grows with the number of distinct items and parcels, not with the
+ * number of units. A unit heavier than the limit cannot be combined with anything and ships alone.
+ */
+public class ParcelPacker {
+    private static final double EPSILON = 1e-9;
+
+    private final double maxParcelWeight;
+
+    /**
+     * Constructs a ParcelPacker.
+     *
+     * @param maxParcelWeight the weight limit of a parcel in kilograms
+     * @throws IllegalArgumentException if the weight limit is not positive
+     */
+    public ParcelPacker(double maxParcelWeight) {
+        if (!(maxParcelWeight > 0)) {
+            throw new IllegalArgumentException("Maximum parcel weight must be greater than zero.");
+        }
+        this.maxParcelWeight = maxParcelWeight;
+    }
+
+    /**
+     * Gets the weight limit of a parcel.
+     *
+     * @return the weight limit in kilograms
+     */
+    public double getMaxParcelWeight() {
+        return maxParcelWeight;
+    }
+
+    /**
+     * Packs shippable items into parcels.
+     *
+     * @param items the shippable items and their quantities
+     * @return the parcels, each a map of shippable items and their quantities
+     * @throws IllegalArgumentException if the map is null, or holds a null item or a non-positive quantity
+     */
+    public List<Map<ShippableItem, Integer>> pack(Map<? extends ShippableItem, Integer> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("Items cannot be null.");
+        }
+        List<Map.Entry<? extends ShippableItem, Integer>> sorted = new ArrayList<>(items.size());
+        double lightest = Double.MAX_VALUE;
+        for (Map.Entry<? extends ShippableItem, Integer> entry : items.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null || entry.getValue() <= 0) {
+                throw new IllegalArgumentException("Items must be non-null with a positive quantity.");
+            }
+            sorted.add(entry);
+            if (entry.getKey().getWeight() > 0) {
+                lightest = Math.min(lightest, entry.getKey().getWeight());
+            }
+        }
+        sorted.sort(Comparator.comparingDouble((Map.Entry<? extends ShippableItem, Integer> entry) -> entry.getKey().getWeight()).reversed());
+
+        List<Map<ShippableItem, Integer>> parcels = new ArrayList<>();
+        double[] remaining = new double[8];
+        int firstOpen = 0;
+        for (Map.Entry<? extends ShippableItem, Integer> entry : sorted) {
+            ShippableItem item = entry.getKey();
+            double weight = item.getWeight();
+            int quantity = entry.getValue();
+
+            if (weight > maxParcelWeight) {
+                for (int i = 0; i < quantity; i++) {
+                    remaining = open(parcels, remaining, item, 1, 0.0);
+                }
+                continue;
+            }
+            if (weight <= 0) {
+                // Weightless items fit anywhere; put them all in the first parcel
+                if (parcels.isEmpty()) {
+                    remaining = open(parcels, remaining, item, quantity, maxParcelWeight);
+                } else {
+                    parcels.get(0).merge(item, quantity, Integer::sum);
+                }
+                continue;
+            }
+
+            // First fit: fill the open parcels in order, as many units at a time as each has room for
+            for (int p = firstOpen; p < parcels.size() && quantity > 0; p++) {
+                int fit = (int) Math.min(quantity, Math.floor((remaining[p] + EPSILON) / weight));
+                if (fit > 0) {
+                    parcels.get(p).merge(item, fit, Integer::sum);
+                    remaining[p] -= fit * weight;
+                    quantity -= fit;
+                }
+            }
+            // Parcels without room for even the lightest item are closed for good
+            while (firstOpen < parcels.size() && remaining[firstOpen] + EPSILON < lightest) {
+                firstOpen++;
+            }
+
+            int perParcel = (int) Math.min(Integer.MAX_VALUE, Math.floor((maxParcelWeight + EPSILON) / weight));
+            while (quantity > 0) {
+                int units = Math.min(quantity, perParcel);
+                remaining = open(parcels, remaining, item, units, maxParcelWeight - units * weight);
+                quantity -= units;
+            }
+        }
+        return parcels;
+    }
+
+    /**
+     * Packs the items of several shipments, e.g. one per warehouse, each into its own parcels.
+     *
+     * @param shipments the shipments, each a map of shippable items and their quantities
+     * @return the parcels of all shipments
+     * @throws IllegalArgumentException if the list or any shipment is invalid
+     */
+    public List<Map<ShippableItem, Integer>> packShipments(List<? extends Map<? extends ShippableItem, Integer>> shipments) {
+        if (shipments == null) {
+            throw new IllegalArgumentException("Shipments cannot be null.");
+        }
+        List<Map<ShippableItem, Integer>> parcels = new ArrayList<>();
+        for (Map<? extends ShippableItem, Integer> shipment : shipments) {
+            parcels.addAll(pack(shipment));
+        }
+        return parcels;
+    }
+
+    /**
+     * Opens a new parcel holding some units of an item.
+     *
+     * @param parcels   the parcels opened so far
+     * @param remaining the remaining capacity of each parcel
+     * @param item      the item
+     * @param units     the number of units in the new parcel
+     * @param capacity  the remaining capacity of the new parcel
+     * @return the remaining capacities, grown if necessary
+     */
+    private static double[] open(List<Map<ShippableItem, Integer>> parcels, double[] remaining, ShippableItem item, int units, double capacity) {
+        if (parcels.size() == remaining.length) {
+            remaining = Arrays.copyOf(remaining, remaining.length * 2);
+        }
+        remaining[parcels.size()] = capacity;
+        Map<ShippableItem, Integer> parcel = new LinkedHashMap<>();
+        parcel.put(item, units);
+        parcels.add(parcel);
+        return remaining;
+    }
+}
@@ -0,0 +1,16 @@
+package service.shipping;
+
+/**
+ * A table of shipping rates, quoting the cost of shipping a parcel of a given weight to a zone.
+ */
+@FunctionalInterface
+public interface RateTable {
+    /**
+     * Quotes the cost of shipping a parcel.
+     *
+     * @param weight the weight of the parcel in kilograms
+     * @param zone   the destination zone
+     * @return the shipping cost
+     */
+    double quote(double weight, String zone);
+}
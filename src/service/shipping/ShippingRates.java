@@ -0,0 +1,153 @@
+package service.shipping;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The ShippingRates engine quotes shipments against a rate table through a bounded cache.
+ * Weights are rounded up to a fixed granularity before quoting, so carts of similar weight to the same
+ * zone share a cache entry; the least recently used quote is evicted once the cache is full.
+ * When the rate table's prices change, {@link #invalidate(String)} or {@link #clear()} drops the quotes
+ * cached under the old prices.
+ */
+public class ShippingRates {
+    /**
+     * The zone used when the destination is unknown.
+     */
+    public static final String DEFAULT_ZONE = "DEFAULT";
+
+    private final RateTable rateTable;
+    private final double granularity;
+    private final Map<QuoteKey, Double> cache;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long generation;
+
+    /**
+     * Constructs a ShippingRates engine.
+     *
+     * @param rateTable   the rate table to quote against
+     * @param granularity the weight step in kilograms that weights are rounded up to
+     * @param maxEntries  the maximum number of cached quotes
+     * @throws IllegalArgumentException if the rate table is null, or the granularity or cache size is not positive
+     */
+    public ShippingRates(RateTable rateTable, double granularity, int maxEntries) {
+        if (rateTable == null) {
+            throw new IllegalArgumentException("Rate table cannot be null.");
+        }
+        if (granularity <= 0 || maxEntries <= 0) {
+            throw new IllegalArgumentException("Granularity and cache size must be greater than zero.");
+        }
+        this.rateTable = rateTable;
+        this.granularity = granularity;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<QuoteKey, Double> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Quotes a shipment, serving it from the cache when a shipment of the same normalized weight to the
+     * same zone was quoted before.
+     *
+     * @param weight the total weight of the shipment in kilograms
+     * @param zone   the destination zone, or null for the default zone
+     * @return the shipping cost
+     * @throws IllegalArgumentException if the weight is negative
+     */
+    public double quote(double weight, String zone) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight cannot be negative.");
+        }
+        if (weight == 0) {
+            return 0.0;
+        }
+        QuoteKey key = new QuoteKey(zone == null ? DEFAULT_ZONE : zone, (long) Math.ceil(weight / granularity));
+        long seen;
+        lock.lock();
+        try {
+            Double cached = cache.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            seen = generation;
+        } finally {
+            lock.unlock();
+        }
+
+        misses.incrementAndGet();
+        double quote = rateTable.quote(key.weightSteps() * granularity, key.zone());
+        lock.lock();
+        try {
+            // A quote computed across an invalidation may carry the old price, so it is not cached
+            if (generation == seen) {
+                cache.put(key, quote);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return quote;
+    }
+
+    /**
+     * Drops the cached quotes of a zone, so its next quotes are computed by the rate table again.
+     *
+     * @param zone the zone whose prices changed, or null for the default zone
+     */
+    public void invalidate(String zone) {
+        String cachedZone = zone == null ? DEFAULT_ZONE : zone;
+        lock.lock();
+        try {
+            generation++;
+            cache.keySet().removeIf(key -> key.zone().equals(cachedZone));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every cached quote, so all quotes are computed by the rate table again.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            generation++;
+            cache.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of quotes served from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of quotes computed by the rate table.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * The cache key of a quote: the zone and the weight in granularity steps.
+     *
+     * @param zone        the destination zone
+     * @param weightSteps the weight rounded up to whole granularity steps
+     */
+    private record QuoteKey(String zone, long weightSteps) {
+    }
+}
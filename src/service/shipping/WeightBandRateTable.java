@@ -0,0 +1,82 @@
+package service.shipping;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A rate table made of weight bands, each with a base price and a price per kilogram,
+ * scaled by a per-zone multiplier. Bands are kept in sorted arrays and looked up by binary search.
+ * The bands are fixed at construction; zone multipliers can be set while other threads are quoting.
+ */
+public class WeightBandRateTable implements RateTable {
+    private final double[] upperBounds;
+    private final double[] basePrices;
+    private final double[] pricesPerKg;
+    private final Map<String, Double> zoneMultipliers = new ConcurrentHashMap<>();
+    private final double defaultMultiplier;
+
+    /**
+     * Constructs a WeightBandRateTable.
+     * Parcels heavier than the last band's upper bound are priced with the last band.
+     *
+     * @param upperBounds       the upper weight bound of each band in kilograms, strictly increasing
+     * @param basePrices        the base price of each band
+     * @param pricesPerKg       the price per kilogram of each band
+     * @param defaultMultiplier the multiplier for zones without their own multiplier
+     * @throws IllegalArgumentException if the arrays are empty, of different lengths, or not sorted,
+     *                                  or any price or the multiplier is negative
+     */
+    public WeightBandRateTable(double[] upperBounds, double[] basePrices, double[] pricesPerKg, double defaultMultiplier) {
+        if (upperBounds == null || basePrices == null || pricesPerKg == null || upperBounds.length == 0
+                || upperBounds.length != basePrices.length || upperBounds.length != pricesPerKg.length) {
+            throw new IllegalArgumentException("Bands must be non-empty and of equal length.");
+        }
+        for (int i = 0; i < upperBounds.length; i++) {
+            if ((i > 0 && upperBounds[i] <= upperBounds[i - 1]) || basePrices[i] < 0 || pricesPerKg[i] < 0) {
+                throw new IllegalArgumentException("Band bounds must increase and prices cannot be negative.");
+            }
+        }
+        if (defaultMultiplier < 0) {
+            throw new IllegalArgumentException("Multiplier cannot be negative.");
+        }
+        this.upperBounds = upperBounds.clone();
+        this.basePrices = basePrices.clone();
+        this.pricesPerKg = pricesPerKg.clone();
+        this.defaultMultiplier = defaultMultiplier;
+    }
+
+    /**
+     * Sets the price multiplier of a zone. A {@link ShippingRates} engine quoting against this table keeps
+     * serving the zone's cached quotes until {@link ShippingRates#invalidate(String)} is called for it.
+     *
+     * @param zone       the zone
+     * @param multiplier the multiplier applied to the band price
+     * @return this rate table
+     * @throws IllegalArgumentException if the zone is null or the multiplier is negative
+     */
+    public WeightBandRateTable withZone(String zone, double multiplier) {
+        if (zone == null || multiplier < 0) {
+            throw new IllegalArgumentException("Zone cannot be null and multiplier cannot be negative.");
+        }
+        zoneMultipliers.put(zone, multiplier);
+        return this;
+    }
+
+    /**
+     * Quotes the band price for the weight, scaled by the zone multiplier.
+     *
+     * @param weight the weight of the parcel in kilograms
+     * @param zone   the destination zone
+     * @return the shipping cost
+     */
+    @Override
+    public double quote(double weight, String zone) {
+        int band = Arrays.binarySearch(upperBounds, weight);
+        if (band < 0) {
+            band = Math.min(-band - 1, upperBounds.length - 1);
+        }
+        double multiplier = zoneMultipliers.getOrDefault(zone, defaultMultiplier);
+        return (basePrices[band] + pricesPerKg[band] * weight) * multiplier;
+    }
+}
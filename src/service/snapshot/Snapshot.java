@@ -0,0 +1,229 @@
+package service.snapshot;
+
+import entity.Customer;
+import entity.product.ExpirableProduct;
+import entity.product.ExpirableShippableProduct;
+import entity.product.Product;
+import entity.product.ShippableProduct;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static service.snapshot.SnapshotFormat.*;
+
+/**
+ * A snapshot file written by {@link SnapshotWriter}, memory-mapped for reading.
+ * Opening a snapshot only reads its header, so a node can start serving immediately; a product or customer
+ * is materialized the first time it is asked for and the same object is returned from then on.
+ * Products are looked up by SKU with a binary search over the sorted product records.
+ * On open, SKUs up to the highest one in the snapshot are reserved, so products created afterwards cannot
+ * collide with products not yet materialized.
+ */
+public final class Snapshot {
+    private final MappedByteBuffer buffer;
+    private final int productCount;
+    private final int customerCount;
+    private final int productsOffset;
+    private final int customersOffset;
+    private final AtomicReferenceArray<Product> products;
+    private final AtomicReferenceArray<Customer> customers;
+
+    private Snapshot(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a snapshot file.");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version: " + buffer.getInt(4));
+        }
+        this.productCount = buffer.getInt(8);
+        this.customerCount = buffer.getInt(12);
+        this.productsOffset = (int) buffer.getLong(16);
+        this.customersOffset = (int) buffer.getLong(24);
+        this.products = new AtomicReferenceArray<>(productCount);
+        this.customers = new AtomicReferenceArray<>(customerCount);
+        if (productCount > 0) {
+            Product.reserveSku(buffer.getLong(recordOffset(productCount - 1) + SKU));
+        }
+    }
+
+    /**
+     * Opens a snapshot file.
+     *
+     * @param file the snapshot file
+     * @return the mapped snapshot
+     * @throws IllegalArgumentException if the file is null or not a snapshot of a supported version
+     * @throws IOException if the file cannot be read
+     */
+    public static Snapshot open(Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null.");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Snapshot exceeds the 2 GB limit of a single mapping.");
+            }
+            return new Snapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Gets the number of products in the snapshot.
+     *
+     * @return the number of products
+     */
+    public int getProductCount() {
+        return productCount;
+    }
+
+    /**
+     * Gets the number of customers in the snapshot.
+     *
+     * @return the number of customers
+     */
+    public int getCustomerCount() {
+        return customerCount;
+    }
+
+    /**
+     * Gets a product by its position in the snapshot, materializing it on first access.
+     *
+     * @param index the position of the product, in SKU order
+     * @return the product
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public Product getProduct(int index) {
+        Product product = products.get(index);
+        if (product == null) {
+            Product materialized = readProduct(index);
+            product = products.compareAndSet(index, null, materialized) ? materialized : products.get(index);
+        }
+        return product;
+    }
+
+    /**
+     * Finds a product by its SKU, materializing it on first access.
+     *
+     * @param sku the SKU of the product
+     * @return the product, or null if the snapshot holds no product with this SKU
+     */
+    public Product findBySku(long sku) {
+        int low = 0;
+        int high = productCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midSku = buffer.getLong(recordOffset(mid) + SKU);
+            if (midSku < sku) {
+                low = mid + 1;
+            } else if (midSku > sku) {
+                high = mid - 1;
+            } else {
+                return getProduct(mid);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets a customer by their position in the snapshot, materializing them and their saved cart on first access.
+     * Cart lines whose SKU is not in the snapshot are skipped.
+     *
+     * @param index the position of the customer
+     * @return the customer
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public Customer getCustomer(int index) {
+        Customer customer = customers.get(index);
+        if (customer == null) {
+            Customer materialized = readCustomer(index);
+            customer = customers.compareAndSet(index, null, materialized) ? materialized : customers.get(index);
+        }
+        return customer;
+    }
+
+    /**
+     * Reads a product record and creates the product it describes.
+     *
+     * @param index the position of the product
+     * @return the new product
+     */
+    private Product readProduct(int index) {
+        if (index < 0 || index >= productCount) {
+            throw new IndexOutOfBoundsException("Product index out of range: " + index);
+        }
+        int record = recordOffset(index);
+        long sku = buffer.getLong(record + SKU);
+        double price = buffer.getDouble(record + PRICE);
+        double weight = buffer.getDouble(record + WEIGHT);
+        long expiry = buffer.getLong(record + EXPIRY);
+        int quantity = buffer.getInt(record + QUANTITY);
+        String name = readString((int) buffer.getLong(record + NAME_OFFSET), buffer.getInt(record + NAME_LENGTH));
+        LocalDate expirationDate = expiry == NO_EXPIRY ? null : LocalDate.ofEpochDay(expiry);
+        return switch (buffer.get(record + TYPE)) {
+            case SHIPPABLE -> new ShippableProduct(sku, name, price, quantity, weight);
+            case EXPIRABLE -> new ExpirableProduct(sku, name, price, quantity, expirationDate);
+            case EXPIRABLE_SHIPPABLE -> new ExpirableShippableProduct(sku, name, price, quantity, expirationDate, weight);
+            default -> new Product(sku, name, price, quantity);
+        };
+    }
+
+    /**
+     * Reads a customer record and creates the customer it describes, restoring their saved cart.
+     *
+     * @param index the position of the customer
+     * @return the new customer
+     */
+    private Customer readCustomer(int index) {
+        if (index < 0 || index >= customerCount) {
+            throw new IndexOutOfBoundsException("Customer index out of range: " + index);
+        }
+        int position = (int) buffer.getLong(customersOffset + 8 * index);
+        String[] fields = new String[3];
+        for (int i = 0; i < fields.length; i++) {
+            int length = buffer.getInt(position);
+            fields[i] = readString(position + 4, length);
+            position += 4 + length;
+        }
+        double balance = buffer.getDouble(position);
+        int lineCount = buffer.getInt(position + 8);
+        position += 12;
+
+        Customer customer = new Customer(fields[0], fields[1], fields[2], balance);
+        for (int i = 0; i < lineCount; i++, position += 12) {
+            Product product = findBySku(buffer.getLong(position));
+            if (product != null) {
+                customer.getCart().restore(product, buffer.getInt(position + 8));
+            }
+        }
+        return customer;
+    }
+
+    /**
+     * Reads a UTF-8 string from the mapped file.
+     *
+     * @param offset the file offset of the string's bytes
+     * @param length the length of the string in bytes
+     * @return the string
+     */
+    private String readString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the file offset of a product record.
+     *
+     * @param index the position of the product
+     * @return the offset of the record
+     */
+    private int recordOffset(int index) {
+        return productsOffset + index * PRODUCT_RECORD_SIZE;
+    }
+}
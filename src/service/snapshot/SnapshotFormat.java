@@ -0,0 +1,40 @@
+package service.snapshot;
+
+/**
+ * The layout of a snapshot file. All values are big-endian.
+ * <pre>
+ * header     magic, version, product count, customer count (ints),
+ *            products offset, customers offset, names offset (longs)
+ * products   one fixed-size record per product, sorted by SKU:
+ *            SKU, price, weight, expiry epoch day, name offset (8 bytes each),
+ *            quantity, name length (4 bytes each), type (1 byte), padding
+ * customers  one offset per customer, then per customer: name, email and phone number
+ *            (each a length-prefixed UTF-8 string), balance, cart line count and (SKU, quantity) per line
+ * names      the UTF-8 bytes of the product names
+ * </pre>
+ */
+final class SnapshotFormat {
+    static final int MAGIC = 0x4543534E;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 40;
+    static final int PRODUCT_RECORD_SIZE = 56;
+    static final long NO_EXPIRY = Long.MIN_VALUE;
+
+    static final byte PLAIN = 0;
+    static final byte SHIPPABLE = 1;
+    static final byte EXPIRABLE = 2;
+    static final byte EXPIRABLE_SHIPPABLE = SHIPPABLE | EXPIRABLE;
+
+    // Offsets of the fields within a product record
+    static final int SKU = 0;
+    static final int PRICE = 8;
+    static final int WEIGHT = 16;
+    static final int EXPIRY = 24;
+    static final int NAME_OFFSET = 32;
+    static final int QUANTITY = 40;
+    static final int NAME_LENGTH = 44;
+    static final int TYPE = 48;
+
+    private SnapshotFormat() {
+    }
+}
@@ -0,0 +1,201 @@
+package service.snapshot;
+
+import entity.Cart;
+import entity.Customer;
+import entity.product.Expirable;
+import entity.product.Product;
+import entity.product.Shippable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static service.snapshot.SnapshotFormat.*;
+
+/**
+ * Writes products and customers, with their balances and saved carts, to a snapshot file that
+ * {@link Snapshot} can map back in.
+ * The snapshot is written to a temporary file next to the target, flushed to disk and then moved over the
+ * target in one step, so readers only ever see a complete snapshot.
+ * Products are stored as their base type: plain, shippable, expirable, or expirable and shippable.
+ */
+public final class SnapshotWriter {
+    private SnapshotWriter() {
+    }
+
+    /**
+     * Writes a snapshot.
+     *
+     * @param file      the snapshot file to write
+     * @param products  the products to store
+     * @param customers the customers to store, together with their balances and carts
+     * @throws IllegalArgumentException if any argument is null, or two products share a SKU
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(Path file, Collection<? extends Product> products, Collection<Customer> customers) throws IOException {
+        if (file == null || products == null || customers == null) {
+            throw new IllegalArgumentException("File, products and customers cannot be null.");
+        }
+        List<Product> sorted = new ArrayList<>(products);
+        sorted.sort(Comparator.comparingLong(Product::getSku));
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).getSku() == sorted.get(i - 1).getSku()) {
+                throw new IllegalArgumentException("Duplicate SKU: " + sorted.get(i).getSku());
+            }
+        }
+
+        byte[][] names = new byte[sorted.size()][];
+        long namesSize = 0;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = sorted.get(i).getName().getBytes(StandardCharsets.UTF_8);
+            namesSize += names[i].length;
+        }
+        byte[][] customerRecords = new byte[customers.size()][];
+        int index = 0;
+        long customerRecordsSize = 0;
+        for (Customer customer : customers) {
+            customerRecords[index] = encodeCustomer(customer);
+            customerRecordsSize += customerRecords[index++].length;
+        }
+
+        long productsOffset = HEADER_SIZE;
+        long customersOffset = productsOffset + (long) sorted.size() * PRODUCT_RECORD_SIZE;
+        long namesOffset = customersOffset + 8L * customerRecords.length + customerRecordsSize;
+        if (namesOffset + namesSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Snapshot would exceed the 2 GB limit of a single mapping.");
+        }
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream stream = Channels.newOutputStream(channel);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(sorted.size());
+                out.writeInt(customerRecords.length);
+                out.writeLong(productsOffset);
+                out.writeLong(customersOffset);
+                out.writeLong(namesOffset);
+
+                long nameOffset = namesOffset;
+                for (int i = 0; i < names.length; i++) {
+                    writeProduct(out, sorted.get(i), nameOffset, names[i].length);
+                    nameOffset += names[i].length;
+                }
+                long recordOffset = customersOffset + 8L * customerRecords.length;
+                for (byte[] record : customerRecords) {
+                    out.writeLong(recordOffset);
+                    recordOffset += record.length;
+                }
+                for (byte[] record : customerRecords) {
+                    out.write(record);
+                }
+                for (byte[] name : names) {
+                    out.write(name);
+                }
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Writes the fixed-size record of a product.
+     *
+     * @param out        the stream to write to
+     * @param product    the product
+     * @param nameOffset the file offset of the product's name
+     * @param nameLength the length of the product's name in bytes
+     * @throws IOException if the record cannot be written
+     */
+    private static void writeProduct(DataOutputStream out, Product product, long nameOffset, int nameLength) throws IOException {
+        byte type = PLAIN;
+        double weight = 0.0;
+        long expiry = NO_EXPIRY;
+        if (product instanceof Shippable shippable) {
+            type |= SHIPPABLE;
+            weight = shippable.getWeight();
+        }
+        if (product instanceof Expirable expirable) {
+            type |= EXPIRABLE;
+            LocalDate expirationDate = expirable.getExpirationDate();
+            expiry = expirationDate == null ? NO_EXPIRY : expirationDate.toEpochDay();
+        }
+        out.writeLong(product.getSku());
+        out.writeDouble(product.getPrice());
+        out.writeDouble(weight);
+        out.writeLong(expiry);
+        out.writeLong(nameOffset);
+        out.writeInt(product.getQuantity());
+        out.writeInt(nameLength);
+        out.writeByte(type);
+        out.write(new byte[PRODUCT_RECORD_SIZE - TYPE - 1]);
+    }
+
+    /**
+     * Encodes the record of a customer, including a copy of their cart taken under the cart's monitor.
+     *
+     * @param customer the customer
+     * @return the encoded record
+     * @throws IllegalArgumentException if the customer is null
+     */
+    private static byte[] encodeCustomer(Customer customer) {
+        if (customer == null) {
+            throw new IllegalArgumentException("Customer cannot be null.");
+        }
+        Cart cart = customer.getCart();
+        Map<Product, Integer> lines;
+        synchronized (cart) {
+            lines = new LinkedHashMap<>(cart.getProducts());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 12 * lines.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, customer.getName());
+            writeString(out, customer.getEmail());
+            writeString(out, customer.getPhoneNumber());
+            out.writeDouble(customer.getBalance());
+            out.writeInt(lines.size());
+            for (var entry : lines.entrySet()) {
+                out.writeLong(entry.getKey().getSku());
+                out.writeInt(entry.getValue());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("In-memory write failed.", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a string as its UTF-8 length followed by its UTF-8 bytes.
+     *
+     * @param out   the stream to write to
+     * @param value the string
+     * @throws IOException if the string cannot be written
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,184 @@
+package service.validation;
+
+import entity.product.Product;
+import service.catalog.ProductSnapshot;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * A struct-of-arrays layout of cart lines for validating and totaling very large carts.
+ * The attributes of every line are captured once into parallel primitive arrays, so validation and totals
+ * run as tight loops over primitives instead of per-line virtual calls and type checks. The validation loop
+ * is branch-free, which lets the JIT compile it to SIMD instructions where the hardware supports them.
+ * The arrays are a snapshot: stock levels are those read when the lines were captured.
+ */
+public final class CartLines {
+    /**
+     * Capability bit set for lines whose product can be shipped.
+     */
+    public static final byte SHIPPABLE = 1;
+    /**
+     * Capability bit set for lines whose product expires.
+     */
+    public static final byte EXPIRABLE = 2;
+
+    private static final long NEVER_EXPIRES = Long.MAX_VALUE;
+
+    private final ProductSnapshot[] snapshots;
+    private final int[] requested;
+    private final int[] stock;
+    private final long[] expiryEpochDay;
+    private final double[] price;
+    private final byte[] capabilities;
+
+    private CartLines(int size) {
+        this.snapshots = new ProductSnapshot[size];
+        this.requested = new int[size];
+        this.stock = new int[size];
+        this.expiryEpochDay = new long[size];
+        this.price = new double[size];
+        this.capabilities = new byte[size];
+    }
+
+    /**
+     * Captures cart lines into parallel arrays, in the iteration order of the lines. Stock levels are read
+     * from the products being bought, the instances inventory is taken from.
+     *
+     * @param lines     the products being bought and their quantities
+     * @param snapshots the captured attributes of each product being bought
+     * @return the captured lines
+     * @throws IllegalArgumentException if the lines or snapshots are null, or a product has no snapshot
+     */
+    public static CartLines of(Map<Product, Integer> lines, Map<Product, ProductSnapshot> snapshots) {
+        if (lines == null || snapshots == null) {
+            throw new IllegalArgumentException("Lines and snapshots cannot be null.");
+        }
+        CartLines cartLines = new CartLines(lines.size());
+        int i = 0;
+        for (var entry : lines.entrySet()) {
+            ProductSnapshot snapshot = snapshots.get(entry.getKey());
+            if (snapshot == null) {
+                throw new IllegalArgumentException("No snapshot for product: " + entry.getKey().getName());
+            }
+            LocalDate expirationDate = snapshot.expirationDate();
+            cartLines.snapshots[i] = snapshot;
+            cartLines.requested[i] = entry.getValue();
+            cartLines.stock[i] = entry.getKey().getQuantity();
+            cartLines.expiryEpochDay[i] = expirationDate == null ? NEVER_EXPIRES : expirationDate.toEpochDay();
+            cartLines.price[i] = snapshot.price();
+            cartLines.capabilities[i] = (byte) ((snapshot.isShippable() ? SHIPPABLE : 0) | (expirationDate != null ? EXPIRABLE : 0));
+            i++;
+        }
+        return cartLines;
+    }
+
+    /**
+     * Gets the number of lines.
+     *
+     * @return the number of lines
+     */
+    public int size() {
+        return requested.length;
+    }
+
+    /**
+     * Counts the invalid lines: lines whose product is out of stock, does not have enough stock, or is expired.
+     * The loop has no branches, so it runs at the same speed whatever the data.
+     *
+     * @param today the current date as an epoch day
+     * @return the number of invalid lines
+     */
+    public int countInvalid(long today) {
+        int invalid = 0;
+        for (int i = 0; i < requested.length; i++) {
+            // Each flag is 1 when its condition holds: stock < requested (which includes empty stock), today > expiry
+            int insufficient = (stock[i] - requested[i]) >>> 31;
+            int expired = (int) ((expiryEpochDay[i] - today) >>> 63);
+            invalid += insufficient | expired;
+        }
+        return invalid;
+    }
+
+    /**
+     * Finds the first invalid line.
+     *
+     * @param today the current date as an epoch day
+     * @return the index of the first invalid line, or -1 if every line is valid
+     */
+    public int firstInvalid(long today) {
+        if (countInvalid(today) == 0) {
+            return -1;
+        }
+        for (int i = 0; i < requested.length; i++) {
+            if (status(i, today) != LineStatus.VALID) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Validates one line. Stock problems take precedence over expiry.
+     *
+     * @param line  the index of the line
+     * @param today the current date as an epoch day
+     * @return the status of the line
+     */
+    public LineStatus status(int line, long today) {
+        if (stock[line] == 0) {
+            return LineStatus.OUT_OF_STOCK;
+        }
+        if (stock[line] < requested[line]) {
+            return LineStatus.INSUFFICIENT_STOCK;
+        }
+        if (today > expiryEpochDay[line]) {
+            return LineStatus.EXPIRED;
+        }
+        return LineStatus.VALID;
+    }
+
+    /**
+     * Calculates the total cost of the items, summing the lines in order.
+     *
+     * @return the total cost of the items
+     */
+    public double itemsCost() {
+        double total = 0.0;
+        for (int i = 0; i < price.length; i++) {
+            total += price[i] * requested[i];
+        }
+        return total;
+    }
+
+    /**
+     * Gets the captured attributes of a line's product.
+     *
+     * @param line the index of the line
+     * @return the snapshot of the line's product
+     */
+    public ProductSnapshot snapshot(int line) {
+        return snapshots[line];
+    }
+
+    /**
+     * Gets the requested quantity of a line.
+     *
+     * @param line the index of the line
+     * @return the requested quantity
+     */
+    public int requested(int line) {
+        return requested[line];
+    }
+
+    /**
+     * Checks whether a line has a capability.
+     *
+     * @param line       the index of the line
+     * @param capability the capability bit, {@link #SHIPPABLE} or {@link #EXPIRABLE}
+     * @return true if the line has the capability, false otherwise
+     */
+    public boolean has(int line, byte capability) {
+        return (capabilities[line] & capability) != 0;
+    }
+}
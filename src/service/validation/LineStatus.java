@@ -0,0 +1,26 @@
+package service.validation;
+
+/**
+ * The outcome of validating one cart line.
+ */
+public enum LineStatus {
+    /**
+     * The product is in stock for the requested quantity and not expired.
+     */
+    VALID,
+
+    /**
+     * The product has no stock left.
+     */
+    OUT_OF_STOCK,
+
+    /**
+     * The product has some stock, but less than the requested quantity.
+     */
+    INSUFFICIENT_STOCK,
+
+    /**
+     * The product is in stock but past its expiration date.
+     */
+    EXPIRED
+}
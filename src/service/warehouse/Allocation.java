@@ -0,0 +1,12 @@
+package service.warehouse;
+
+import java.util.List;
+
+/**
+ * The split of an order across the warehouses of a network.
+ *
+ * @param destination the location the order ships to
+ * @param shipments   the shipments, one per warehouse used, in the order they were chosen
+ */
+public record Allocation(Location destination, List<Shipment> shipments) {
+}
@@ -0,0 +1,38 @@
+package service.warehouse;
+
+/**
+ * A geographic location given by its latitude and longitude in degrees.
+ *
+ * @param latitude  the latitude in degrees, between -90 and 90
+ * @param longitude the longitude in degrees, between -180 and 180
+ */
+public record Location(double latitude, double longitude) {
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    /**
+     * Validates the coordinates.
+     *
+     * @throws IllegalArgumentException if the latitude or longitude is out of range
+     */
+    public Location {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Latitude must be within [-90, 90] and longitude within [-180, 180].");
+        }
+    }
+
+    /**
+     * Calculates the great-circle distance to another location.
+     *
+     * @param other the other location
+     * @return the distance in kilometers
+     */
+    public double distanceTo(Location other) {
+        double lat1 = Math.toRadians(latitude);
+        double lat2 = Math.toRadians(other.latitude);
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(other.longitude - longitude);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,14 @@
+package service.warehouse;
+
+import entity.product.Product;
+
+import java.util.Map;
+
+/**
+ * The part of an order fulfilled from one warehouse.
+ *
+ * @param warehouse the warehouse the items ship from
+ * @param lines     the products shipped from the warehouse and their quantities
+ */
+public record Shipment(Warehouse warehouse, Map<Product, Integer> lines) {
+}
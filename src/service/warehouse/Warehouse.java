@@ -0,0 +1,11 @@
+package service.warehouse;
+
+/**
+ * A warehouse of a {@link WarehouseNetwork}.
+ *
+ * @param index    the position of the warehouse in its network
+ * @param name     the name of the warehouse
+ * @param location the location of the warehouse
+ */
+public record Warehouse(int index, String name, Location location) {
+}
@@ -0,0 +1,425 @@
+package service.warehouse;
+
+import entity.Customer;
+import entity.product.Product;
+import entity.product.StockChangeEvent;
+import entity.product.StockChangeListener;
+import entity.product.StockChangeReason;
+import entity.product.StockEvents;
+import exception.InsufficientQuantityException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+
+/**
+ * The WarehouseNetwork class tracks the stock of each product per warehouse and allocates orders across warehouses.
+ * Stock is indexed by SKU, with one slot per warehouse, so an allocation reads each line's stock in every
+ * warehouse without searching. A product's quantity remains the total of its stock across the network:
+ * stock received into a warehouse is added to the product, and committed allocations are taken out of the
+ * warehouses while checkout takes them out of the product.
+ * <p>
+ * The network seeds its stock from the products: the first time it sees a product, the product's whole
+ * quantity is placed in the home warehouse, the first one added. Once {@link #attach() attached}, stock
+ * changes made to products outside the network, e.g. through {@link Product#setQuantity(int)} or an
+ * inventory adjustment, are applied to the home warehouse as well; removals the home warehouse cannot
+ * cover are taken from the other warehouses in the order they were added. Sales are left to
+ * {@link #commit(Allocation)}.
+ */
+public class WarehouseNetwork {
+    private final int maxWarehouses;
+    private final Function<Customer, Location> locator;
+    private final Map<Long, AtomicIntegerArray> stock = new ConcurrentHashMap<>();
+    private final ThreadLocal<Boolean> changingProducts = ThreadLocal.withInitial(() -> false);
+    private final StockChangeListener stockListener = this::onStockChanged;
+    private volatile Warehouse[] warehouses = new Warehouse[0];
+
+    /**
+     * Constructs a WarehouseNetwork.
+     *
+     * @param maxWarehouses the maximum number of warehouses in the network
+     * @param locator       resolves the location a customer's orders ship to
+     * @throws IllegalArgumentException if maxWarehouses is not positive or the locator is null
+     */
+    public WarehouseNetwork(int maxWarehouses, Function<Customer, Location> locator) {
+        if (maxWarehouses <= 0) {
+            throw new IllegalArgumentException("Maximum number of warehouses must be greater than zero.");
+        }
+        if (locator == null) {
+            throw new IllegalArgumentException("Locator cannot be null.");
+        }
+        this.maxWarehouses = maxWarehouses;
+        this.locator = locator;
+    }
+
+    /**
+     * Starts applying stock changes made to products outside the network to the warehouse stock.
+     */
+    public void attach() {
+        StockEvents.addListener(stockListener);
+    }
+
+    /**
+     * Stops applying stock changes made to products outside the network.
+     */
+    public void detach() {
+        StockEvents.removeListener(stockListener);
+    }
+
+    /**
+     * Adds a warehouse to the network.
+     *
+     * @param name     the name of the warehouse
+     * @param location the location of the warehouse
+     * @return the new warehouse
+     * @throws IllegalArgumentException if the name is null or empty, or the location is null
+     * @throws IllegalStateException if the network already holds the maximum number of warehouses
+     */
+    public synchronized Warehouse addWarehouse(String name, Location location) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Warehouse name cannot be null or empty.");
+        }
+        if (location == null) {
+            throw new IllegalArgumentException("Location cannot be null.");
+        }
+        Warehouse[] current = warehouses;
+        if (current.length == maxWarehouses) {
+            throw new IllegalStateException("Warehouse network is full.");
+        }
+        Warehouse warehouse = new Warehouse(current.length, name, location);
+        Warehouse[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = warehouse;
+        warehouses = updated;
+        return warehouse;
+    }
+
+    /**
+     * Gets the warehouses of the network.
+     *
+     * @return the warehouses, in the order they were added
+     */
+    public List<Warehouse> getWarehouses() {
+        return List.of(warehouses);
+    }
+
+    /**
+     * Resolves the location a customer's orders ship to.
+     *
+     * @param customer the customer
+     * @return the destination of the customer's orders
+     */
+    public Location locate(Customer customer) {
+        return locator.apply(customer);
+    }
+
+    /**
+     * Receives stock of a product into a warehouse, adding it to the product's quantity as well.
+     *
+     * @param product   the product received
+     * @param warehouse the warehouse receiving it
+     * @param quantity  the quantity received
+     * @throws IllegalArgumentException if the product is null, the warehouse is not part of this network,
+     *                                  or the quantity is not positive
+     */
+    public void receive(Product product, Warehouse warehouse, int quantity) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null.");
+        }
+        checkWarehouse(warehouse);
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than zero.");
+        }
+        AtomicIntegerArray slots = slots(product);
+        adjustProduct(product, quantity);
+        slots.addAndGet(warehouse.index(), quantity);
+    }
+
+    /**
+     * Puts the stock of a failed order back: the quantities taken out of the products are added back to
+     * them, and the stock of the committed allocation is released into its warehouses.
+     *
+     * @param lines      the products taken out of stock and their quantities
+     * @param allocation the committed allocation of the order
+     */
+    public void restock(Map<Product, Integer> lines, Allocation allocation) {
+        for (var entry : lines.entrySet()) {
+            adjustProduct(entry.getKey(), entry.getValue());
+        }
+        release(allocation);
+    }
+
+    /**
+     * Gets the stock of a product in a warehouse.
+     *
+     * @param product   the product
+     * @param warehouse the warehouse
+     * @return the quantity of the product held in the warehouse
+     * @throws IllegalArgumentException if the warehouse is not part of this network
+     */
+    public int getStock(Product product, Warehouse warehouse) {
+        checkWarehouse(warehouse);
+        return slots(product).get(warehouse.index());
+    }
+
+    /**
+     * Splits an order across the warehouses of the network, using as few shipments as possible and
+     * preferring nearer warehouses. Warehouses are chosen greedily: each round picks the warehouse that can
+     * supply the most of the units still outstanding, the nearest one on ties, so an order that one
+     * warehouse can fill entirely ships from the nearest such warehouse.
+     * The allocation does not reserve any stock; see {@link #commit(Allocation)}.
+     *
+     * @param lines       the products being ordered and their quantities
+     * @param destination the location the order ships to
+     * @return the allocation of the order
+     * @throws IllegalArgumentException if the lines or destination is null
+     * @throws InsufficientQuantityException if the network does not hold enough stock of some product
+     */
+    public Allocation allocate(Map<Product, Integer> lines, Location destination) {
+        if (lines == null || destination == null) {
+            throw new IllegalArgumentException("Lines and destination cannot be null.");
+        }
+        Warehouse[] byDistance = warehouses.clone();
+        Arrays.sort(byDistance, (a, b) -> Double.compare(a.location().distanceTo(destination), b.location().distanceTo(destination)));
+        int warehouseCount = byDistance.length;
+
+        // available[line][rank]: stock of each line in each warehouse, nearest warehouse first
+        Product[] products = lines.keySet().toArray(new Product[0]);
+        int[] remaining = new int[products.length];
+        int[][] available = new int[products.length][warehouseCount];
+        long[] coverage = new long[warehouseCount];
+        long outstanding = 0;
+        for (int line = 0; line < products.length; line++) {
+            remaining[line] = lines.get(products[line]);
+            outstanding += remaining[line];
+            AtomicIntegerArray slots = warehouseCount == 0 ? null : slots(products[line]);
+            for (int rank = 0; slots != null && rank < warehouseCount; rank++) {
+                available[line][rank] = slots.get(byDistance[rank].index());
+                coverage[rank] += Math.min(remaining[line], available[line][rank]);
+            }
+        }
+
+        List<Shipment> shipments = new ArrayList<>();
+        while (outstanding > 0) {
+            int best = -1;
+            for (int rank = 0; rank < warehouseCount; rank++) {
+                if (coverage[rank] > 0 && (best < 0 || coverage[rank] > coverage[best])) {
+                    best = rank;
+                }
+            }
+            if (best < 0) {
+                throw new InsufficientQuantityException("Insufficient stock across warehouses for product: " + products[firstOutstanding(remaining)].getName());
+            }
+
+            Map<Product, Integer> shipmentLines = new LinkedHashMap<>();
+            for (int line = 0; line < products.length; line++) {
+                int[] lineStock = available[line];
+                int before = remaining[line];
+                int take = Math.min(before, lineStock[best]);
+                if (take == 0) {
+                    continue;
+                }
+                for (int rank = 0; rank < warehouseCount; rank++) {
+                    coverage[rank] -= Math.min(before, lineStock[rank]);
+                }
+                remaining[line] -= take;
+                lineStock[best] -= take;
+                for (int rank = 0; rank < warehouseCount; rank++) {
+                    coverage[rank] += Math.min(remaining[line], lineStock[rank]);
+                }
+                outstanding -= take;
+                shipmentLines.put(products[line], take);
+            }
+            shipments.add(new Shipment(byDistance[best], shipmentLines));
+        }
+        return new Allocation(destination, shipments);
+    }
+
+    /**
+     * Takes the stock of an allocation out of its warehouses, all or nothing.
+     *
+     * @param allocation the allocation to commit
+     * @throws InsufficientQuantityException if a warehouse no longer holds enough stock of a product
+     */
+    public void commit(Allocation allocation) {
+        List<Shipment> shipments = allocation.shipments();
+        for (int i = 0; i < shipments.size(); i++) {
+            Shipment shipment = shipments.get(i);
+            for (var entry : shipment.lines().entrySet()) {
+                if (!tryTake(entry.getKey(), shipment.warehouse(), entry.getValue())) {
+                    // Put back everything taken so far, including this shipment's earlier lines
+                    for (var taken : shipment.lines().entrySet()) {
+                        if (taken.getKey() == entry.getKey()) {
+                            break;
+                        }
+                        put(taken.getKey(), shipment.warehouse(), taken.getValue());
+                    }
+                    release(shipments.subList(0, i));
+                    throw new InsufficientQuantityException("Insufficient stock at warehouse " + shipment.warehouse().name()
+                            + " for product: " + entry.getKey().getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts the stock of a committed allocation back into its warehouses.
+     *
+     * @param allocation the committed allocation to release
+     */
+    public void release(Allocation allocation) {
+        release(allocation.shipments());
+    }
+
+    /**
+     * Puts the stock of committed shipments back into their warehouses.
+     *
+     * @param shipments the committed shipments
+     */
+    private void release(List<Shipment> shipments) {
+        for (Shipment shipment : shipments) {
+            for (var entry : shipment.lines().entrySet()) {
+                put(entry.getKey(), shipment.warehouse(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Gets the per-warehouse stock of a product, seeding it the first time with the product's quantity,
+     * placed in the home warehouse. The quantity is read under the product's monitor, which stock changes
+     * are published under, so a change is either included in the seed or applied by the listener.
+     * The network must hold at least one warehouse.
+     *
+     * @param product the product
+     * @return the stock of the product in each warehouse
+     */
+    private AtomicIntegerArray slots(Product product) {
+        AtomicIntegerArray slots = stock.get(product.getSku());
+        if (slots != null) {
+            return slots;
+        }
+        return stock.computeIfAbsent(product.getSku(), sku -> {
+            AtomicIntegerArray seeded = new AtomicIntegerArray(maxWarehouses);
+            synchronized (product) {
+                seeded.set(0, product.getQuantity());
+            }
+            return seeded;
+        });
+    }
+
+    /**
+     * Adds stock to a product on behalf of the network, without the listener applying it to the home warehouse.
+     *
+     * @param product  the product
+     * @param quantity the quantity to add
+     */
+    private void adjustProduct(Product product, int quantity) {
+        changingProducts.set(true);
+        try {
+            product.adjustQuantity(quantity, StockChangeReason.ADJUSTMENT);
+        } finally {
+            changingProducts.set(false);
+        }
+    }
+
+    /**
+     * Applies a stock change made to a product outside the network to the warehouse stock. Sales are
+     * taken out of the warehouses by {@link #commit(Allocation)}, and products the network has not seen yet
+     * are seeded with their quantity when first used.
+     *
+     * @param event the stock change
+     */
+    private void onStockChanged(StockChangeEvent event) {
+        if (event.reason() == StockChangeReason.SALE || changingProducts.get()) {
+            return;
+        }
+        AtomicIntegerArray slots = stock.get(event.product().getSku());
+        if (slots == null) {
+            return;
+        }
+        int delta = event.newQuantity() - event.previousQuantity();
+        if (delta > 0) {
+            slots.addAndGet(0, delta);
+            return;
+        }
+        int outstanding = -delta;
+        int warehouseCount = warehouses.length;
+        for (int index = 0; outstanding > 0 && index < warehouseCount; index++) {
+            while (true) {
+                int current = slots.get(index);
+                int take = Math.min(current, outstanding);
+                if (take == 0 || slots.compareAndSet(index, current, current - take)) {
+                    outstanding -= take;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a quantity of a product out of a warehouse if the warehouse holds enough of it.
+     *
+     * @param product   the product
+     * @param warehouse the warehouse
+     * @param quantity  the quantity to take
+     * @return true if the quantity was taken, false otherwise
+     */
+    private boolean tryTake(Product product, Warehouse warehouse, int quantity) {
+        AtomicIntegerArray slots = stock.get(product.getSku());
+        if (slots == null) {
+            return false;
+        }
+        int index = warehouse.index();
+        while (true) {
+            int current = slots.get(index);
+            if (current < quantity) {
+                return false;
+            }
+            if (slots.compareAndSet(index, current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Puts a quantity of a product back into a warehouse.
+     *
+     * @param product   the product
+     * @param warehouse the warehouse
+     * @param quantity  the quantity to put back
+     */
+    private void put(Product product, Warehouse warehouse, int quantity) {
+        stock.get(product.getSku()).addAndGet(warehouse.index(), quantity);
+    }
+
+    /**
+     * Checks that a warehouse belongs to this network.
+     *
+     * @param warehouse the warehouse
+     * @throws IllegalArgumentException if the warehouse is null or not part of this network
+     */
+    private void checkWarehouse(Warehouse warehouse) {
+        Warehouse[] current = warehouses;
+        if (warehouse == null || warehouse.index() >= current.length || current[warehouse.index()] != warehouse) {
+            throw new IllegalArgumentException("Warehouse is not part of this network.");
+        }
+    }
+
+    /**
+     * Finds the first line that still has units outstanding.
+     *
+     * @param remaining the outstanding units of each line
+     * @return the index of the first line with units outstanding
+     */
+    private static int firstOutstanding(int[] remaining) {
+        int line = 0;
+        while (remaining[line] == 0) {
+            line++;
+        }
+        return line;
+    }
+}
@@ -0,0 +1,280 @@
+package service.watch;
+
+import entity.product.Product;
+import entity.product.StockChangeEvent;
+import entity.product.StockChangeListener;
+import entity.product.StockEvents;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The StockWatchService notifies watchers when a product's stock crosses a threshold, e.g. low-stock alerts
+ * for merchandisers and back-in-stock notifications for customers.
+ * Once {@link #attach() attached}, it sees every stock change, including checkout sales and manual updates.
+ * Watches are indexed per SKU in skip lists sorted by threshold, one per direction and kind of watch, so a
+ * stock change only visits the thresholds between the previous and the new quantity: O(log n + fired).
+ * Stock changes are published on the thread changing the stock, often while it holds the product's lock, so
+ * the fired watchers are handed to an executor rather than called in place.
+ */
+public class StockWatchService {
+    private final Executor notifier;
+    private final Map<Long, SkuWatches> watches = new ConcurrentHashMap<>();
+    private final AtomicLong watchCount = new AtomicLong();
+    private final AtomicLong firedCount = new AtomicLong();
+    private final StockChangeListener listener = this::onStockChanged;
+
+    /**
+     * Constructs a StockWatchService.
+     *
+     * @param notifier the executor watchers are notified on
+     * @throws IllegalArgumentException if the notifier is null
+     */
+    public StockWatchService(Executor notifier) {
+        if (notifier == null) {
+            throw new IllegalArgumentException("Notifier cannot be null.");
+        }
+        this.notifier = notifier;
+    }
+
+    /**
+     * Starts watching every stock change.
+     */
+    public void attach() {
+        StockEvents.addListener(listener);
+    }
+
+    /**
+     * Stops watching stock changes.
+     */
+    public void detach() {
+        StockEvents.removeListener(listener);
+    }
+
+    /**
+     * Registers a watch on a product's stock.
+     *
+     * @param product   the product to watch
+     * @param threshold the stock level the watch fires at
+     * @param direction the direction stock must cross the threshold in
+     * @param oneShot   whether the watch is removed after firing once
+     * @param watcher   the callback to notify
+     * @return the watch, which can be cancelled
+     * @throws IllegalArgumentException if the product, direction or watcher is null, or the threshold is negative
+     */
+    public Watch watch(Product product, int threshold, WatchDirection direction, boolean oneShot, StockWatcher watcher) {
+        if (product == null || direction == null || watcher == null) {
+            throw new IllegalArgumentException("Product, direction and watcher cannot be null.");
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold cannot be negative.");
+        }
+        Watch watch = new Watch(product.getSku(), threshold, direction, oneShot, watcher);
+        NavigableMap<Integer, Bucket> index = watches.computeIfAbsent(product.getSku(), sku -> new SkuWatches()).index(watch);
+        while (!index.computeIfAbsent(threshold, t -> new Bucket()).add(watch)) {
+            // The bucket was drained or emptied concurrently; retry with a fresh one
+            Thread.onSpinWait();
+        }
+        watchCount.incrementAndGet();
+        return watch;
+    }
+
+    /**
+     * Registers a low-stock alert that fires every time the product's stock drops to the threshold or below.
+     *
+     * @param product   the product to watch
+     * @param threshold the low-stock level
+     * @param watcher   the callback to notify
+     * @return the watch, which can be cancelled
+     * @throws IllegalArgumentException if the product or watcher is null, or the threshold is negative
+     */
+    public Watch watchLowStock(Product product, int threshold, StockWatcher watcher) {
+        return watch(product, threshold, WatchDirection.FALLING, false, watcher);
+    }
+
+    /**
+     * Registers a one-time notification for when the product is back in stock.
+     *
+     * @param product the product to watch
+     * @param watcher the callback to notify
+     * @return the watch, which can be cancelled
+     * @throws IllegalArgumentException if the product or watcher is null
+     */
+    public Watch watchBackInStock(Product product, StockWatcher watcher) {
+        return watch(product, 1, WatchDirection.RISING, true, watcher);
+    }
+
+    /**
+     * Cancels a watch.
+     *
+     * @param watch the watch to cancel
+     * @return true if the watch was registered, false if it was already cancelled or has fired as a one-shot watch
+     */
+    public boolean cancel(Watch watch) {
+        if (watch == null) {
+            return false;
+        }
+        SkuWatches skuWatches = watches.get(watch.getSku());
+        if (skuWatches == null) {
+            return false;
+        }
+        NavigableMap<Integer, Bucket> index = skuWatches.index(watch);
+        Bucket bucket = index.get(watch.getThreshold());
+        if (bucket == null || !bucket.remove(watch)) {
+            return false;
+        }
+        if (bucket.closeIfEmpty()) {
+            index.remove(watch.getThreshold(), bucket);
+        }
+        watchCount.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Gets the number of registered watches.
+     *
+     * @return the number of watches
+     */
+    public long getWatchCount() {
+        return watchCount.get();
+    }
+
+    /**
+     * Gets the number of watcher notifications handed to the notifier.
+     *
+     * @return the number of fired watches
+     */
+    public long getFiredCount() {
+        return firedCount.get();
+    }
+
+    /**
+     * Collects the watches whose threshold a stock change crossed and notifies them on the notifier.
+     * One-shot watches are removed as they fire, so each fires exactly once.
+     *
+     * @param event the stock change
+     */
+    private void onStockChanged(StockChangeEvent event) {
+        SkuWatches skuWatches = watches.get(event.product().getSku());
+        if (skuWatches == null || event.delta() == 0) {
+            return;
+        }
+        int previous = event.previousQuantity();
+        int current = event.newQuantity();
+        boolean falling = current < previous;
+        // Falling crosses thresholds in [current, previous); rising crosses thresholds in (previous, current]
+        NavigableMap<Integer, Bucket> persistent = falling
+                ? skuWatches.fallingPersistent.subMap(current, true, previous, false)
+                : skuWatches.risingPersistent.subMap(previous, false, current, true);
+        NavigableMap<Integer, Bucket> oneShot = falling
+                ? skuWatches.fallingOneShot.subMap(current, true, previous, false)
+                : skuWatches.risingOneShot.subMap(previous, false, current, true);
+        if (persistent.isEmpty() && oneShot.isEmpty()) {
+            return;
+        }
+
+        List<Watch> fired = new ArrayList<>();
+        for (Bucket bucket : persistent.values()) {
+            fired.addAll(bucket.watches);
+        }
+        for (Integer threshold : oneShot.keySet()) {
+            Bucket bucket = oneShot.remove(threshold);
+            if (bucket != null) {
+                bucket.close();
+                fired.addAll(bucket.watches);
+                watchCount.addAndGet(-bucket.watches.size());
+            }
+        }
+        if (fired.isEmpty()) {
+            return;
+        }
+        firedCount.addAndGet(fired.size());
+        notifier.execute(() -> {
+            for (Watch watch : fired) {
+                watch.getWatcher().onThresholdCrossed(watch, event);
+            }
+        });
+    }
+
+    /**
+     * The watches of one SKU, indexed by threshold, per direction and kind of watch.
+     */
+    private static final class SkuWatches {
+        private final ConcurrentSkipListMap<Integer, Bucket> fallingPersistent = new ConcurrentSkipListMap<>();
+        private final ConcurrentSkipListMap<Integer, Bucket> fallingOneShot = new ConcurrentSkipListMap<>();
+        private final ConcurrentSkipListMap<Integer, Bucket> risingPersistent = new ConcurrentSkipListMap<>();
+        private final ConcurrentSkipListMap<Integer, Bucket> risingOneShot = new ConcurrentSkipListMap<>();
+
+        /**
+         * Gets the index a watch belongs in.
+         *
+         * @param watch the watch
+         * @return the threshold index for the watch's direction and kind
+         */
+        private NavigableMap<Integer, Bucket> index(Watch watch) {
+            if (watch.getDirection() == WatchDirection.FALLING) {
+                return watch.isOneShot() ? fallingOneShot : fallingPersistent;
+            }
+            return watch.isOneShot() ? risingOneShot : risingPersistent;
+        }
+    }
+
+    /**
+     * The watches registered at one threshold. A bucket is closed once it has been drained by a one-shot
+     * firing or emptied by cancellations, after which watches must be added to a new bucket instead.
+     */
+    private static final class Bucket {
+        private final Set<Watch> watches = ConcurrentHashMap.newKeySet();
+        private boolean closed;
+
+        /**
+         * Adds a watch unless the bucket is closed.
+         *
+         * @param watch the watch to add
+         * @return true if the watch was added, false if the bucket is closed
+         */
+        private synchronized boolean add(Watch watch) {
+            if (closed) {
+                return false;
+            }
+            watches.add(watch);
+            return true;
+        }
+
+        /**
+         * Removes a watch unless the bucket is closed.
+         *
+         * @param watch the watch to remove
+         * @return true if the watch was removed, false otherwise
+         */
+        private synchronized boolean remove(Watch watch) {
+            return !closed && watches.remove(watch);
+        }
+
+        /**
+         * Closes the bucket, so no further watches are added to it.
+         */
+        private synchronized void close() {
+            closed = true;
+        }
+
+        /**
+         * Closes the bucket if it holds no watches.
+         *
+         * @return true if the bucket was empty and is now closed, false otherwise
+         */
+        private synchronized boolean closeIfEmpty() {
+            if (watches.isEmpty()) {
+                closed = true;
+            }
+            return closed && watches.isEmpty();
+        }
+    }
+}
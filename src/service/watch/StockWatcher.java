@@ -0,0 +1,17 @@
+package service.watch;
+
+import entity.product.StockChangeEvent;
+
+/**
+ * Callback notified when a product's stock crosses the threshold of a {@link Watch}.
+ */
+@FunctionalInterface
+public interface StockWatcher {
+    /**
+     * Called after a stock change crossed the watch's threshold.
+     *
+     * @param watch the watch that fired
+     * @param event the stock change that crossed the threshold
+     */
+    void onThresholdCrossed(Watch watch, StockChangeEvent event);
+}
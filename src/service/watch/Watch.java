@@ -0,0 +1,74 @@
+package service.watch;
+
+/**
+ * A registered watch on a product's stock, returned by {@link StockWatchService} and used to cancel it.
+ */
+public final class Watch {
+    private final long sku;
+    private final int threshold;
+    private final WatchDirection direction;
+    private final boolean oneShot;
+    private final StockWatcher watcher;
+
+    /**
+     * Constructs a Watch.
+     *
+     * @param sku       the SKU of the watched product
+     * @param threshold the stock level the watch fires at
+     * @param direction the direction stock must cross the threshold in
+     * @param oneShot   whether the watch is removed after firing once
+     * @param watcher   the callback to notify
+     */
+    Watch(long sku, int threshold, WatchDirection direction, boolean oneShot, StockWatcher watcher) {
+        this.sku = sku;
+        this.threshold = threshold;
+        this.direction = direction;
+        this.oneShot = oneShot;
+        this.watcher = watcher;
+    }
+
+    /**
+     * Gets the SKU of the watched product.
+     *
+     * @return the SKU
+     */
+    public long getSku() {
+        return sku;
+    }
+
+    /**
+     * Gets the stock level the watch fires at.
+     *
+     * @return the threshold
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Gets the direction stock must cross the threshold in.
+     *
+     * @return the direction
+     */
+    public WatchDirection getDirection() {
+        return direction;
+    }
+
+    /**
+     * Checks whether the watch is removed after firing once.
+     *
+     * @return true for a one-shot watch, false for a watch that fires on every crossing
+     */
+    public boolean isOneShot() {
+        return oneShot;
+    }
+
+    /**
+     * Gets the callback notified when the watch fires.
+     *
+     * @return the watcher
+     */
+    StockWatcher getWatcher() {
+        return watcher;
+    }
+}
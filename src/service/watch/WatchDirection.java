@@ -0,0 +1,15 @@
+package service.watch;
+
+/**
+ * The direction in which stock must cross a watch's threshold for the watch to fire.
+ */
+public enum WatchDirection {
+    /**
+     * Fires when stock drops from above the threshold to the threshold or below, e.g. a low-stock alert.
+     */
+    FALLING,
+    /**
+     * Fires when stock rises from below the threshold to the threshold or above, e.g. a back-in-stock notification.
+     */
+    RISING
+}